@@ -5,6 +5,10 @@ public class Constants {
     public static final String DEFAULT_FROM_VALUE = "0";
     public static final String DEFAULT_SIZE_VALUE = "10";
     public static final String APP_NAME = "ewm-main";
+    /**
+     * Set on responses whose views could not be fetched from stats-server and are the last known ones or zero.
+     */
+    public static final String VIEWS_DEGRADED_HEADER = "X-Views-Degraded";
 
     private Constants() {
     }
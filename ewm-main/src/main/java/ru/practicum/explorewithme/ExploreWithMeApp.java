@@ -2,8 +2,11 @@ package ru.practicum.explorewithme;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import ru.practicum.explorewithme.stats.HitSenderProperties;
 
 @SpringBootApplication
+@EnableConfigurationProperties(HitSenderProperties.class)
 public class ExploreWithMeApp {
     public static void main(String[] args) {
         SpringApplication.run(ExploreWithMeApp.class, args);
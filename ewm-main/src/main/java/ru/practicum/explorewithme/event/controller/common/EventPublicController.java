@@ -3,6 +3,7 @@ package ru.practicum.explorewithme.event.controller.common;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -15,6 +16,7 @@ import ru.practicum.explorewithme.event.dto.EventSearchParams;
 import ru.practicum.explorewithme.event.dto.EventShortDto;
 import ru.practicum.explorewithme.event.dto.SortType;
 import ru.practicum.explorewithme.event.service.EventService;
+import ru.practicum.explorewithme.stats.Viewed;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -27,7 +29,7 @@ public class EventPublicController {
     private final EventService service;
 
     @GetMapping()
-    public List<EventShortDto> getEvents(
+    public ResponseEntity<List<EventShortDto>> getEvents(
             @RequestParam(required = false) String text,
             @RequestParam(required = false) List<Long> categories,
             @RequestParam(required = false) Boolean paid,
@@ -45,12 +47,20 @@ public class EventPublicController {
         EventSearchParams params = new EventSearchParams(
                 safeText, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort, from, size
         );
-        return service.getPublishedEvents(params, request);
+        return respond(service.getPublishedEvents(params, request));
     }
 
     @GetMapping("/{id}")
-    public EventFullDto getEventById(@PathVariable long id,
-                                     HttpServletRequest request) {
-        return service.getPublishedEventById(id, request);
+    public ResponseEntity<EventFullDto> getEventById(@PathVariable long id,
+                                                     HttpServletRequest request) {
+        return respond(service.getPublishedEventById(id, request));
+    }
+
+    private static <T> ResponseEntity<T> respond(Viewed<T> viewed) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (viewed.viewsDegraded()) {
+            response.header(Constants.VIEWS_DEGRADED_HEADER, "stale");
+        }
+        return response.body(viewed.body());
     }
 }
@@ -7,6 +7,7 @@ import ru.practicum.explorewithme.event.dto.EventShortDto;
 import ru.practicum.explorewithme.event.dto.NewEventDto;
 import ru.practicum.explorewithme.event.dto.UpdateEventAdminRequest;
 import ru.practicum.explorewithme.event.dto.UpdateEventUserRequest;
+import ru.practicum.explorewithme.stats.Viewed;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -17,9 +18,9 @@ public interface EventService {
 
     EventFullDto updateEventByAdmin(Long eventId, UpdateEventAdminRequest request);
 
-    List<EventShortDto> getPublishedEvents(EventSearchParams params, HttpServletRequest request);
+    Viewed<List<EventShortDto>> getPublishedEvents(EventSearchParams params, HttpServletRequest request);
 
-    EventFullDto getPublishedEventById(Long id, HttpServletRequest request);
+    Viewed<EventFullDto> getPublishedEventById(Long id, HttpServletRequest request);
 
     EventFullDto createEvent(Long userId, NewEventDto dto);
 
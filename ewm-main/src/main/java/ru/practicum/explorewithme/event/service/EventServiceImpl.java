@@ -9,6 +9,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.explorewithme.category.model.Category;
 import ru.practicum.explorewithme.category.repository.CategoryRepository;
+import ru.practicum.explorewithme.client.ViewCounts;
 import ru.practicum.explorewithme.event.dto.EventFullDto;
 import ru.practicum.explorewithme.event.dto.EventSearchParams;
 import ru.practicum.explorewithme.event.dto.EventShortDto;
@@ -27,6 +28,7 @@ import ru.practicum.explorewithme.exception.custom.NotFoundException;
 import ru.practicum.explorewithme.exception.custom.ValidationException;
 import ru.practicum.explorewithme.participation.model.RequestStatus;
 import ru.practicum.explorewithme.stats.StatsService;
+import ru.practicum.explorewithme.stats.Viewed;
 import ru.practicum.explorewithme.user.model.User;
 import ru.practicum.explorewithme.user.repository.UserRepository;
 
@@ -34,6 +36,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -103,7 +106,7 @@ public class EventServiceImpl implements EventService {
     }
 
     @Override
-    public List<EventShortDto> getPublishedEvents(EventSearchParams params, HttpServletRequest request) {
+    public Viewed<List<EventShortDto>> getPublishedEvents(EventSearchParams params, HttpServletRequest request) {
         normalizeDateRange(params);
         validateRange(params);
 
@@ -124,25 +127,47 @@ public class EventServiceImpl implements EventService {
 
         statsService.saveHit(request);
 
-        enrichWithViews(events);
+        Map<Long, String> uris = events.stream()
+                .collect(Collectors.toMap(Event::getId, e -> "/events/" + e.getId()));
+        CompletableFuture<ViewCounts> views = statsService.getViewsAsync(new ArrayList<>(uris.values()));
+
+        List<EventShortDto> result;
+        try {
+            result = events.stream()
+                    .map(mapper::toShortDto)
+                    .collect(Collectors.toList());
+        } catch (RuntimeException e) {
+            views.cancel(false);
+            throw e;
+        }
 
-        return events.stream()
-                .map(mapper::toShortDto)
-                .collect(Collectors.toList());
+        ViewCounts fetched = views.join();
+        result.forEach(dto -> dto.setViews(fetched.views().getOrDefault(uris.get(dto.getId()), 0L)));
+        return new Viewed<>(result, fetched.degraded());
     }
 
     @Override
-    public EventFullDto getPublishedEventById(Long id, HttpServletRequest request) {
-        Event event = repository.findByIdAndState(id, EventState.PUBLISHED)
-                .orElseThrow(() -> new NotFoundException("Event not found or not published"));
-
+    public Viewed<EventFullDto> getPublishedEventById(Long id, HttpServletRequest request) {
         String uri = "/events/" + id;
+        // the uri is known up front, so stats-server and the database are asked at the same time
+        CompletableFuture<ViewCounts> views = statsService.getViewsAsync(List.of(uri));
+
+        Event event;
+        try {
+            event = repository.findByIdAndState(id, EventState.PUBLISHED)
+                    .orElseThrow(() -> new NotFoundException("Event not found or not published"));
+        } catch (RuntimeException e) {
+            // nobody is going to wait for the views of a failed request
+            views.cancel(false);
+            throw e;
+        }
+
         statsService.saveHit(request);
 
-        Map<String, Long> views = statsService.getViews(List.of(uri));
-        event.setViews(views.getOrDefault(uri, 0L));
+        ViewCounts fetched = views.join();
+        event.setViews(fetched.views().getOrDefault(uri, 0L));
 
-        return mapper.toFullDto(event);
+        return new Viewed<>(mapper.toFullDto(event), fetched.degraded());
     }
 
     @Override
@@ -281,12 +306,4 @@ public class EventServiceImpl implements EventService {
         }
         return Sort.by(Sort.Direction.ASC, "eventDate");
     }
-
-    private void enrichWithViews(List<Event> events) {
-        Map<Long, String> uriMap = events.stream()
-                .collect(Collectors.toMap(Event::getId, e -> "/events/" + e.getId()));
-
-        Map<String, Long> views = statsService.getViews(new ArrayList<>(uriMap.values()));
-        events.forEach(e -> e.setViews(views.getOrDefault(uriMap.get(e.getId()), 0L)));
-    }
 }
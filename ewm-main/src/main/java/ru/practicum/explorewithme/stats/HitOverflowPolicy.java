@@ -0,0 +1,15 @@
+package ru.practicum.explorewithme.stats;
+
+/**
+ * What {@link HitSender} does with a hit that arrives while its queue is full.
+ */
+public enum HitOverflowPolicy {
+    /**
+     * Discard the arriving hit and keep the queued ones.
+     */
+    DROP_NEWEST,
+    /**
+     * Discard the oldest queued hit to make room, favouring fresh views while stats-server is unreachable.
+     */
+    DROP_OLDEST
+}
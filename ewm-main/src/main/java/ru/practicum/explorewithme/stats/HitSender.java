@@ -0,0 +1,334 @@
+package ru.practicum.explorewithme.stats;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import ru.practicum.explorewithme.client.StatsClient;
+import ru.practicum.explorewithme.client.StatsServerUnavailableException;
+import ru.practicum.statsdto.HitBatchResult;
+import ru.practicum.statsdto.StatDto;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Queues hits of public requests and sends them to stats-server in batches from a single background thread, so
+ * a request never waits for stats-server. The queue is lock-free and bounded by {@code stats-sender.queue-capacity};
+ * hits beyond it are dropped according to the {@link HitOverflowPolicy}, as are batches that still fail after
+ * {@code max-attempts}; while the stats-server circuit breaker is open a batch waits without using up attempts,
+ * and the queue behind it overflows instead. A batch rejected with a 4xx other than 429 is resent hit by hit, so
+ * only the hits stats-server rejects on their own are dropped. What is queued at shutdown is sent before the
+ * application context closes; a send in flight is left to finish rather than interrupted, as it may already have
+ * been stored.
+ */
+@Component
+public class HitSender implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(HitSender.class);
+    // stops after the embedded web server, so no hit can be queued once the final flush has run
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final StatsClient statsClient;
+    private final HitSenderProperties settings;
+    private final Queue<StatDto> queue = new ConcurrentLinkedQueue<>();
+    // ConcurrentLinkedQueue.size() walks the whole queue
+    private final AtomicInteger size = new AtomicInteger();
+    // owned by the sender thread while running, by the stopping thread afterwards
+    private final List<StatDto> pending;
+    private final Counter queuedHits;
+    private final Counter sentHits;
+    private final Counter overflowDroppedHits;
+    private final Counter failedDroppedHits;
+    private final Counter rejectedDroppedHits;
+    private final Counter shutdownDroppedHits;
+
+    private volatile boolean running;
+    private volatile Thread sendThread;
+    private volatile long shutdownDeadline;
+
+    public HitSender(StatsClient statsClient, HitSenderProperties properties, MeterRegistry meterRegistry) {
+        this.statsClient = statsClient;
+        this.settings = properties;
+        this.pending = new ArrayList<>(settings.getMaxBatchSize());
+        this.queuedHits = Counter.builder("stats.hits.queued")
+                .description("Hits queued for sending to stats-server")
+                .register(meterRegistry);
+        this.sentHits = Counter.builder("stats.hits.sent")
+                .description("Hits accepted by stats-server")
+                .register(meterRegistry);
+        this.overflowDroppedHits = droppedCounter(meterRegistry, "overflow");
+        this.failedDroppedHits = droppedCounter(meterRegistry, "failed");
+        this.rejectedDroppedHits = droppedCounter(meterRegistry, "rejected");
+        this.shutdownDroppedHits = droppedCounter(meterRegistry, "shutdown");
+        Gauge.builder("stats.hits.pending", size, AtomicInteger::get)
+                .description("Hits queued and not yet sent")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues the hit without blocking.
+     *
+     * @return false when the hit itself was dropped because the queue is full
+     */
+    public boolean offer(StatDto hit) {
+        queuedHits.increment();
+        if (size.incrementAndGet() > settings.getQueueCapacity()) {
+            if (settings.getOverflowPolicy() == HitOverflowPolicy.DROP_NEWEST) {
+                size.decrementAndGet();
+                overflowDroppedHits.increment();
+                return false;
+            }
+            if (queue.poll() != null) {
+                size.decrementAndGet();
+                overflowDroppedHits.increment();
+            }
+        }
+        queue.offer(hit);
+        if (size.get() >= settings.getMaxBatchSize()) {
+            Thread thread = sendThread;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        sendThread = new Thread(this::sendLoop, "stats-hit-sender");
+        sendThread.setDaemon(true);
+        sendThread.start();
+        logger.info("Stats hit sender started: capacity={}, maxBatchSize={}, flushInterval={}, overflowPolicy={}",
+                settings.getQueueCapacity(), settings.getMaxBatchSize(), settings.getFlushInterval(),
+                settings.getOverflowPolicy());
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        Thread thread = sendThread;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sendThread = null;
+        flushRemaining();
+        logger.info("Stats hit sender flushed and stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void sendLoop() {
+        long flushIntervalNanos = settings.getFlushInterval().toNanos();
+        while (running) {
+            if (size.get() < settings.getMaxBatchSize()) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            while (running && drainBatch() > 0) {
+                if (!sendWithRetries(settings.getMaxAttempts())) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void flushRemaining() {
+        shutdownDeadline = System.nanoTime() + settings.getShutdownTimeout().toNanos();
+        while (!pending.isEmpty() || drainBatch() > 0) {
+            if (System.nanoTime() - shutdownDeadline > 0 || !sendWithRetries(settings.getMaxAttempts())) {
+                break;
+            }
+        }
+        int dropped = pending.size() + size.get();
+        if (dropped > 0) {
+            logger.warn("Dropping {} stats hits that could not be sent before shutdown", dropped);
+            shutdownDroppedHits.increment(dropped);
+            pending.clear();
+            queue.clear();
+            size.set(0);
+        }
+    }
+
+    /**
+     * Tops up the pending batch from the queue.
+     *
+     * @return the size of the pending batch
+     */
+    private int drainBatch() {
+        while (pending.size() < settings.getMaxBatchSize()) {
+            StatDto hit = queue.poll();
+            if (hit == null) {
+                break;
+            }
+            size.decrementAndGet();
+            pending.add(hit);
+        }
+        return pending.size();
+    }
+
+    /**
+     * Sends the pending batch, pausing for the flush interval between attempts; a batch that fails every
+     * attempt is dropped. Calls the open circuit breaker turned away are not attempts: the batch is offered again
+     * every flush interval until the circuit lets a probe through.
+     *
+     * @return false when the sender thread stops or shutdown runs out of time, with the unsent hits still pending
+     */
+    private boolean sendWithRetries(int attempts) {
+        int failed = 0;
+        boolean held = false;
+        while (true) {
+            SendOutcome outcome = send();
+            if (outcome == SendOutcome.SENT) {
+                return true;
+            }
+            if (outcome == SendOutcome.CIRCUIT_OPEN && !held) {
+                logger.warn("stats-server circuit is open, holding {} stats hits until it lets calls through",
+                        pending.size());
+                held = true;
+            }
+            if (outcome == SendOutcome.FAILED && ++failed >= attempts) {
+                break;
+            }
+            if (!pause()) {
+                return false;
+            }
+        }
+        logger.warn("Dropping {} stats hits after {} failed attempts", pending.size(), attempts);
+        failedDroppedHits.increment(pending.size());
+        pending.clear();
+        return true;
+    }
+
+    /**
+     * @return SENT when the whole pending batch was accepted; accepted hits leave the batch either way
+     */
+    private SendOutcome send() {
+        ResponseEntity<HitBatchResult> response;
+        try {
+            response = statsClient.saveHits(List.copyOf(pending));
+        } catch (StatsServerUnavailableException e) {
+            return SendOutcome.CIRCUIT_OPEN;
+        } catch (RestClientException e) {
+            logger.warn("Failed to send {} stats hits: {}", pending.size(), e.getMessage());
+            return SendOutcome.FAILED;
+        }
+        if (response != null && isRejected(response.getStatusCode())) {
+            return sendOneByOne();
+        }
+        if (response == null || response.getBody() == null) {
+            logger.warn("stats-server did not accept {} hits: {}", pending.size(),
+                    response == null ? "no response" : response.getStatusCode());
+            return SendOutcome.FAILED;
+        }
+        // the server takes a prefix of the batch when its own buffer is full, answering 429 with the count
+        int accepted = Math.min(response.getBody().getAccepted(), pending.size());
+        sentHits.increment(accepted);
+        pending.subList(0, accepted).clear();
+        return pending.isEmpty() ? SendOutcome.SENT : SendOutcome.FAILED;
+    }
+
+    /**
+     * Sends the pending hits with {@code POST /hit} one at a time after the batch was rejected as a whole, dropping
+     * those rejected on their own.
+     *
+     * @return SENT when every pending hit was accepted or dropped; the rest stay pending
+     */
+    private SendOutcome sendOneByOne() {
+        logger.warn("stats-server rejected a batch of {} hits, sending them one by one", pending.size());
+        Iterator<StatDto> hits = pending.iterator();
+        while (hits.hasNext()) {
+            StatDto hit = hits.next();
+            ResponseEntity<Object> response;
+            try {
+                response = statsClient.saveHit(hit);
+            } catch (StatsServerUnavailableException e) {
+                return SendOutcome.CIRCUIT_OPEN;
+            } catch (RestClientException e) {
+                logger.warn("Failed to send a stats hit: {}", e.getMessage());
+                return SendOutcome.FAILED;
+            }
+            if (response.getStatusCode().is2xxSuccessful()) {
+                sentHits.increment();
+            } else if (isRejected(response.getStatusCode())) {
+                logger.warn("stats-server rejected hit {}: {}", hit, response.getStatusCode());
+                rejectedDroppedHits.increment();
+            } else {
+                logger.warn("stats-server did not accept a hit: {}", response.getStatusCode());
+                return SendOutcome.FAILED;
+            }
+            hits.remove();
+        }
+        return SendOutcome.SENT;
+    }
+
+    /**
+     * A 4xx other than 429 means the same request would fail again.
+     */
+    private static boolean isRejected(HttpStatusCode status) {
+        return status.is4xxClientError() && status.value() != HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    /**
+     * Waits for the flush interval, which {@link #offer} does not cut short.
+     *
+     * @return false when this is the sender thread and the sender stopped meanwhile, or when shutdown ran out of time
+     */
+    private boolean pause() {
+        boolean senderThread = Thread.currentThread() == sendThread;
+        long deadline = System.nanoTime() + settings.getFlushInterval().toNanos();
+        for (long left = deadline - System.nanoTime(); left > 0; left = deadline - System.nanoTime()) {
+            if (senderThread && !running) {
+                return false;
+            }
+            LockSupport.parkNanos(this, left);
+        }
+        return senderThread ? running : System.nanoTime() - shutdownDeadline < 0;
+    }
+
+    private static Counter droppedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("stats.hits.dropped")
+                .description("Hits given up on without stats-server accepting them")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private enum SendOutcome {
+        SENT,
+        FAILED,
+        // turned away by the open circuit breaker without reaching stats-server
+        CIRCUIT_OPEN
+    }
+}
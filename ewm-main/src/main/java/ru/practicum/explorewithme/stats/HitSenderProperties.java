@@ -0,0 +1,28 @@
+package ru.practicum.explorewithme.stats;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats-sender")
+public class HitSenderProperties {
+    private int queueCapacity = 10_000;
+    /**
+     * Hits per {@code POST /hits/batch}; a batch is sent once this many are queued or the flush interval passed.
+     */
+    private int maxBatchSize = 500;
+    private Duration flushInterval = Duration.ofMillis(200);
+    private HitOverflowPolicy overflowPolicy = HitOverflowPolicy.DROP_OLDEST;
+    /**
+     * A batch that could not be delivered after this many attempts is dropped.
+     */
+    private int maxAttempts = 5;
+    /**
+     * How long shutdown waits for queued hits to be sent before dropping the rest.
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,35 @@
+package ru.practicum.explorewithme.stats;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+import ru.practicum.explorewithme.client.StatsCircuitBreaker;
+
+/**
+ * Reports the circuit breaker in front of stats-server as {@code statsServer} on the health endpoint. An open
+ * circuit is reported as DEGRADED rather than DOWN: events are still served, only with stale or missing views.
+ */
+@Component
+public class StatsServerHealthIndicator extends AbstractHealthIndicator {
+    static final Status DEGRADED = new Status("DEGRADED", "Views are served without asking stats-server");
+
+    private final StatsCircuitBreaker circuitBreaker;
+
+    public StatsServerHealthIndicator(ObjectProvider<StatsCircuitBreaker> circuitBreaker) {
+        this.circuitBreaker = circuitBreaker.getIfAvailable();
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        if (circuitBreaker == null) {
+            builder.up().withDetail("circuitBreaker", "disabled");
+            return;
+        }
+        StatsCircuitBreaker.State state = circuitBreaker.getState();
+        builder.status(state == StatsCircuitBreaker.State.CLOSED ? Status.UP : DEGRADED)
+                .withDetail("circuitBreaker", state)
+                .withDetail("consecutiveFailures", circuitBreaker.getConsecutiveFailures());
+    }
+}
@@ -1,12 +1,18 @@
 package ru.practicum.explorewithme.stats;
 
 import jakarta.servlet.http.HttpServletRequest;
+import ru.practicum.explorewithme.client.ViewCounts;
 
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface StatsService {
     void saveHit(HttpServletRequest request);
 
-    Map<String, Long> getViews(List<String> uris);
+    /**
+     * Starts fetching the views of the uris, so the caller can do other work until it needs them. Fails only on
+     * unexpected errors: while stats-server is unavailable the last known views, or none, are returned and
+     * marked as degraded.
+     */
+    CompletableFuture<ViewCounts> getViewsAsync(List<String> uris);
 }
@@ -4,22 +4,24 @@ import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.practicum.explorewithme.Constants;
-import ru.practicum.explorewithme.client.StatsClient;
+import ru.practicum.explorewithme.client.AsyncStatsClient;
+import ru.practicum.explorewithme.client.ViewCounts;
 import ru.practicum.statsdto.StatDto;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
 public class StatsServiceImpl implements StatsService {
 
-    private final StatsClient statsClient;
+    private final AsyncStatsClient asyncStatsClient;
+    private final HitSender hitSender;
 
     @Override
     public void saveHit(HttpServletRequest request) {
-        statsClient.saveHit(new StatDto(
+        hitSender.offer(new StatDto(
                 Constants.APP_NAME,
                 request.getRequestURI(),
                 request.getRemoteAddr(),
@@ -28,7 +30,7 @@ public class StatsServiceImpl implements StatsService {
     }
 
     @Override
-    public Map<String, Long> getViews(List<String> uris) {
-        return statsClient.getViews(uris);
+    public CompletableFuture<ViewCounts> getViewsAsync(List<String> uris) {
+        return asyncStatsClient.getViewCounts(Constants.APP_NAME, uris);
     }
 }
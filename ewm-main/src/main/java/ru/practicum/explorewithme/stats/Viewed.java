@@ -0,0 +1,10 @@
+package ru.practicum.explorewithme.stats;
+
+import ru.practicum.explorewithme.Constants;
+
+/**
+ * A response body carrying views, and whether those are the last known ones or zero because stats-server could not
+ * be asked; the controller marks such responses with {@link Constants#VIEWS_DEGRADED_HEADER}.
+ */
+public record Viewed<T>(T body, boolean viewsDegraded) {
+}
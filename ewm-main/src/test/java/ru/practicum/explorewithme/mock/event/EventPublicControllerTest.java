@@ -1,5 +1,6 @@
 package ru.practicum.explorewithme.mock.event;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,9 +11,12 @@ import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.explorewithme.Constants;
 import ru.practicum.explorewithme.category.model.Category;
 import ru.practicum.explorewithme.category.repository.CategoryRepository;
+import ru.practicum.explorewithme.client.AsyncStatsClient;
 import ru.practicum.explorewithme.client.StatsClient;
+import ru.practicum.explorewithme.client.ViewCounts;
 import ru.practicum.explorewithme.event.dto.EventFullDto;
 import ru.practicum.explorewithme.event.dto.NewEventDto;
 import ru.practicum.explorewithme.event.model.Event;
@@ -26,9 +30,11 @@ import ru.practicum.explorewithme.user.repository.UserRepository;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -50,6 +56,14 @@ public class EventPublicControllerTest {
     private EventService eventService;
     @MockBean
     private StatsClient statsClient;
+    @MockBean
+    private AsyncStatsClient asyncStatsClient;
+
+    @BeforeEach
+    void stubViews() {
+        Mockito.when(asyncStatsClient.getViewCounts(Mockito.any(), Mockito.any()))
+                .thenReturn(CompletableFuture.completedFuture(new ViewCounts(Map.of(), false)));
+    }
 
     @Test
     void getEvents_shouldReturnFilteredPublishedList() throws Exception {
@@ -91,19 +105,55 @@ public class EventPublicControllerTest {
         event.setState(EventState.PUBLISHED);
         eventRepository.save(event);
 
-        Mockito.when(statsClient.getViews(List.of("/events/" + event.getId())))
-                .thenReturn(Map.of("/events/" + event.getId(), 99L));
+        String uri = "/events/" + event.getId();
+        Mockito.when(asyncStatsClient.getViewCounts(Constants.APP_NAME, List.of(uri)))
+                .thenReturn(CompletableFuture.completedFuture(new ViewCounts(Map.of(uri, 99L), false)));
 
         MockHttpServletRequest request = new MockHttpServletRequest();
-        request.setRequestURI("/events/" + event.getId());
+        request.setRequestURI(uri);
         request.setRemoteAddr("127.0.0.1");
 
-        EventFullDto result = eventService.getPublishedEventById(event.getId(), request);
+        EventFullDto result = eventService.getPublishedEventById(event.getId(), request).body();
 
         assertThat(result).isNotNull();
         assertThat(result.getViews()).isEqualTo(99L);
     }
 
+    @Test
+    void getEventById_shouldMarkStaleViewsWhenStatsServerIsUnavailable() throws Exception {
+        User user = userRepository.save(new User(null, "StaleUser", "stale@user.com"));
+        Category cat = categoryRepository.save(new Category(null, "StaleViews"));
+
+        EventFullDto created = eventService
+                .createEvent(user.getId(), createValidEventDto(cat.getId(), CREATE_TIME.plusDays(1)));
+
+        Event event = eventRepository.findById(created.getId()).get();
+        event.setState(EventState.PUBLISHED);
+        eventRepository.save(event);
+
+        String uri = "/events/" + event.getId();
+        Mockito.when(asyncStatsClient.getViewCounts(Constants.APP_NAME, List.of(uri)))
+                .thenReturn(CompletableFuture.completedFuture(new ViewCounts(Map.of(uri, 7L), true)));
+
+        mockMvc.perform(get(uri))
+                .andExpect(status().isOk())
+                .andExpect(header().string(Constants.VIEWS_DEGRADED_HEADER, "stale"))
+                .andExpect(jsonPath("$.views").value(7));
+
+        stubViews();
+        mockMvc.perform(get(uri))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(Constants.VIEWS_DEGRADED_HEADER));
+    }
+
+    @Test
+    void health_shouldReportStatsServerCircuit() throws Exception {
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.components.statsServer.status").value("UP"))
+                .andExpect(jsonPath("$.components.statsServer.details.circuitBreaker").value("CLOSED"));
+    }
+
     private NewEventDto createValidEventDto(Long categoryId, LocalDateTime dateTime) {
         NewEventDto dto = new NewEventDto();
         dto.setTitle("Sample Event");
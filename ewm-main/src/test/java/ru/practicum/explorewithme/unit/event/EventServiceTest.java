@@ -1,16 +1,21 @@
 package ru.practicum.explorewithme.unit.event;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.explorewithme.Constants;
 import ru.practicum.explorewithme.category.model.Category;
+import ru.practicum.explorewithme.client.AsyncStatsClient;
 import ru.practicum.explorewithme.client.StatsClient;
+import ru.practicum.explorewithme.client.ViewCounts;
 import ru.practicum.explorewithme.event.dto.EventFullDto;
 import ru.practicum.explorewithme.event.dto.EventSearchParams;
 import ru.practicum.explorewithme.event.dto.EventShortDto;
@@ -27,13 +32,17 @@ import ru.practicum.explorewithme.exception.custom.ConflictException;
 import ru.practicum.explorewithme.exception.custom.NotFoundException;
 import ru.practicum.explorewithme.exception.custom.ValidationException;
 import ru.practicum.explorewithme.location.dto.LocationDto;
+import ru.practicum.explorewithme.stats.Viewed;
 import ru.practicum.explorewithme.unit.AbstractServiceTest;
 import ru.practicum.explorewithme.unit.TestDataFactory;
 import ru.practicum.explorewithme.user.model.User;
+import ru.practicum.statsdto.HitBatchResult;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -53,6 +62,19 @@ public class EventServiceTest extends AbstractServiceTest {
 
     @MockBean
     private StatsClient statsClient;
+    @MockBean
+    private AsyncStatsClient asyncStatsClient;
+
+    @BeforeEach
+    void stubViews() {
+        Mockito.when(asyncStatsClient.getViewCounts(Mockito.any(), Mockito.any()))
+                .thenReturn(CompletableFuture.completedFuture(new ViewCounts(Map.of(), false)));
+        // accepted hits are not sent again, so each hit is seen exactly once
+        Mockito.when(statsClient.saveHits(Mockito.any())).thenAnswer(invocation -> {
+            List<?> hits = invocation.getArgument(0);
+            return ResponseEntity.ok(new HitBatchResult(hits.size(), hits.size()));
+        });
+    }
 
     @Test
     void createEvent_shouldPersistAndReturnDto() {
@@ -124,15 +146,16 @@ public class EventServiceTest extends AbstractServiceTest {
         eventRepository.save(event);
 
         String uri = "/events/" + event.getId();
-        Mockito.when(statsClient.getViews(Mockito.argThat(list -> list.contains(uri))))
-                .thenReturn(Map.of(uri, 100L));
+        Mockito.when(asyncStatsClient.getViewCounts(Mockito.eq(Constants.APP_NAME),
+                        Mockito.argThat(list -> list.contains(uri))))
+                .thenReturn(CompletableFuture.completedFuture(new ViewCounts(Map.of(uri, 100L), false)));
 
         EventSearchParams params = setValidSearchParams(category.getId());
         MockHttpServletRequest request = new MockHttpServletRequest();
         request.setRequestURI("/events");
         request.setRemoteAddr("127.0.0.1");
 
-        List<EventShortDto> result = eventService.getPublishedEvents(params, request);
+        List<EventShortDto> result = eventService.getPublishedEvents(params, request).body();
 
         assertThat(result).hasSize(2);
         assertThat(result).anyMatch(e ->
@@ -241,21 +264,46 @@ public class EventServiceTest extends AbstractServiceTest {
         eventRepository.save(event);
 
         String uri = "/events/" + event.getId();
-        Mockito.when(statsClient.getViews(List.of(uri)))
-                .thenReturn(Map.of(uri, 42L));
+        Mockito.when(asyncStatsClient.getViewCounts(Constants.APP_NAME, List.of(uri)))
+                .thenReturn(CompletableFuture.completedFuture(new ViewCounts(Map.of(uri, 42L), false)));
 
         MockHttpServletRequest request = new MockHttpServletRequest();
         request.setRequestURI(uri);
         request.setRemoteAddr("127.0.0.1");
 
-        EventFullDto result = eventService.getPublishedEventById(event.getId(), request);
+        Viewed<EventFullDto> viewed = eventService.getPublishedEventById(event.getId(), request);
+        EventFullDto result = viewed.body();
 
+        assertThat(viewed.viewsDegraded()).isFalse();
         assertThat(result).isNotNull();
         assertThat(result.getId()).isEqualTo(event.getId());
         assertThat(result.getViews()).isEqualTo(42L);
 
-        Mockito.verify(statsClient).saveHit(Mockito.any());
-        Mockito.verify(statsClient).getViews(List.of(uri));
+        Mockito.verify(asyncStatsClient).getViewCounts(Constants.APP_NAME, List.of(uri));
+        Mockito.verify(statsClient, Mockito.timeout(5_000)).saveHits(Mockito.argThat(hits ->
+                hits.stream().anyMatch(hit -> uri.equals(hit.getUri()))));
+    }
+
+    @Test
+    void getPublishedEventById_shouldWaitForViewsFetchedAlongsideLookup() {
+        NewEventDto dto = createValidEventDto(category.getId(), created.plusDays(1));
+        Event event = eventRepository.findById(eventService.createEvent(requester.getId(), dto).getId())
+                .orElseThrow();
+        event.setState(PUBLISHED);
+        eventRepository.save(event);
+
+        String uri = "/events/" + event.getId();
+        CompletableFuture<ViewCounts> views = new CompletableFuture<>();
+        Mockito.when(asyncStatsClient.getViewCounts(Constants.APP_NAME, List.of(uri))).thenReturn(views);
+        views.completeAsync(() -> new ViewCounts(Map.of(uri, 5L), false),
+                CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRequestURI(uri);
+
+        assertThat(eventService.getPublishedEventById(event.getId(), request).body().getViews()).isEqualTo(5L);
+        assertThatThrownBy(() -> eventService.getPublishedEventById(Long.MAX_VALUE, request))
+                .isInstanceOf(NotFoundException.class);
+        Mockito.verify(asyncStatsClient).getViewCounts(Constants.APP_NAME, List.of("/events/" + Long.MAX_VALUE));
     }
 
     @Test
@@ -0,0 +1,228 @@
+package ru.practicum.explorewithme.unit.stats;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import ru.practicum.explorewithme.client.StatsClient;
+import ru.practicum.explorewithme.client.StatsServerUnavailableException;
+import ru.practicum.explorewithme.stats.HitOverflowPolicy;
+import ru.practicum.explorewithme.stats.HitSender;
+import ru.practicum.explorewithme.stats.HitSenderProperties;
+import ru.practicum.statsdto.HitBatchResult;
+import ru.practicum.statsdto.StatDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HitSenderTest {
+    private final StatsClient statsClient = Mockito.mock(StatsClient.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> sentUris = new ArrayList<>();
+    private HitSender sender;
+
+    @AfterEach
+    void tearDown() {
+        if (sender != null) {
+            sender.stop();
+        }
+    }
+
+    @Test
+    void offer_shouldSendQueuedHitsInBatches() {
+        acceptAll();
+        sender = sender(HitOverflowPolicy.DROP_OLDEST, 100);
+        sender.start();
+
+        for (int i = 0; i < 25; i++) {
+            assertThat(sender.offer(hit(i))).isTrue();
+        }
+
+        Mockito.verify(statsClient, Mockito.timeout(5_000).atLeast(3)).saveHits(Mockito.anyList());
+        assertThat(counter("stats.hits.queued")).isEqualTo(25);
+        Mockito.verify(statsClient, Mockito.never()).saveHit(Mockito.any());
+        sender.stop();
+        assertThat(sentUris).hasSize(25).startsWith("/events/0", "/events/1");
+        assertThat(counter("stats.hits.sent")).isEqualTo(25);
+    }
+
+    @Test
+    void offer_whenFullAndDropOldest_shouldKeepNewestHits() {
+        acceptAll();
+        sender = sender(HitOverflowPolicy.DROP_OLDEST, 3);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(sender.offer(hit(i))).isTrue();
+        }
+        sender.start();
+        sender.stop();
+
+        assertThat(sentUris).containsExactly("/events/2", "/events/3", "/events/4");
+        assertThat(dropped("overflow")).isEqualTo(2);
+    }
+
+    @Test
+    void offer_whenFullAndDropNewest_shouldRejectArrivingHits() {
+        acceptAll();
+        sender = sender(HitOverflowPolicy.DROP_NEWEST, 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(sender.offer(hit(i))).isTrue();
+        }
+        assertThat(sender.offer(hit(3))).isFalse();
+        assertThat(sender.size()).isEqualTo(3);
+        sender.start();
+        sender.stop();
+
+        assertThat(sentUris).containsExactly("/events/0", "/events/1", "/events/2");
+        assertThat(dropped("overflow")).isEqualTo(1);
+    }
+
+    @Test
+    void stop_shouldResendHitsTheServerDidNotAccept() {
+        Mockito.when(statsClient.saveHits(Mockito.anyList()))
+                .thenAnswer(invocation -> accept(invocation.getArgument(0), 1))
+                .thenThrow(new ResourceAccessException("Connection refused"))
+                .thenAnswer(invocation -> accept(invocation.getArgument(0), Integer.MAX_VALUE));
+        sender = sender(HitOverflowPolicy.DROP_OLDEST, 100);
+
+        sender.offer(hit(0));
+        sender.offer(hit(1));
+        sender.offer(hit(2));
+        sender.start();
+        sender.stop();
+
+        assertThat(sentUris).containsExactly("/events/0", "/events/1", "/events/2");
+        ArgumentCaptor<List<StatDto>> batches = ArgumentCaptor.captor();
+        Mockito.verify(statsClient, Mockito.times(3)).saveHits(batches.capture());
+        assertThat(batches.getAllValues().get(2)).extracting(StatDto::getUri)
+                .containsExactly("/events/1", "/events/2");
+        assertThat(counter("stats.hits.sent")).isEqualTo(3);
+    }
+
+    @Test
+    void stop_shouldDropBatchesThatKeepFailing() {
+        Mockito.when(statsClient.saveHits(Mockito.anyList()))
+                .thenReturn(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build());
+        sender = sender(HitOverflowPolicy.DROP_OLDEST, 100);
+
+        sender.offer(hit(0));
+        sender.start();
+        sender.stop();
+
+        Mockito.verify(statsClient, Mockito.times(3)).saveHits(Mockito.anyList());
+        assertThat(dropped("failed")).isEqualTo(1);
+        assertThat(sender.size()).isZero();
+    }
+
+    @Test
+    void send_whileCircuitIsOpen_shouldHoldTheBatchWithoutUsingUpAttempts() {
+        Mockito.when(statsClient.saveHits(Mockito.anyList()))
+                .thenThrow(new StatsServerUnavailableException("stats-server circuit breaker is OPEN"))
+                .thenThrow(new StatsServerUnavailableException("stats-server circuit breaker is OPEN"))
+                .thenThrow(new StatsServerUnavailableException("stats-server circuit breaker is OPEN"))
+                .thenThrow(new StatsServerUnavailableException("stats-server circuit breaker is OPEN"))
+                .thenAnswer(invocation -> accept(invocation.getArgument(0), Integer.MAX_VALUE));
+        sender = sender(HitOverflowPolicy.DROP_OLDEST, 100);
+        sender.start();
+
+        sender.offer(hit(0));
+
+        Mockito.verify(statsClient, Mockito.timeout(5_000).times(5)).saveHits(Mockito.anyList());
+        sender.stop();
+        assertThat(sentUris).containsExactly("/events/0");
+        assertThat(dropped("failed")).isZero();
+    }
+
+    @Test
+    void send_whenBatchIsRejected_shouldSendHitsOneByOneAndDropOnlyRejectedOnes() {
+        Mockito.when(statsClient.saveHits(Mockito.anyList()))
+                .thenReturn(ResponseEntity.status(HttpStatus.BAD_REQUEST).build());
+        Mockito.when(statsClient.saveHit(Mockito.any())).thenAnswer(invocation -> {
+            StatDto hit = invocation.getArgument(0);
+            if (hit.getUri().equals("/events/1")) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+            }
+            sentUris.add(hit.getUri());
+            return ResponseEntity.status(HttpStatus.CREATED).build();
+        });
+        sender = sender(HitOverflowPolicy.DROP_OLDEST, 100);
+
+        sender.offer(hit(0));
+        sender.offer(hit(1));
+        sender.offer(hit(2));
+        sender.start();
+        sender.stop();
+
+        Mockito.verify(statsClient, Mockito.times(1)).saveHits(Mockito.anyList());
+        assertThat(sentUris).containsExactly("/events/0", "/events/2");
+        assertThat(counter("stats.hits.sent")).isEqualTo(2);
+        assertThat(dropped("rejected")).isEqualTo(1);
+        assertThat(dropped("failed")).isZero();
+    }
+
+    @Test
+    void stop_shouldLetTheSendInFlightFinishInsteadOfResendingIt() throws InterruptedException {
+        CountDownLatch sending = new CountDownLatch(1);
+        Mockito.when(statsClient.saveHits(Mockito.anyList())).thenAnswer(invocation -> {
+            sending.countDown();
+            // an interrupt here would fail the call after stats-server may have stored the batch
+            Thread.sleep(200);
+            return accept(invocation.getArgument(0), Integer.MAX_VALUE);
+        });
+        sender = sender(HitOverflowPolicy.DROP_OLDEST, 100);
+        sender.start();
+
+        sender.offer(hit(0));
+        assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+        sender.stop();
+
+        Mockito.verify(statsClient, Mockito.times(1)).saveHits(Mockito.anyList());
+        assertThat(sentUris).containsExactly("/events/0");
+        assertThat(sender.size()).isZero();
+    }
+
+    private HitSender sender(HitOverflowPolicy policy, int capacity) {
+        HitSenderProperties properties = new HitSenderProperties();
+        properties.setQueueCapacity(capacity);
+        properties.setMaxBatchSize(10);
+        properties.setFlushInterval(Duration.ofMillis(10));
+        properties.setOverflowPolicy(policy);
+        properties.setMaxAttempts(3);
+        return new HitSender(statsClient, properties, meterRegistry);
+    }
+
+    private void acceptAll() {
+        Mockito.when(statsClient.saveHits(Mockito.anyList()))
+                .thenAnswer(invocation -> accept(invocation.getArgument(0), Integer.MAX_VALUE));
+    }
+
+    private ResponseEntity<HitBatchResult> accept(List<StatDto> hits, int max) {
+        int accepted = Math.min(hits.size(), max);
+        hits.subList(0, accepted).forEach(hit -> sentUris.add(hit.getUri()));
+        HttpStatus status = accepted < hits.size() ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.CREATED;
+        return ResponseEntity.status(status).body(new HitBatchResult(hits.size(), accepted));
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    private double dropped(String reason) {
+        return meterRegistry.get("stats.hits.dropped").tag("reason", reason).counter().count();
+    }
+
+    private static StatDto hit(int i) {
+        return new StatDto("ewm-main", "/events/" + i, "10.0.0." + i, LocalDateTime.now());
+    }
+}
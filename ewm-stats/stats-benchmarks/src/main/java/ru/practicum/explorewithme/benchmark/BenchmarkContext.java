@@ -0,0 +1,38 @@
+package ru.practicum.explorewithme.benchmark;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.explorewithme.StatsApp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts stats-server without its web layer on an embedded H2 database, quiet enough not to drown the JMH output.
+ */
+final class BenchmarkContext {
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(String url, String... properties) {
+        // passed as arguments, as default properties would lose to application.yml
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + url,
+                "--spring.datasource.driverClassName=org.h2.Driver",
+                "--spring.datasource.username=stats",
+                "--spring.datasource.password=stats",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.jdbc.time_zone=UTC",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework.jdbc.datasource.init.ScriptUtils=WARN"));
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(StatsApp.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .run(args.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,61 @@
+package ru.practicum.explorewithme.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.explorewithme.service.StatsService;
+import ru.practicum.statsdto.StatDto;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code POST /hit} without HTTP: {@link StatsService#createStat} with the server's default settings, so the
+ * rollup, sketch and hot index updates are part of the measured time, on an in-memory H2 database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CreateStatBenchmark {
+    private static final int HITS = 4_096;
+
+    private ConfigurableApplicationContext context;
+    private StatsService statsService;
+    private StatDto[] hits;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("jdbc:h2:mem:create-stat");
+        statsService = context.getBean(StatsService.class);
+        hits = new StatDto[HITS];
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        for (int i = 0; i < HITS; i++) {
+            hits[i] = new StatDto("ewm-main-service", "/events/" + (i % 200),
+                    "10." + (i % 7) + "." + (i % 250) + "." + (i % 199), now.minusSeconds(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public StatDto createStat() {
+        return statsService.createStat(hits[next++ & (HITS - 1)]);
+    }
+}
@@ -0,0 +1,91 @@
+package ru.practicum.explorewithme.benchmark;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.explorewithme.entity.Stat;
+import ru.practicum.explorewithme.mapper.StatMapper;
+import ru.practicum.statsdto.StatDto;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What every incoming hit goes through before it is written: bean validation of the {@link StatDto}, as the
+ * controller does it, and {@link StatMapper#toEntity}, which resolves the app and uri ids and encodes the IP.
+ * The apps and uris are already known, as they are for nearly every hit of a running server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HitMappingBenchmark {
+    private static final int HITS = 1_024;
+
+    private ConfigurableApplicationContext context;
+    private Validator validator;
+    private StatMapper mapper;
+    private StatDto[] hits;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("jdbc:h2:mem:mapping",
+                "stats-server.hot-index.enabled=false",
+                "stats-server.result-cache.enabled=false");
+        validator = context.getBean(Validator.class);
+        mapper = context.getBean(StatMapper.class);
+        hits = new StatDto[HITS];
+        LocalDateTime now = LocalDateTime.of(2025, 3, 1, 0, 0);
+        for (int i = 0; i < HITS; i++) {
+            String ip = i % 10 == 0
+                    ? "2001:db8::" + Integer.toHexString(i)
+                    : "10." + (i % 7) + "." + (i % 250) + "." + (i % 199);
+            hits[i] = new StatDto("ewm-main-service", "/events/" + (i % 200), ip, now.plusSeconds(i));
+            mapper.toEntity(hits[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<StatDto>> validate() {
+        return validator.validate(nextHit());
+    }
+
+    @Benchmark
+    public Stat toEntity() {
+        return mapper.toEntity(nextHit());
+    }
+
+    @Benchmark
+    public Stat validateAndMap() {
+        StatDto hit = nextHit();
+        if (!validator.validate(hit).isEmpty()) {
+            throw new IllegalStateException("Invalid benchmark hit " + hit.getIp());
+        }
+        return mapper.toEntity(hit);
+    }
+
+    private StatDto nextHit() {
+        return hits[next++ & (HITS - 1)];
+    }
+}
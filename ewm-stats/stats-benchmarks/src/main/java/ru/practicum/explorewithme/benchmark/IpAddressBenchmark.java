@@ -0,0 +1,68 @@
+package ru.practicum.explorewithme.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.explorewithme.mapper.IpAddressCodec;
+import ru.practicum.statsdto.Constants;
+import ru.practicum.statsdto.IpAddressFormat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Validating and then converting a hit's IP: the {@link Constants#IPV4_OR_IPV6} regex (compiled once, as the
+ * validator does) against {@link IpAddressFormat}, over addresses one in ten of which is IPv6.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IpAddressBenchmark {
+    private static final int IPS = 1_024;
+    private static final Pattern REGEX = Pattern.compile(Constants.IPV4_OR_IPV6);
+
+    private final String[] ips = new String[IPS];
+    private int next;
+
+    public IpAddressBenchmark() {
+        for (int i = 0; i < IPS; i++) {
+            ips[i] = i % 10 == 0
+                    ? "2001:db8::" + Integer.toHexString(i)
+                    : "10." + (i % 7) + "." + (i % 250) + "." + (i % 199);
+        }
+    }
+
+    @Benchmark
+    public boolean regexValidate() {
+        return REGEX.matcher(nextIp()).matches();
+    }
+
+    @Benchmark
+    public boolean parserValidate() {
+        return IpAddressFormat.isValid(nextIp());
+    }
+
+    @Benchmark
+    public byte[] regexAndCodecToBytes() {
+        String ip = nextIp();
+        return REGEX.matcher(ip).matches() ? IpAddressCodec.toBytes(ip) : null;
+    }
+
+    @Benchmark
+    public byte[] parserToBytes() {
+        return IpAddressFormat.toBytes(nextIp());
+    }
+
+    private String nextIp() {
+        return ips[next++ & (IPS - 1)];
+    }
+}
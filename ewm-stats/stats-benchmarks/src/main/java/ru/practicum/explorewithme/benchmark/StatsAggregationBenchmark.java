@@ -0,0 +1,155 @@
+package ru.practicum.explorewithme.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.explorewithme.service.StatsQuery;
+import ru.practicum.explorewithme.service.StatsService;
+import ru.practicum.statsdto.ViewStats;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * {@code GET /stats} without HTTP over a year of seeded raw hits: 1,000 uris of two apps, one in ten hits from
+ * the second app, and a visitor pool of a tenth of the row count. The rollup, sketch, hot index and result
+ * cache are off, so every call aggregates endpoint_hits; the query asks for ten uris of one app over the
+ * whole year, i.e. about 1% of the rows.
+ * <p>
+ * Each row count gets its own H2 file database under {@code target/benchmark-data} of the working directory,
+ * seeded on first use and reused while it still holds that many hits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StatsAggregationBenchmark {
+    private static final String APP = "ewm-main";
+    private static final String OTHER_APP = "other-app";
+    private static final int URIS = 1_000;
+    private static final int SEED_CHUNK = 1_000_000;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime END = START.plusYears(1);
+    private static final long SECONDS = 365L * 24 * 60 * 60;
+    private static final List<String> QUERY_URIS = IntStream.range(0, 10)
+            .mapToObj(i -> "/events/" + (i * URIS / 10))
+            .toList();
+
+    @Param({"1000000", "10000000", "50000000"})
+    private long rows;
+
+    private ConfigurableApplicationContext context;
+    private StatsService statsService;
+    private StatsQuery query;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String url = "jdbc:h2:file:" + Path.of("target", "benchmark-data", "stats-" + rows).toAbsolutePath();
+        context = start(url);
+        if (seed(context.getBean(JdbcTemplate.class))) {
+            // seeding leaves the file several times larger than its data, which would skew the timings
+            context.close();
+            compact(url);
+            context = start(url);
+        }
+        statsService = context.getBean(StatsService.class);
+        query = StatsQuery.builder()
+                .start(START)
+                .end(END)
+                .uris(QUERY_URIS)
+                .app(APP)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ViewStats> nonUnique() {
+        return statsService.getStats(query);
+    }
+
+    @Benchmark
+    public List<ViewStats> unique() {
+        return statsService.getStats(query.toBuilder().unique(true).build());
+    }
+
+    private static ConfigurableApplicationContext start(String url) {
+        return BenchmarkContext.start(url,
+                "stats-server.rollup.enabled=false",
+                "stats-server.sketch.enabled=false",
+                "stats-server.hot-index.enabled=false",
+                "stats-server.result-cache.enabled=false");
+    }
+
+    /**
+     * @return whether the database had to be seeded
+     */
+    private boolean seed(JdbcTemplate jdbcTemplate) {
+        Long seeded = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM endpoint_hits", Long.class);
+        if (seeded != null && seeded == rows) {
+            return false;
+        }
+        jdbcTemplate.update("TRUNCATE TABLE endpoint_hits");
+        jdbcTemplate.update("TRUNCATE TABLE compacted_hits");
+        for (String app : List.of(APP, OTHER_APP)) {
+            jdbcTemplate.update("INSERT INTO stat_apps (name) SELECT ? WHERE NOT EXISTS " +
+                    "(SELECT 1 FROM stat_apps WHERE name = ?)", app, app);
+        }
+        jdbcTemplate.update("INSERT INTO stat_uris (uri) SELECT '/events/' || X FROM SYSTEM_RANGE(0, ?) " +
+                "WHERE '/events/' || X NOT IN (SELECT uri FROM stat_uris)", URIS - 1);
+        Integer appId = appId(jdbcTemplate, APP);
+        Integer otherAppId = appId(jdbcTemplate, OTHER_APP);
+        long visitors = Math.max(1, rows / 10);
+        for (long from = 0; from < rows; from += SEED_CHUNK) {
+            // 10.x.y.z addresses; timestamps spread evenly over the year
+            jdbcTemplate.update("INSERT INTO endpoint_hits (app_id, uri_id, ip, timestamp) " +
+                            "SELECT CASE WHEN MOD(r.X, 10) = 9 THEN CAST(? AS INTEGER) ELSE CAST(? AS INTEGER) END, " +
+                            "u.id, CAST(CAST(167772160 + MOD(r.X * 7919, CAST(? AS BIGINT)) AS INTEGER) " +
+                            "AS VARBINARY(4)), " +
+                            "DATEADD(SECOND, r.X * CAST(? AS BIGINT) / CAST(? AS BIGINT), CAST(? AS TIMESTAMP)) " +
+                            "FROM SYSTEM_RANGE(CAST(? AS BIGINT), CAST(? AS BIGINT)) r " +
+                            "JOIN stat_uris u ON u.uri = '/events/' || MOD(r.X, CAST(? AS INTEGER))",
+                    otherAppId, appId, visitors, SECONDS, rows, START,
+                    from, Math.min(rows, from + SEED_CHUNK) - 1, URIS);
+        }
+        jdbcTemplate.execute("ANALYZE");
+        return true;
+    }
+
+    private static void compact(String url) {
+        try (Connection connection = DriverManager.getConnection(url, "stats", "stats");
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN COMPACT");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not compact " + url, e);
+        }
+    }
+
+    private static Integer appId(JdbcTemplate jdbcTemplate, String app) {
+        return jdbcTemplate.queryForObject("SELECT id FROM stat_apps WHERE name = ?", Integer.class, app);
+    }
+}
@@ -0,0 +1,31 @@
+package ru.practicum.explorewithme.benchmark;
+
+import org.openjdk.jmh.Main;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the stats-server benchmarks with the usual JMH command line, writing results as JSON to
+ * {@code jmh-result.json} unless {@code -rf} says otherwise, so two commits can be compared side by side:
+ * <pre>
+ * mvn -Pbenchmarks -pl ewm-stats/stats-benchmarks -am package -DskipTests
+ * java -jar ewm-stats/stats-benchmarks/target/stats-benchmarks.jar -rff jmh-$(git rev-parse --short HEAD).json
+ * java -jar ewm-stats/stats-benchmarks/target/stats-benchmarks.jar StatsAggregationBenchmark -p rows=1000000
+ * </pre>
+ * {@link StatsAggregationBenchmark} seeds its database on first use, roughly a minute and a half per million
+ * rows; the data is kept under {@code target/benchmark-data} and reused by later runs.
+ */
+public class StatsBenchmarks {
+    private static final String RESULT_FORMAT = "-rf";
+
+    public static void main(String[] args) throws IOException {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains(RESULT_FORMAT)) {
+            options.addAll(0, List.of(RESULT_FORMAT, "json"));
+        }
+        Main.main(options.toArray(String[]::new));
+    }
+}
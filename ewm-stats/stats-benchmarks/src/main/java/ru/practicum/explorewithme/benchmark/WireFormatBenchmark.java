@@ -0,0 +1,84 @@
+package ru.practicum.explorewithme.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.statsdto.StatDto;
+import ru.practicum.statsdto.StatsWireFormat;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding a 500-hit batch, JSON against Smile; the encoded size per hit is reported next to the
+ * times as the {@code bytesPerHit} counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+    private static final int BATCH = 500;
+    private static final TypeReference<List<StatDto>> HITS = new TypeReference<>() {
+    };
+
+    @Param({"json", "smile"})
+    private String format;
+
+    private ObjectMapper mapper;
+    private List<StatDto> batch;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mapper = "smile".equals(format)
+                ? StatsWireFormat.smileMapper()
+                : new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        batch = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.of(2025, 3, 1, 0, 0);
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(new StatDto("ewm-main-service", "/events/" + (i % 200), "10.0." + (i % 7) + "." + (i % 250),
+                    now.plusSeconds(i)));
+        }
+        encoded = mapper.writeValueAsBytes(batch);
+    }
+
+    @Benchmark
+    public byte[] encode(Size size) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(batch);
+        size.bytesPerHit = (double) bytes.length / BATCH;
+        return bytes;
+    }
+
+    @Benchmark
+    public List<StatDto> decode() throws IOException {
+        return mapper.readValue(encoded, HITS);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size {
+        public double bytesPerHit;
+    }
+}
@@ -0,0 +1,234 @@
+package ru.practicum.explorewithme.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import ru.practicum.statsdto.StatsRequest;
+import ru.practicum.statsdto.StatsWireFormat;
+import ru.practicum.statsdto.ViewStats;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link AsyncStatsServiceClient} on the non-blocking API of the JDK {@link HttpClient}: no thread waits for
+ * stats-server, the futures complete on the client's executor.
+ * <p>
+ * Sends the same requests as {@link StatsClient}, see {@link StatsQueries} and {@link StatsContentNegotiation},
+ * asking for gzip-compressed responses. With a connection limit each request first takes a slot from it, which
+ * caps the requests in flight of both clients together.
+ */
+public class AsyncStatsClient implements AsyncStatsServiceClient {
+    private static final TypeReference<List<ViewStats>> VIEW_STATS = new TypeReference<>() {
+    };
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final Duration readTimeout;
+    private final int postUrisThreshold;
+    private final StatsContentNegotiation negotiation;
+    private final ViewsCache viewsCache;
+    private final StatsCircuitBreaker circuitBreaker;
+    private final ConnectionLimitInterceptor connectionLimit;
+    private final ObjectMapper jsonMapper = StatsWireFormat.jsonMapper();
+    private final ObjectMapper smileMapper = StatsWireFormat.smileMapper();
+
+    public AsyncStatsClient(HttpClient httpClient, String baseUrl, Duration readTimeout) {
+        this(httpClient, baseUrl, readTimeout, StatsClient.DEFAULT_POST_URIS_THRESHOLD, false, null, null);
+    }
+
+    /**
+     * @param readTimeout    deadline for each response
+     * @param viewsCache     answers {@code getViewCounts} from recently fetched counts; null to always ask
+     * @param circuitBreaker fails calls fast while stats-server is unhealthy; null to always call it
+     */
+    public AsyncStatsClient(HttpClient httpClient, String baseUrl, Duration readTimeout, int postUrisThreshold,
+                            boolean smile, ViewsCache viewsCache, StatsCircuitBreaker circuitBreaker) {
+        this(httpClient, baseUrl, readTimeout, postUrisThreshold, smile, viewsCache, circuitBreaker, null);
+    }
+
+    /**
+     * @param connectionLimit the limit the rest template of {@link StatsClient} enforces; null for no limit
+     */
+    public AsyncStatsClient(HttpClient httpClient, String baseUrl, Duration readTimeout, int postUrisThreshold,
+                            boolean smile, ViewsCache viewsCache, StatsCircuitBreaker circuitBreaker,
+                            ConnectionLimitInterceptor connectionLimit) {
+        this.httpClient = httpClient;
+        this.baseUrl = baseUrl;
+        this.readTimeout = readTimeout;
+        this.postUrisThreshold = postUrisThreshold;
+        this.negotiation = new StatsContentNegotiation(smile);
+        this.viewsCache = viewsCache;
+        this.circuitBreaker = circuitBreaker;
+        this.connectionLimit = connectionLimit;
+    }
+
+    @Override
+    public CompletableFuture<List<ViewStats>> getStats(LocalDateTime start,
+                                                       LocalDateTime end,
+                                                       List<String> uris,
+                                                       boolean unique,
+                                                       String app) {
+        if (StatsQueries.byPost(uris, postUrisThreshold)) {
+            StatsRequest query = new StatsRequest(start, end, uris, unique, app);
+            return guarded(() -> post(query));
+        }
+        HttpRequest request = request(StatsQueries.uri(baseUrl, StatsQueries.STATS_PATH,
+                StatsQueries.statsParams(start, end, uris, unique, app))).GET().build();
+        return guarded(() -> send(request));
+    }
+
+    /**
+     * Unique views of the uris, counting only hits recorded by {@code app}. When stats-server fails or its circuit
+     * is open the future completes with the last known views, or none without a views cache, marked as degraded.
+     */
+    public CompletableFuture<ViewCounts> getViewCounts(String app, List<String> uris) {
+        if (uris.isEmpty()) {
+            return CompletableFuture.completedFuture(new ViewCounts(Map.of(), false));
+        }
+        BiFunction<String, List<String>, CompletableFuture<Map<String, Long>>> fetch = (viewsApp, missing) ->
+                getStats(StatsQueries.EARLIEST, LocalDateTime.now(), missing, true, viewsApp)
+                        .thenApply(StatsQueries::sumByUri);
+        CompletableFuture<Map<String, Long>> views = viewsCache == null
+                ? fetch.apply(app, uris)
+                : viewsCache.getViewsAsync(app, uris, fetch);
+        return views.handle((result, error) -> {
+            if (error == null) {
+                return new ViewCounts(result, false);
+            }
+            if (unwrap(error) instanceof RestClientException) {
+                return new ViewCounts(viewsCache == null ? Map.of() : viewsCache.getLastKnown(app, uris), true);
+            }
+            throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+        });
+    }
+
+    private <T> CompletableFuture<T> guarded(Supplier<CompletableFuture<T>> call) {
+        return circuitBreaker == null ? call.get() : circuitBreaker.executeAsync(call);
+    }
+
+    private CompletableFuture<List<ViewStats>> post(StatsRequest query) {
+        boolean sentSmile = negotiation.smileBodies();
+        HttpRequest request;
+        try {
+            request = request(StatsQueries.uri(baseUrl, StatsQueries.QUERY_PATH, null))
+                    .header(HttpHeaders.CONTENT_TYPE, negotiation.contentType(sentSmile).toString())
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(
+                            (sentSmile ? smileMapper : jsonMapper).writeValueAsBytes(query)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(new RestClientException("Could not write stats request", e));
+        }
+        return send(request).exceptionallyCompose(error -> {
+            Throwable cause = unwrap(error);
+            boolean refused = cause instanceof HttpStatusCodeException e
+                    && negotiation.fallBackToJson(sentSmile, e.getStatusCode());
+            return refused ? post(query) : CompletableFuture.failedFuture(cause);
+        });
+    }
+
+    private HttpRequest.Builder request(URI uri) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(readTimeout)
+                .header(HttpHeaders.ACCEPT, MediaType.toString(negotiation.accept()))
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip");
+    }
+
+    private CompletableFuture<List<ViewStats>> send(HttpRequest request) {
+        if (connectionLimit == null) {
+            return exchange(request);
+        }
+        CompletableFuture<List<ViewStats>> result = new CompletableFuture<>();
+        connectionLimit.acquireAsync().whenComplete((ignored, busy) -> {
+            if (busy != null) {
+                result.completeExceptionally(ioError(request, busy));
+                return;
+            }
+            if (result.isDone()) {
+                connectionLimit.release();
+                return;
+            }
+            exchange(request).whenComplete((stats, error) -> {
+                // the whole body has been read by now, so the connection is free again
+                connectionLimit.release();
+                if (error != null) {
+                    result.completeExceptionally(unwrap(error));
+                } else {
+                    result.complete(stats);
+                }
+            });
+        });
+        return result;
+    }
+
+    private CompletableFuture<List<ViewStats>> exchange(HttpRequest request) {
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        throw ioError(request, unwrap(error));
+                    }
+                    return read(response);
+                });
+    }
+
+    private static ResourceAccessException ioError(HttpRequest request, Throwable cause) {
+        return new ResourceAccessException("I/O error on " + request.method() + " request for \""
+                + request.uri() + "\": " + cause.getMessage(),
+                cause instanceof IOException io ? io : new IOException(cause));
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private List<ViewStats> read(HttpResponse<byte[]> response) {
+        HttpStatusCode status = HttpStatusCode.valueOf(response.statusCode());
+        if (status.isError()) {
+            HttpHeaders headers = new HttpHeaders();
+            response.headers().map().forEach(headers::addAll);
+            throw status.is5xxServerError()
+                    ? HttpServerErrorException.create(status, "", headers, response.body(), StandardCharsets.UTF_8)
+                    : HttpClientErrorException.create(status, "", headers, response.body(), StandardCharsets.UTF_8);
+        }
+        if (response.body().length == 0) {
+            return List.of();
+        }
+        boolean gzip = response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)
+                .filter("gzip"::equalsIgnoreCase)
+                .isPresent();
+        boolean smileBody = response.headers().firstValue(HttpHeaders.CONTENT_TYPE)
+                .map(MediaType::parseMediaType)
+                .filter(StatsContentNegotiation.SMILE::isCompatibleWith)
+                .isPresent();
+        try (InputStream body = gzip
+                ? new GZIPInputStream(new ByteArrayInputStream(response.body()))
+                : new ByteArrayInputStream(response.body())) {
+            return (smileBody ? smileMapper : jsonMapper).readValue(body, VIEW_STATS);
+        } catch (IOException e) {
+            throw new RestClientException("Could not read stats response", e);
+        }
+    }
+}
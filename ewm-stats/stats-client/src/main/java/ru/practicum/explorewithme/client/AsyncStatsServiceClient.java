@@ -0,0 +1,21 @@
+package ru.practicum.explorewithme.client;
+
+import ru.practicum.statsdto.ViewStats;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stats queries that return at once instead of holding the calling thread while stats-server answers.
+ * <p>
+ * The futures fail with a {@link org.springframework.web.client.RestClientException} where
+ * {@link StatsServiceClient} would throw one; error statuses fail them too.
+ */
+public interface AsyncStatsServiceClient {
+    /**
+     * @param app only hits recorded by this app; every app when null
+     */
+    CompletableFuture<List<ViewStats>> getStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                                boolean unique, String app);
+}
@@ -5,58 +5,119 @@ import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
+import ru.practicum.statsdto.StatsWireFormat;
+
+import java.net.URI;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class BaseClient {
     protected final RestTemplate rest;
     private final String baseUrl;
+    private final StatsContentNegotiation negotiation;
+    private final StatsCircuitBreaker circuitBreaker;
 
     public BaseClient(RestTemplate restTemplate, String baseUrl) {
+        this(restTemplate, baseUrl, false);
+    }
+
+    /**
+     * @param smile send request bodies as Smile and ask for Smile responses, falling back to JSON bodies for good
+     *              after the first {@code 415 Unsupported Media Type}; the rest template needs a Smile converter
+     *              built from {@link StatsWireFormat#smileMapper()}
+     */
+    public BaseClient(RestTemplate restTemplate, String baseUrl, boolean smile) {
+        this(restTemplate, baseUrl, smile, null);
+    }
+
+    /**
+     * @param circuitBreaker fails calls fast while stats-server is unhealthy; null to always call it
+     */
+    public BaseClient(RestTemplate restTemplate, String baseUrl, boolean smile,
+                      @Nullable StatsCircuitBreaker circuitBreaker) {
         this.rest = restTemplate;
         this.baseUrl = baseUrl;
+        this.negotiation = new StatsContentNegotiation(smile);
+        this.circuitBreaker = circuitBreaker;
     }
 
-    private static HttpHeaders defaultHeaders() {
+    private <R> ResponseEntity<R> guarded(Supplier<ResponseEntity<R>> call) {
+        return circuitBreaker == null ? call.get() : circuitBreaker.execute(call);
+    }
+
+    private HttpHeaders headers(boolean smileBody) {
         HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setContentType(negotiation.contentType(smileBody));
+        headers.setAccept(negotiation.accept());
         return headers;
     }
 
     protected <T> ResponseEntity<Object> post(String path, T body) {
-        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders());
         try {
-            return rest.exchange(baseUrl + path, HttpMethod.POST, requestEntity, Object.class);
+            return guarded(() -> withSmileFallback(body, entity ->
+                    rest.exchange(baseUrl + path, HttpMethod.POST, entity, Object.class)));
         } catch (HttpStatusCodeException e) {
             return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsByteArray());
         }
     }
 
+    /**
+     * A {@code 429 Too Many Requests} keeps its body when it reads as the response type, as stats-server answers
+     * with what it took of the request.
+     */
+    protected <T, R> ResponseEntity<R> post(String path, T body, ParameterizedTypeReference<R> responseType) {
+        try {
+            return guarded(() -> withSmileFallback(body, entity ->
+                    rest.exchange(baseUrl + path, HttpMethod.POST, entity, responseType)));
+        } catch (HttpStatusCodeException statusCodeException) {
+            R errorBody = statusCodeException.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS
+                    ? readBody(statusCodeException, responseType)
+                    : null;
+            return ResponseEntity.status(statusCodeException.getStatusCode()).body(errorBody);
+        }
+    }
+
+    private static <R> R readBody(HttpStatusCodeException e, ParameterizedTypeReference<R> responseType) {
+        try {
+            return e.getResponseBodyAs(responseType);
+        } catch (RuntimeException unreadable) {
+            return null;
+        }
+    }
+
+    private <T, R> ResponseEntity<R> withSmileFallback(T body, Function<HttpEntity<T>, ResponseEntity<R>> exchange) {
+        boolean sentSmile = negotiation.smileBodies();
+        try {
+            return exchange.apply(new HttpEntity<>(body, headers(sentSmile)));
+        } catch (HttpStatusCodeException e) {
+            if (!negotiation.fallBackToJson(sentSmile, e.getStatusCode())) {
+                throw e;
+            }
+            return exchange.apply(new HttpEntity<>(body, headers(false)));
+        }
+    }
+
     protected <T> ResponseEntity<T> get(
             String path,
             @Nullable MultiValueMap<String, String> parameters,
             ParameterizedTypeReference<T> responseType
     ) {
-        HttpEntity<Void> requestEntity = new HttpEntity<>(defaultHeaders());
+        HttpEntity<Void> requestEntity = new HttpEntity<>(headers(false));
 
         try {
-            String url = parameters != null
-                    ? UriComponentsBuilder.fromHttpUrl(baseUrl + path)
-                    .queryParams(parameters)
-                    .build()
-                    .toUriString()
-                    : baseUrl + path;
+            URI url = StatsQueries.uri(baseUrl, path, parameters);
 
-            return rest.exchange(
+            return guarded(() -> rest.exchange(
                     url,
                     HttpMethod.GET,
                     requestEntity,
                     responseType
-            );
+            ));
         } catch (HttpStatusCodeException statusCodeException) {
             return ResponseEntity.status(statusCodeException.getStatusCode()).body(null);
         }
@@ -1,22 +1,121 @@
 package ru.practicum.explorewithme.client.Config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.client.RestTemplate;
+import ru.practicum.explorewithme.client.AsyncStatsClient;
+import ru.practicum.explorewithme.client.ConnectionLimitInterceptor;
+import ru.practicum.explorewithme.client.GzipResponseInterceptor;
+import ru.practicum.explorewithme.client.StatsCircuitBreaker;
 import ru.practicum.explorewithme.client.StatsClient;
+import ru.practicum.explorewithme.client.StatsTransport;
+import ru.practicum.explorewithme.client.ViewsCache;
+import ru.practicum.statsdto.StatsWireFormat;
+
+import java.net.http.HttpClient;
 
 @Configuration
 @EnableConfigurationProperties(StatsClientProperties.class)
 public class RestTemplateConfig {
 
+    /**
+     * Shared by the JDK transport of the rest template and {@link AsyncStatsClient}, so both use one connection
+     * pool; closed with the context.
+     */
+    @Bean(destroyMethod = "close")
+    public HttpClient statsHttpClient(StatsClientProperties props) {
+        return HttpClient.newBuilder()
+                .version(props.getHttpVersion())
+                .connectTimeout(props.getConnectTimeout())
+                .build();
+    }
+
+    /**
+     * Shared by both clients, so {@code max-connections} caps their requests in flight together.
+     */
+    @Bean
+    public ConnectionLimitInterceptor statsConnectionLimit(StatsClientProperties props) {
+        return new ConnectionLimitInterceptor(props.getMaxConnections(), props.getConnectTimeout());
+    }
+
+    @Bean
+    public RestTemplate restTemplate(StatsClientProperties props,
+                                     HttpClient statsHttpClient,
+                                     ConnectionLimitInterceptor statsConnectionLimit) {
+        RestTemplate restTemplate = new RestTemplate(requestFactory(props, statsHttpClient));
+        restTemplate.getInterceptors().add(statsConnectionLimit);
+        if (props.isCompression()) {
+            restTemplate.getInterceptors().add(new GzipResponseInterceptor());
+        }
+        restTemplate.getMessageConverters().replaceAll(converter ->
+                converter instanceof MappingJackson2HttpMessageConverter
+                        ? new MappingJackson2HttpMessageConverter(StatsWireFormat.jsonMapper())
+                        : converter);
+        restTemplate.getMessageConverters().removeIf(MappingJackson2SmileHttpMessageConverter.class::isInstance);
+        restTemplate.getMessageConverters().add(
+                new MappingJackson2SmileHttpMessageConverter(StatsWireFormat.smileMapper()));
+        return restTemplate;
+    }
+
+    private static ClientHttpRequestFactory requestFactory(StatsClientProperties props, HttpClient httpClient) {
+        if (props.getTransport() == StatsTransport.SIMPLE) {
+            SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+            factory.setConnectTimeout(props.getConnectTimeout());
+            factory.setReadTimeout(props.getReadTimeout());
+            return factory;
+        }
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(props.getReadTimeout());
+        return factory;
+    }
+
+    @Bean
+    public StatsClient statsClient(RestTemplate restTemplate,
+                                   StatsClientProperties props,
+                                   ObjectProvider<ViewsCache> viewsCache,
+                                   ObjectProvider<StatsCircuitBreaker> circuitBreaker) {
+        return new StatsClient(restTemplate, props.getUrl(), props.getPostUrisThreshold(), props.isSmile(),
+                viewsCache.getIfAvailable(), circuitBreaker.getIfAvailable());
+    }
+
+    @Bean
+    public AsyncStatsClient asyncStatsClient(StatsClientProperties props,
+                                             HttpClient statsHttpClient,
+                                             ConnectionLimitInterceptor statsConnectionLimit,
+                                             ObjectProvider<ViewsCache> viewsCache,
+                                             ObjectProvider<StatsCircuitBreaker> circuitBreaker) {
+        return new AsyncStatsClient(statsHttpClient, props.getUrl(), props.getReadTimeout(),
+                props.getPostUrisThreshold(), props.isSmile(), viewsCache.getIfAvailable(),
+                circuitBreaker.getIfAvailable(), statsConnectionLimit);
+    }
+
+    /**
+     * Shared by both clients, so a count fetched by one is not fetched again by the other.
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    @ConditionalOnProperty(prefix = "stats-server.views-cache", name = "enabled", matchIfMissing = true)
+    public ViewsCache statsViewsCache(StatsClientProperties props, ObjectProvider<MeterRegistry> meterRegistry) {
+        StatsClientProperties.ViewsCache settings = props.getViewsCache();
+        return new ViewsCache(settings.getTtl(), settings.getStaleTtl(), settings.getMaxSize(),
+                meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
     }
 
     @Bean
-    public StatsClient statsClient(RestTemplate restTemplate, StatsClientProperties props) {
-        return new StatsClient(restTemplate, props.getUrl());
+    @ConditionalOnProperty(prefix = "stats-server.circuit-breaker", name = "enabled", matchIfMissing = true)
+    public StatsCircuitBreaker statsCircuitBreaker(StatsClientProperties props,
+                                                   ObjectProvider<MeterRegistry> meterRegistry) {
+        StatsClientProperties.CircuitBreaker settings = props.getCircuitBreaker();
+        return new StatsCircuitBreaker(settings.getFailureThreshold(), settings.getOpenDuration(),
+                meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
     }
 }
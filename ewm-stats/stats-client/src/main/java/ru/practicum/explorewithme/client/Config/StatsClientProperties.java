@@ -3,13 +3,81 @@ package ru.practicum.explorewithme.client.Config;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import ru.practicum.explorewithme.client.StatsClient;
+import ru.practicum.explorewithme.client.StatsTransport;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
 
 @Getter
 @Setter
 @ConfigurationProperties(prefix = "stats-server")
 public class StatsClientProperties {
     private String url;
+    /**
+     * Stats requests with more uris than this are sent as {@code POST /stats/query}.
+     */
+    private int postUrisThreshold = StatsClient.DEFAULT_POST_URIS_THRESHOLD;
+    /**
+     * Prefer the binary Smile encoding; JSON is still used when the server does not accept Smile.
+     */
+    private boolean smile = true;
+    private StatsTransport transport = StatsTransport.JDK;
+    /**
+     * HTTP_2 upgrades plain-http connections only when stats-server accepts h2c; the JDK transport only.
+     */
+    private HttpClient.Version httpVersion = HttpClient.Version.HTTP_1_1;
+    /**
+     * Requests in flight at most; a caller waits up to the connect timeout for one of them to finish.
+     */
+    private int maxConnections = 50;
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    /**
+     * Deadline for each call's response, after which it fails instead of holding the calling thread.
+     */
+    private Duration readTimeout = Duration.ofSeconds(5);
+    /**
+     * Ask for gzip-compressed responses.
+     */
+    private boolean compression = true;
+    private final ViewsCache viewsCache = new ViewsCache();
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker();
 
     public StatsClientProperties() {
     }
+
+    @Getter
+    @Setter
+    public static class ViewsCache {
+        /**
+         * Serve view counts fetched less than {@code ttl} ago instead of asking stats-server again.
+         */
+        private boolean enabled = true;
+        private Duration ttl = Duration.ofSeconds(5);
+        /**
+         * How long fetched counts are kept to answer with while stats-server is unavailable.
+         */
+        private Duration staleTtl = Duration.ofHours(1);
+        /**
+         * (app, uri) counts kept at most.
+         */
+        private long maxSize = 10_000;
+    }
+
+    @Getter
+    @Setter
+    public static class CircuitBreaker {
+        /**
+         * Stop calling stats-server while it keeps failing, answering views from the views cache meanwhile.
+         */
+        private boolean enabled = true;
+        /**
+         * Failures in a row, i.e. I/O errors, timeouts and 5xx answers, that open the circuit.
+         */
+        private int failureThreshold = 5;
+        /**
+         * How long an open circuit rejects calls before letting one through to probe stats-server.
+         */
+        private Duration openDuration = Duration.ofSeconds(10);
+    }
 }
@@ -0,0 +1,109 @@
+package ru.practicum.explorewithme.client;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps the requests in flight, and so the connections open, at {@code maxConnections}: the JDK client opens a
+ * new connection whenever all pooled ones are busy. A caller waits at most {@code maxWait} for a free slot and
+ * then fails like a connect timeout, so a slow stats-server cannot hold more callers than that.
+ * <p>
+ * One instance is shared by the rest template and {@link AsyncStatsClient}, which take slots from the same cap.
+ */
+public class ConnectionLimitInterceptor implements ClientHttpRequestInterceptor {
+    private final Semaphore permits;
+    private final int maxConnections;
+    private final long maxWaitNanos;
+
+    public ConnectionLimitInterceptor(int maxConnections, Duration maxWait) {
+        this.permits = new Semaphore(maxConnections, true);
+        this.maxConnections = maxConnections;
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        acquire();
+        try {
+            return new ReleasingResponse(execution.execute(request, body));
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Takes a slot for a request that does not go through the rest template; it has to be given back with
+     * {@link #release()} once the response has been read. Only while all slots are busy the wait is done on a
+     * virtual thread, so the caller is never held.
+     *
+     * @return completes when the slot is taken, or fails with an {@link IOException} after {@code maxWait}
+     */
+    public CompletableFuture<Void> acquireAsync() {
+        if (permits.tryAcquire()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> acquired = new CompletableFuture<>();
+        Thread.ofVirtual().name("stats-connection-wait").start(() -> {
+            try {
+                acquire();
+                acquired.complete(null);
+            } catch (IOException e) {
+                acquired.completeExceptionally(e);
+            }
+        });
+        return acquired;
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int available() {
+        return permits.availablePermits();
+    }
+
+    private void acquire() throws IOException {
+        try {
+            if (!permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                throw new IOException("All " + maxConnections + " connections to stats-server are busy");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a connection to stats-server");
+        }
+    }
+
+    /**
+     * Holds the slot until the body has been read and the response closed, as the connection is busy until then.
+     */
+    private class ReleasingResponse extends ForwardingClientHttpResponse {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleasingResponse(ClientHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        }
+    }
+}
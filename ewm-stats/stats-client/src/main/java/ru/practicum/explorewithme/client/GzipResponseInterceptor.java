@@ -0,0 +1,67 @@
+package ru.practicum.explorewithme.client;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Asks for gzip-compressed responses and inflates them, which neither the JDK client nor
+ * {@link java.net.HttpURLConnection} does on its own.
+ */
+public class GzipResponseInterceptor implements ClientHttpRequestInterceptor {
+    private static final String GZIP = "gzip";
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, GZIP);
+        ClientHttpResponse response = execution.execute(request, body);
+        return GZIP.equalsIgnoreCase(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING))
+                ? new InflatingResponse(response)
+                : response;
+    }
+
+    private static class InflatingResponse extends ForwardingClientHttpResponse {
+        private HttpHeaders headers;
+        private InputStream body;
+
+        InflatingResponse(ClientHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            if (headers == null) {
+                HttpHeaders inflated = new HttpHeaders();
+                inflated.putAll(delegate.getHeaders());
+                inflated.remove(HttpHeaders.CONTENT_ENCODING);
+                inflated.remove(HttpHeaders.CONTENT_LENGTH);
+                headers = HttpHeaders.readOnlyHttpHeaders(inflated);
+            }
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                // an empty body has no gzip header to read
+                PushbackInputStream raw = new PushbackInputStream(delegate.getBody());
+                int first = raw.read();
+                if (first == -1) {
+                    body = InputStream.nullInputStream();
+                } else {
+                    raw.unread(first);
+                    body = new GZIPInputStream(raw);
+                }
+            }
+            return body;
+        }
+    }
+}
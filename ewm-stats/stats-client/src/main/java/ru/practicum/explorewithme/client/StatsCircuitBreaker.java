@@ -0,0 +1,138 @@
+package ru.practicum.explorewithme.client;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Stops calling stats-server after {@code failureThreshold} failures in a row, i.e. I/O errors, timeouts and
+ * 5xx answers; 4xx answers are the caller's fault and count as successes. While open every call fails at once
+ * with {@link StatsServerUnavailableException}. After {@code openDuration} the next call goes through as a probe
+ * and other calls keep failing until it returns: success closes the circuit, failure opens it again.
+ */
+public class StatsCircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(StatsCircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoTime;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    public StatsCircuitBreaker(int failureThreshold, Duration openDuration, MeterRegistry meterRegistry) {
+        this(failureThreshold, openDuration, meterRegistry, System::nanoTime);
+    }
+
+    StatsCircuitBreaker(int failureThreshold, Duration openDuration, MeterRegistry meterRegistry,
+                        LongSupplier nanoTime) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.nanoTime = nanoTime;
+        Gauge.builder("stats.client.circuit.state", state, current -> current.get().ordinal())
+                .description("Circuit breaker in front of stats-server: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    public <T> T execute(Supplier<T> call) {
+        if (!tryAcquire()) {
+            throw rejected();
+        }
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            onCompletion(e);
+            throw e;
+        }
+        onSuccess();
+        return result;
+    }
+
+    /**
+     * Like {@link #execute}, with the outcome taken from the returned future once it completes.
+     */
+    public <T> CompletableFuture<T> executeAsync(Supplier<CompletableFuture<T>> call) {
+        if (!tryAcquire()) {
+            return CompletableFuture.failedFuture(rejected());
+        }
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            onCompletion(e);
+            return CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, error) -> onCompletion(error));
+    }
+
+    private StatsServerUnavailableException rejected() {
+        return new StatsServerUnavailableException("stats-server circuit breaker is " + state.get());
+    }
+
+    private boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        // one caller moves an expired open circuit to half-open and becomes its probe
+        return current == State.OPEN
+                && nanoTime.getAsLong() - openedAt >= openNanos
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN);
+    }
+
+    private void onCompletion(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause()
+                : error;
+        if (cause instanceof ResourceAccessException || cause instanceof HttpServerErrorException) {
+            onFailure(cause);
+        } else {
+            onSuccess();
+        }
+    }
+
+    private void onSuccess() {
+        consecutiveFailures.set(0);
+        if (state.getAndSet(State.CLOSED) != State.CLOSED) {
+            logger.info("stats-server answered again, closing the circuit");
+        }
+    }
+
+    private void onFailure(Throwable e) {
+        int failures = consecutiveFailures.incrementAndGet();
+        State current = state.get();
+        if (current == State.HALF_OPEN || (current == State.CLOSED && failures >= failureThreshold)) {
+            openedAt = nanoTime.getAsLong();
+            if (state.compareAndSet(current, State.OPEN)) {
+                logger.warn("Opening the stats-server circuit for {} ms after {} failures, last: {}",
+                        Duration.ofNanos(openNanos).toMillis(), failures, e.getMessage());
+            }
+        }
+    }
+}
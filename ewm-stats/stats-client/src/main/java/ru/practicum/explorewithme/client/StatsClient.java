@@ -2,70 +2,148 @@ package ru.practicum.explorewithme.client;
 
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import ru.practicum.statsdto.HitBatchResult;
 import ru.practicum.statsdto.StatDto;
+import ru.practicum.statsdto.StatsRequest;
 import ru.practicum.statsdto.ViewStats;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-
-import static ru.practicum.statsdto.Constants.DATE_TIME;
+import java.util.function.BiFunction;
 
 public class StatsClient extends BaseClient implements StatsServiceClient {
+    public static final int DEFAULT_POST_URIS_THRESHOLD = 50;
 
-    private static final DateTimeFormatter DATE_TIME_FORMATTER =
-            DateTimeFormatter.ofPattern(DATE_TIME);
-    private static final LocalDateTime EARLIEST = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private final int postUrisThreshold;
+    private final ViewsCache viewsCache;
 
     public StatsClient(RestTemplate restTemplate, String baseUrl) {
-        super(restTemplate, baseUrl);
+        this(restTemplate, baseUrl, DEFAULT_POST_URIS_THRESHOLD);
+    }
+
+    /**
+     * @param postUrisThreshold above this many uris stats are requested with {@code POST /stats/query},
+     *                          keeping long uri lists out of the URL
+     */
+    public StatsClient(RestTemplate restTemplate, String baseUrl, int postUrisThreshold) {
+        this(restTemplate, baseUrl, postUrisThreshold, false);
+    }
+
+    /**
+     * @param smile prefer the Smile wire format, see {@link BaseClient#BaseClient(RestTemplate, String, boolean)}
+     */
+    public StatsClient(RestTemplate restTemplate, String baseUrl, int postUrisThreshold, boolean smile) {
+        this(restTemplate, baseUrl, postUrisThreshold, smile, null);
+    }
+
+    /**
+     * @param viewsCache answers {@code getViews} from recently fetched counts; null to always ask stats-server
+     */
+    public StatsClient(RestTemplate restTemplate, String baseUrl, int postUrisThreshold, boolean smile,
+                       ViewsCache viewsCache) {
+        this(restTemplate, baseUrl, postUrisThreshold, smile, viewsCache, null);
+    }
+
+    /**
+     * @param circuitBreaker fails calls fast while stats-server is unhealthy, see {@link #getViewCounts}; null to
+     *                       always call it
+     */
+    public StatsClient(RestTemplate restTemplate, String baseUrl, int postUrisThreshold, boolean smile,
+                       ViewsCache viewsCache, StatsCircuitBreaker circuitBreaker) {
+        super(restTemplate, baseUrl, smile, circuitBreaker);
+        this.postUrisThreshold = postUrisThreshold;
+        this.viewsCache = viewsCache;
     }
 
     public ResponseEntity<Object> saveHit(StatDto dto) {
         return post("/hit", dto);
     }
 
+    public ResponseEntity<HitBatchResult> saveHits(List<StatDto> dtos) {
+        return post("/hits/batch", dtos, new ParameterizedTypeReference<>() {
+        });
+    }
+
     public ResponseEntity<List<ViewStats>> getStats(
             LocalDateTime start,
             LocalDateTime end,
             List<String> uris,
             boolean unique
     ) {
-        MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
-        params.add("start", start.format(DATE_TIME_FORMATTER));
-        params.add("end", end.format(DATE_TIME_FORMATTER));
-        params.add("unique", String.valueOf(unique));
-        if (uris != null && !uris.isEmpty()) {
-            for (String uri : uris) {
-                params.add("uris", uri);
-            }
+        return getStats(start, end, uris, unique, null);
+    }
+
+    public ResponseEntity<List<ViewStats>> getStats(
+            LocalDateTime start,
+            LocalDateTime end,
+            List<String> uris,
+            boolean unique,
+            String app
+    ) {
+        if (StatsQueries.byPost(uris, postUrisThreshold)) {
+            return post(StatsQueries.QUERY_PATH, new StatsRequest(start, end, uris, unique, app),
+                    new ParameterizedTypeReference<>() {
+                    });
         }
-        return get("/stats", params, new ParameterizedTypeReference<>() {
-        });
+        return get(StatsQueries.STATS_PATH, StatsQueries.statsParams(start, end, uris, unique, app),
+                new ParameterizedTypeReference<>() {
+                });
     }
 
     public Map<String, Long> getViews(List<String> uris) {
-        ResponseEntity<List<ViewStats>> response = getStats(
-                EARLIEST,
+        return getViewCounts(null, uris, (ignored, missing) -> toViews(getStats(
+                StatsQueries.EARLIEST,
                 LocalDateTime.now(),
-                uris,
+                missing,
                 true
-        );
+        ))).views();
+    }
+
+    /**
+     * Unique views of the uris, counting only hits recorded by {@code app}.
+     */
+    public Map<String, Long> getViews(String app, List<String> uris) {
+        return getViewCounts(app, uris).views();
+    }
 
+    /**
+     * Like {@link #getViews(String, List)}, but when stats-server fails or its circuit is open this answers with
+     * the last known views, or none without a views cache, marked as degraded instead of throwing.
+     */
+    public ViewCounts getViewCounts(String app, List<String> uris) {
+        return getViewCounts(app, uris, (viewsApp, missing) -> toViews(getStats(
+                StatsQueries.EARLIEST,
+                LocalDateTime.now(),
+                missing,
+                true,
+                viewsApp
+        )));
+    }
+
+    private ViewCounts getViewCounts(String app,
+                                     List<String> uris,
+                                     BiFunction<String, List<String>, Map<String, Long>> fetch) {
+        try {
+            return new ViewCounts(viewsCache == null
+                    ? fetch.apply(app, uris)
+                    : viewsCache.getViews(app, uris, fetch), false);
+        } catch (RestClientException e) {
+            return new ViewCounts(viewsCache == null ? Map.of() : viewsCache.getLastKnown(app, uris), true);
+        }
+    }
+
+    private static Map<String, Long> toViews(ResponseEntity<List<ViewStats>> response) {
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            // not worth caching as "no views"
+            throw new StatsServerUnavailableException("stats-server answered " + response.getStatusCode());
+        }
         if (response.getBody() == null) {
             return Map.of();
         }
 
-        return response.getBody().stream()
-                .collect(Collectors.toMap(
-                        ViewStats::getUri,
-                        ViewStats::getHits,
-                        Long::sum
-                ));
+        return StatsQueries.sumByUri(response.getBody());
     }
 }
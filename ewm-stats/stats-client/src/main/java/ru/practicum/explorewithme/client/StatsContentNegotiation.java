@@ -0,0 +1,50 @@
+package ru.practicum.explorewithme.client;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import ru.practicum.statsdto.StatsWireFormat;
+
+import java.util.List;
+
+/**
+ * The wire format a client asks stats-server for and writes request bodies in. With Smile preferred, bodies are
+ * sent as Smile until stats-server first answers {@code 415 Unsupported Media Type}, and as JSON for good after
+ * that; responses are accepted in either format.
+ */
+final class StatsContentNegotiation {
+    static final MediaType SMILE = MediaType.parseMediaType(StatsWireFormat.SMILE_VALUE);
+
+    private final boolean smile;
+    private volatile boolean smileBodies;
+
+    StatsContentNegotiation(boolean smile) {
+        this.smile = smile;
+        this.smileBodies = smile;
+    }
+
+    boolean smileBodies() {
+        return smileBodies;
+    }
+
+    MediaType contentType(boolean smileBody) {
+        return smileBody ? SMILE : MediaType.APPLICATION_JSON;
+    }
+
+    List<MediaType> accept() {
+        return smile ? List.of(SMILE, MediaType.APPLICATION_JSON) : List.of(MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * Switches to JSON bodies when a Smile body was refused.
+     *
+     * @return whether the request should be sent again, now as JSON
+     */
+    boolean fallBackToJson(boolean sentSmile, HttpStatusCode status) {
+        if (!sentSmile || status.value() != HttpStatus.UNSUPPORTED_MEDIA_TYPE.value()) {
+            return false;
+        }
+        smileBodies = false;
+        return true;
+    }
+}
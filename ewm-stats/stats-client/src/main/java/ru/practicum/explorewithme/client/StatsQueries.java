@@ -0,0 +1,75 @@
+package ru.practicum.explorewithme.client;
+
+import jakarta.annotation.Nullable;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
+import ru.practicum.statsdto.ViewStats;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static ru.practicum.statsdto.Constants.DATE_TIME;
+
+/**
+ * How {@link StatsClient} and {@link AsyncStatsClient} address stats-server, so both send the same requests.
+ */
+final class StatsQueries {
+    static final String STATS_PATH = "/stats";
+    static final String QUERY_PATH = "/stats/query";
+    static final LocalDateTime EARLIEST = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern(DATE_TIME);
+
+    private StatsQueries() {
+    }
+
+    /**
+     * Whether the uris are too many for the URL and have to be sent as {@code POST /stats/query}.
+     */
+    static boolean byPost(@Nullable List<String> uris, int postUrisThreshold) {
+        return uris != null && uris.size() > postUrisThreshold;
+    }
+
+    static MultiValueMap<String, String> statsParams(LocalDateTime start,
+                                                     LocalDateTime end,
+                                                     @Nullable List<String> uris,
+                                                     boolean unique,
+                                                     @Nullable String app) {
+        MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add("start", start.format(DATE_TIME_FORMATTER));
+        params.add("end", end.format(DATE_TIME_FORMATTER));
+        params.add("unique", String.valueOf(unique));
+        if (app != null) {
+            params.add("app", app);
+        }
+        if (uris != null && !uris.isEmpty()) {
+            params.addAll("uris", uris);
+        }
+        return params;
+    }
+
+    /**
+     * The encoded uri of the path with the parameters, to be sent as is.
+     */
+    static URI uri(String baseUrl, String path, @Nullable MultiValueMap<String, String> params) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(baseUrl + path);
+        if (params != null) {
+            builder.queryParams(params);
+        }
+        return builder.encode().build().toUri();
+    }
+
+    static Map<String, Long> sumByUri(List<ViewStats> stats) {
+        return stats.stream()
+                .collect(Collectors.toMap(
+                        ViewStats::getUri,
+                        ViewStats::getHits,
+                        Long::sum
+                ));
+    }
+}
@@ -0,0 +1,13 @@
+package ru.practicum.explorewithme.client;
+
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Thrown instead of calling stats-server while the circuit breaker is open, or when it answered with an error
+ * where a result was needed.
+ */
+public class StatsServerUnavailableException extends RestClientException {
+    public StatsServerUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -1,6 +1,7 @@
 package ru.practicum.explorewithme.client;
 
 import org.springframework.http.ResponseEntity;
+import ru.practicum.statsdto.HitBatchResult;
 import ru.practicum.statsdto.StatDto;
 import ru.practicum.statsdto.ViewStats;
 
@@ -10,5 +11,17 @@ import java.util.List;
 public interface StatsServiceClient {
     ResponseEntity<Object> saveHit(StatDto dto);
 
+    /**
+     * Sends hits in one request; the server may accept only the first {@link HitBatchResult#getAccepted()} of them
+     * when its ingestion buffer is full, answering {@code 429 Too Many Requests} with that count in the body.
+     */
+    ResponseEntity<HitBatchResult> saveHits(List<StatDto> dtos);
+
     ResponseEntity<List<ViewStats>> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique);
+
+    /**
+     * @param app only hits recorded by this app; every app when null
+     */
+    ResponseEntity<List<ViewStats>> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                             String app);
 }
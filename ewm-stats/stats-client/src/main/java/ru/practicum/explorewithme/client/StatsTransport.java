@@ -0,0 +1,15 @@
+package ru.practicum.explorewithme.client;
+
+/**
+ * HTTP client library the stats client's rest template runs on.
+ */
+public enum StatsTransport {
+    /**
+     * {@link java.net.http.HttpClient}: pooled keep-alive connections, HTTP/1.1 or HTTP/2.
+     */
+    JDK,
+    /**
+     * {@link java.net.HttpURLConnection}, HTTP/1.1 only; kept as a fallback.
+     */
+    SIMPLE
+}
@@ -0,0 +1,11 @@
+package ru.practicum.explorewithme.client;
+
+import java.util.Map;
+
+/**
+ * Views per uri, uris without views left out.
+ *
+ * @param degraded stats-server could not be asked, so the views are the last known ones or missing altogether
+ */
+public record ViewCounts(Map<String, Long> views, boolean degraded) {
+}
@@ -0,0 +1,197 @@
+package ru.practicum.explorewithme.client;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+
+/**
+ * Unique view counts per (app, uri), kept for a short time so hot events are not counted anew on every request.
+ * <p>
+ * Uris missing from the cache are loaded together in one stats call. A uri already being loaded for another
+ * caller is not requested again; the caller waits for that load instead. Counts are at most {@code ttl} old.
+ * <p>
+ * Every loaded count is also remembered for {@code staleTtl}, to be served by {@link #getLastKnown} while
+ * stats-server cannot be asked.
+ * <p>
+ * A failed load reaches the cache as a {@link LoadFailure}, which Caffeine does not log, and callers as the
+ * original exception: stats-server being down is reported by the client already, not once per load with a
+ * stack trace.
+ */
+public class ViewsCache {
+    public static final Duration DEFAULT_STALE_TTL = Duration.ofHours(1);
+
+    private final AsyncCache<Key, Long> cache;
+    private final Cache<Key, Long> lastKnown;
+    private final Timer loadTimer;
+
+    public ViewsCache(Duration ttl, long maxSize, MeterRegistry meterRegistry) {
+        this(ttl, DEFAULT_STALE_TTL, maxSize, meterRegistry);
+    }
+
+    public ViewsCache(Duration ttl, Duration staleTtl, long maxSize, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                // loads run on the thread of the caller that missed first
+                .executor(Runnable::run)
+                .recordStats()
+                .buildAsync();
+        this.lastKnown = Caffeine.newBuilder()
+                .expireAfterWrite(staleTtl)
+                .maximumSize(maxSize)
+                .build();
+        this.loadTimer = Timer.builder("stats.views.load")
+                .description("Time to fetch view counts missing from the views cache")
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "stats.views");
+    }
+
+    /**
+     * @param loader fetches the views of the given app's uris; uris it leaves out have no views
+     */
+    public Map<String, Long> getViews(String app,
+                                      List<String> uris,
+                                      BiFunction<String, List<String>, Map<String, Long>> loader) {
+        Set<Key> keys = keys(app, uris);
+        Map<Key, Long> views;
+        try {
+            views = cache.getAll(keys, (missing, executor) -> load(app, missing, loader)).join();
+        } catch (CompletionException | CancellationException e) {
+            throw unwrap(e);
+        }
+        return withoutZeros(views);
+    }
+
+    /**
+     * Like {@link #getViews}, without waiting for the loader.
+     *
+     * @param loader fetches the views of the given app's uris; uris it leaves out have no views
+     */
+    public CompletableFuture<Map<String, Long>> getViewsAsync(
+            String app,
+            List<String> uris,
+            BiFunction<String, List<String>, CompletableFuture<Map<String, Long>>> loader) {
+        return cache.getAll(keys(app, uris), (missing, executor) -> loadAsync(app, missing, loader))
+                .handle((views, error) -> {
+                    if (error != null) {
+                        throw unwrap(error);
+                    }
+                    return withoutZeros(views);
+                });
+    }
+
+    /**
+     * The most recently loaded views of the uris, however old, up to {@code staleTtl}; uris never loaded are left
+     * out just like uris without views.
+     */
+    public Map<String, Long> getLastKnown(String app, List<String> uris) {
+        List<Key> keys = uris.stream().map(uri -> new Key(app, uri)).toList();
+        return withoutZeros(lastKnown.getAllPresent(keys));
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    private static Set<Key> keys(String app, List<String> uris) {
+        Set<Key> keys = new LinkedHashSet<>();
+        for (String uri : uris) {
+            keys.add(new Key(app, uri));
+        }
+        return keys;
+    }
+
+    private static Map<String, Long> withoutZeros(Map<Key, Long> views) {
+        Map<String, Long> result = new HashMap<>();
+        views.forEach((key, count) -> {
+            if (count > 0) {
+                result.put(key.uri(), count);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Runs the loader on the calling thread.
+     */
+    private CompletableFuture<Map<Key, Long>> load(String app,
+                                                   Set<? extends Key> missing,
+                                                   BiFunction<String, List<String>, Map<String, Long>> loader) {
+        List<String> uris = missing.stream().map(Key::uri).toList();
+        try {
+            return CompletableFuture.completedFuture(loaded(missing, loadTimer.record(() -> loader.apply(app, uris))));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(new LoadFailure(e));
+        }
+    }
+
+    private CompletableFuture<Map<Key, Long>> loadAsync(
+            String app,
+            Set<? extends Key> missing,
+            BiFunction<String, List<String>, CompletableFuture<Map<String, Long>>> loader) {
+        List<String> uris = missing.stream().map(Key::uri).toList();
+        Timer.Sample sample = Timer.start();
+        CompletableFuture<Map<String, Long>> loading;
+        try {
+            loading = loader.apply(app, uris);
+        } catch (RuntimeException e) {
+            sample.stop(loadTimer);
+            return CompletableFuture.failedFuture(new LoadFailure(e));
+        }
+        CompletableFuture<Map<Key, Long>> views = new CompletableFuture<>();
+        loading.whenComplete((loaded, error) -> {
+            sample.stop(loadTimer);
+            if (error != null) {
+                views.completeExceptionally(new LoadFailure(unwrap(error)));
+            } else {
+                views.complete(loaded(missing, loaded));
+            }
+        });
+        return views;
+    }
+
+    private static RuntimeException unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof LoadFailure) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof RuntimeException runtime ? runtime : new CompletionException(cause);
+    }
+
+    private Map<Key, Long> loaded(Set<? extends Key> missing, Map<String, Long> loaded) {
+        Map<Key, Long> views = new HashMap<>();
+        // uris without hits are cached as zero, so they are not requested again either
+        for (Key key : missing) {
+            views.put(key, loaded.getOrDefault(key.uri(), 0L));
+        }
+        lastKnown.putAll(views);
+        return views;
+    }
+
+    private record Key(String app, String uri) {
+    }
+
+    /**
+     * Caffeine logs every exception a load fails with, except cancellations and timeouts.
+     */
+    private static final class LoadFailure extends CancellationException {
+        LoadFailure(Throwable cause) {
+            super(cause.getMessage());
+            initCause(cause);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package ru.practicum.explorewithme.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import ru.practicum.statsdto.StatsWireFormat;
+import ru.practicum.statsdto.ViewStats;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncStatsClientTest {
+    private static final String STATS = "[{\"app\":\"ewm-main\",\"uri\":\"/events/1\",\"hits\":7}]";
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<String> contentTypes = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private HttpServer server;
+    private volatile boolean slow;
+    private volatile int status = 200;
+    private volatile boolean refuseSmile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/stats", this::stats);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+        httpClient.close();
+    }
+
+    @Test
+    void getStats_shouldQueryWithGetOrPostDependingOnUris() throws Exception {
+        AsyncStatsClient client = new AsyncStatsClient(httpClient, url(), Duration.ofSeconds(5), 1, false, null,
+                null);
+
+        List<ViewStats> byGet = client.getStats(START, START.plusDays(1), List.of("/events/1"), true, "ewm-main")
+                .get(5, TimeUnit.SECONDS);
+        List<ViewStats> byPost = client.getStats(START, START.plusDays(1), List.of("/events/1", "/events/2"), true,
+                "ewm-main").get(5, TimeUnit.SECONDS);
+
+        assertThat(byGet).singleElement().extracting(ViewStats::getHits).isEqualTo(7L);
+        assertThat(byPost).singleElement().extracting(ViewStats::getUri).isEqualTo("/events/1");
+        assertThat(requests).hasSize(2);
+        assertThat(requests.get(0)).startsWith("GET /stats?start=2025-01-01%2000:00:00")
+                .contains("app=ewm-main", "uris=/events/1");
+        assertThat(requests.get(1)).startsWith("POST /stats/query")
+                .contains("\"uris\":[\"/events/1\",\"/events/2\"]", "\"start\":\"2025-01-01 00:00:00\"");
+    }
+
+    @Test
+    void getViewCounts_shouldNotHoldCallerWhileStatsServerAnswers() throws Exception {
+        slow = true;
+        AsyncStatsClient client = new AsyncStatsClient(httpClient, url(), Duration.ofSeconds(5));
+
+        CompletableFuture<ViewCounts> views = client.getViewCounts("ewm-main", List.of("/events/1"));
+
+        assertThat(views).isNotDone();
+        release.countDown();
+        assertThat(views.get(5, TimeUnit.SECONDS)).isEqualTo(new ViewCounts(Map.of("/events/1", 7L), false));
+    }
+
+    @Test
+    void getViewCounts_shouldFallBackToLastKnownViewsOnServerErrors() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        StatsCircuitBreaker breaker = new StatsCircuitBreaker(1, Duration.ofMinutes(1), meterRegistry);
+        AsyncStatsClient client = new AsyncStatsClient(httpClient, url(), Duration.ofSeconds(5), 50, false,
+                new ViewsCache(Duration.ZERO, 100, meterRegistry), breaker);
+        assertThat(client.getViewCounts("ewm-main", List.of("/events/1")).get(5, TimeUnit.SECONDS).degraded())
+                .isFalse();
+
+        status = 503;
+        assertThatThrownBy(() -> client.getStats(START, START.plusDays(1), null, false, null).join())
+                .hasCauseInstanceOf(HttpServerErrorException.class);
+        assertThat(breaker.getState()).isEqualTo(StatsCircuitBreaker.State.OPEN);
+
+        ViewCounts views = client.getViewCounts("ewm-main", List.of("/events/1", "/events/2"))
+                .get(5, TimeUnit.SECONDS);
+        assertThat(views).isEqualTo(new ViewCounts(Map.of("/events/1", 7L), true));
+        assertThat(requests).as("the open circuit keeps the last call from stats-server").hasSize(2);
+    }
+
+    @Test
+    void getStats_shouldSendSmileQueriesUntilStatsServerRefusesThem() throws Exception {
+        refuseSmile = true;
+        AsyncStatsClient client = new AsyncStatsClient(httpClient, url(), Duration.ofSeconds(5), 0, true, null, null);
+
+        for (int i = 0; i < 2; i++) {
+            assertThat(client.getStats(START, START.plusDays(1), List.of("/events/1"), true, "ewm-main")
+                    .get(5, TimeUnit.SECONDS)).singleElement().extracting(ViewStats::getHits).isEqualTo(7L);
+        }
+
+        assertThat(contentTypes).containsExactly(StatsWireFormat.SMILE_VALUE, MediaType.APPLICATION_JSON_VALUE,
+                MediaType.APPLICATION_JSON_VALUE);
+    }
+
+    @Test
+    void getStats_shouldWaitForASlotOfTheSharedConnectionLimit() throws Exception {
+        slow = true;
+        ConnectionLimitInterceptor connectionLimit = new ConnectionLimitInterceptor(1, Duration.ofMillis(200));
+        AsyncStatsClient client = new AsyncStatsClient(httpClient, url(), Duration.ofSeconds(5), 50, false, null,
+                null, connectionLimit);
+
+        CompletableFuture<List<ViewStats>> first = client.getStats(START, START.plusDays(1), null, false, null);
+        CompletableFuture<List<ViewStats>> second = client.getStats(START, START.plusDays(1), null, false, null);
+
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(ResourceAccessException.class)
+                .hasMessageContaining("connections to stats-server are busy");
+        assertThat(first).isNotDone();
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).hasSize(1);
+        assertThat(connectionLimit.available()).isEqualTo(1);
+        assertThat(requests).hasSize(1);
+    }
+
+    private String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI().getRawPath()
+                + (exchange.getRequestURI().getRawQuery() == null ? "" : "?" + exchange.getRequestURI().getRawQuery())
+                + " " + body);
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType != null) {
+            contentTypes.add(contentType);
+        }
+        if (refuseSmile && StatsWireFormat.SMILE_VALUE.equals(contentType)) {
+            exchange.sendResponseHeaders(415, -1);
+            exchange.close();
+            return;
+        }
+        if (slow) {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (status != 200) {
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(STATS.getBytes(StandardCharsets.UTF_8));
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(200, compressed.size());
+        try (OutputStream out = exchange.getResponseBody()) {
+            compressed.writeTo(out);
+        }
+    }
+}
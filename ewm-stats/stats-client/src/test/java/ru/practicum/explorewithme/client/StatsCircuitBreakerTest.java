@@ -0,0 +1,87 @@
+package ru.practicum.explorewithme.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatsCircuitBreakerTest {
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StatsCircuitBreaker breaker =
+            new StatsCircuitBreaker(3, Duration.ofSeconds(10), meterRegistry, now::get);
+
+    @Test
+    void execute_shouldOpenAfterConsecutiveFailuresAndFailFast() {
+        fail(new ResourceAccessException("connection refused"));
+        fail(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+        assertThat(breaker.getState()).isEqualTo(StatsCircuitBreaker.State.CLOSED);
+        fail(new ResourceAccessException("read timed out"));
+
+        assertThat(breaker.getState()).isEqualTo(StatsCircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> breaker.execute(calls::incrementAndGet))
+                .isInstanceOf(StatsServerUnavailableException.class);
+        assertThat(calls).hasValue(3);
+        assertThat(meterRegistry.get("stats.client.circuit.state").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void execute_shouldNotCountClientErrorsOrBreakStreakOnSuccess() {
+        fail(new ResourceAccessException("connection refused"));
+        fail(new ResourceAccessException("connection refused"));
+        fail(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+        fail(new ResourceAccessException("connection refused"));
+        fail(new ResourceAccessException("connection refused"));
+
+        assertThat(breaker.getState()).isEqualTo(StatsCircuitBreaker.State.CLOSED);
+        assertThat(breaker.getConsecutiveFailures()).isEqualTo(2);
+    }
+
+    @Test
+    void execute_shouldLetOneProbeThroughAfterOpenDuration() {
+        open();
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        fail(new ResourceAccessException("still down"));
+        assertThat(breaker.getState()).as("a failed probe opens the circuit again")
+                .isEqualTo(StatsCircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> breaker.execute(calls::incrementAndGet))
+                .isInstanceOf(StatsServerUnavailableException.class);
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertThat(breaker.execute(() -> {
+            assertThat(breaker.getState()).isEqualTo(StatsCircuitBreaker.State.HALF_OPEN);
+            assertThatThrownBy(() -> breaker.execute(calls::incrementAndGet))
+                    .as("only the probe goes through")
+                    .isInstanceOf(StatsServerUnavailableException.class);
+            return "ok";
+        })).isEqualTo("ok");
+
+        assertThat(breaker.getState()).isEqualTo(StatsCircuitBreaker.State.CLOSED);
+        assertThat(breaker.execute(calls::incrementAndGet)).isEqualTo(5);
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            fail(new ResourceAccessException("connection refused"));
+        }
+        assertThat(breaker.getState()).isEqualTo(StatsCircuitBreaker.State.OPEN);
+    }
+
+    private void fail(RuntimeException failure) {
+        assertThatThrownBy(() -> breaker.execute(() -> {
+            calls.incrementAndGet();
+            throw failure;
+        })).isSameAs(failure);
+    }
+}
@@ -4,17 +4,22 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.web.client.RestTemplate;
+import ru.practicum.statsdto.HitBatchResult;
 import ru.practicum.statsdto.StatDto;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.endsWith;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -46,4 +51,23 @@ class StatsClientTest {
 
         verify(restTemplate).exchange(anyString(), eq(HttpMethod.POST), any(), eq(Object.class));
     }
+
+    @Test
+    void shouldPostHitBatch() {
+        List<StatDto> dtos = List.of(
+                new StatDto("app", "/uri/1", "127.0.0.1", LocalDateTime.now()),
+                new StatDto("app", "/uri/2", "127.0.0.1", LocalDateTime.now()));
+
+        when(restTemplate.exchange(
+                endsWith("/hits/batch"),
+                eq(HttpMethod.POST),
+                any(),
+                any(ParameterizedTypeReference.class))
+        ).thenReturn(new ResponseEntity<>(new HitBatchResult(2, 2), HttpStatus.CREATED));
+
+        ResponseEntity<HitBatchResult> response = statsClient.saveHits(dtos);
+
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().getAccepted()).isEqualTo(2);
+    }
 }
@@ -1,21 +1,58 @@
 package ru.practicum.explorewithme.client;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.web.client.RestTemplate;
+import ru.practicum.explorewithme.client.Config.RestTemplateConfig;
+import ru.practicum.explorewithme.client.Config.StatsClientProperties;
+import ru.practicum.statsdto.HitBatchResult;
+import ru.practicum.statsdto.StatDto;
+import ru.practicum.statsdto.StatsRequest;
+import ru.practicum.statsdto.StatsWireFormat;
 import ru.practicum.statsdto.ViewStats;
 
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.Mockito.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.anyBoolean;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.client.ExpectedCount.times;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withException;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 
 public class StatsClientUnitTest {
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @AfterEach
+    void tearDown() {
+        httpClient.close();
+    }
 
     @Test
     void getViews_shouldReturnEmpty_whenResponseBodyIsNull() {
@@ -68,4 +105,120 @@ public class StatsClientUnitTest {
 
         assertThat(result).containsEntry("/event/1", 12L);
     }
+
+    @Test
+    void getStats_shouldSwitchToPostAboveUrisThreshold() {
+        RestTemplate mockTemplate = mock(RestTemplate.class);
+        StatsClient client = new StatsClient(mockTemplate, "http://localhost:9090", 2);
+        LocalDateTime now = LocalDateTime.now();
+
+        client.getStats(now.minusDays(1), now, List.of("/event/1", "/event/2"), true);
+        client.getStats(now.minusDays(1), now, List.of("/event/1", "/event/2", "/event/3"), true);
+
+        verify(mockTemplate).exchange(argThat((URI url) -> url.toString().startsWith("http://localhost:9090/stats?")),
+                eq(HttpMethod.GET),
+                any(HttpEntity.class), any(ParameterizedTypeReference.class));
+        verify(mockTemplate).exchange(eq("http://localhost:9090/stats/query"), eq(HttpMethod.POST),
+                argThat((HttpEntity<?> entity) -> entity.getBody() instanceof StatsRequest request
+                        && request.getUris().size() == 3 && request.isUnique()),
+                any(ParameterizedTypeReference.class));
+    }
+
+    @Test
+    void getStats_withApp_shouldSendAppOnBothPaths() {
+        RestTemplate mockTemplate = mock(RestTemplate.class);
+        StatsClient client = new StatsClient(mockTemplate, "http://localhost:9090", 1);
+        LocalDateTime now = LocalDateTime.now();
+
+        client.getStats(now.minusDays(1), now, List.of("/event/1"), true, "ewm-main");
+        client.getStats(now.minusDays(1), now, List.of("/event/1", "/event/2"), true, "ewm-main");
+
+        verify(mockTemplate).exchange(argThat((URI url) -> url.toString().startsWith("http://localhost:9090/stats?")
+                        && url.getQuery().contains("app=ewm-main")), eq(HttpMethod.GET),
+                any(HttpEntity.class), any(ParameterizedTypeReference.class));
+        verify(mockTemplate).exchange(eq("http://localhost:9090/stats/query"), eq(HttpMethod.POST),
+                argThat((HttpEntity<?> entity) -> entity.getBody() instanceof StatsRequest request
+                        && "ewm-main".equals(request.getApp())),
+                any(ParameterizedTypeReference.class));
+    }
+
+    @Test
+    void saveHit_shouldSendSmileAndFallBackToJsonAfterUnsupportedMediaType() {
+        RestTemplate restTemplate = restTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo("http://localhost:9090/hit"))
+                .andExpect(content().contentType(StatsWireFormat.SMILE_VALUE))
+                .andRespond(withStatus(HttpStatus.UNSUPPORTED_MEDIA_TYPE));
+        server.expect(times(2), requestTo("http://localhost:9090/hit"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andRespond(withStatus(HttpStatus.CREATED));
+        StatsClient client = new StatsClient(restTemplate, "http://localhost:9090", 50, true);
+        StatDto dto = new StatDto("app", "/event/1", "10.0.0.1", LocalDateTime.now());
+
+        assertThat(client.saveHit(dto).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(client.saveHit(dto).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        server.verify();
+    }
+
+    @Test
+    void saveHits_shouldKeepAcceptedCountOfTooManyRequests() throws Exception {
+        RestTemplate restTemplate = restTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo("http://localhost:9090/hits/batch"))
+                .andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body("{\"received\":2,\"accepted\":1}"));
+        StatsClient client = new StatsClient(restTemplate, "http://localhost:9090", 50, false);
+        StatDto dto = new StatDto("app", "/event/1", "10.0.0.1", LocalDateTime.now());
+
+        ResponseEntity<HitBatchResult> response = client.saveHits(List.of(dto, dto));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(response.getBody()).isNotNull().extracting(HitBatchResult::getAccepted).isEqualTo(1);
+    }
+
+    @Test
+    void getStats_shouldReadSmileResponse() throws Exception {
+        RestTemplate restTemplate = restTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        byte[] body = StatsWireFormat.smileMapper().writeValueAsBytes(List.of(new ViewStats("app", "/event/1", 4L)));
+        server.expect(requestTo(containsString("http://localhost:9090/stats?")))
+                .andExpect(header(HttpHeaders.ACCEPT, containsString(StatsWireFormat.SMILE_VALUE)))
+                .andRespond(withSuccess(body, MediaType.parseMediaType(StatsWireFormat.SMILE_VALUE)));
+        StatsClient client = new StatsClient(restTemplate, "http://localhost:9090", 50, true);
+
+        Map<String, Long> views = client.getViews(List.of("/event/1"));
+
+        assertThat(views).containsEntry("/event/1", 4L);
+    }
+
+    @Test
+    void getViewCounts_shouldServeLastKnownViewsWhileStatsServerIsDown() throws Exception {
+        RestTemplate restTemplate = restTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        byte[] body = StatsWireFormat.smileMapper().writeValueAsBytes(List.of(new ViewStats("app", "/event/1", 4L)));
+        server.expect(requestTo(containsString("http://localhost:9090/stats?")))
+                .andRespond(withSuccess(body, MediaType.parseMediaType(StatsWireFormat.SMILE_VALUE)));
+        server.expect(requestTo(containsString("http://localhost:9090/stats?")))
+                .andRespond(withException(new IOException("Connection refused")));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        StatsCircuitBreaker breaker = new StatsCircuitBreaker(1, Duration.ofMinutes(1), meterRegistry);
+        StatsClient client = new StatsClient(restTemplate, "http://localhost:9090", 50, true,
+                new ViewsCache(Duration.ZERO, 100, meterRegistry), breaker);
+
+        assertThat(client.getViewCounts("app", List.of("/event/1", "/event/2")))
+                .isEqualTo(new ViewCounts(Map.of("/event/1", 4L), false));
+        assertThat(client.getViewCounts("app", List.of("/event/1", "/event/2")))
+                .isEqualTo(new ViewCounts(Map.of("/event/1", 4L), true));
+        assertThat(breaker.getState()).isEqualTo(StatsCircuitBreaker.State.OPEN);
+        assertThat(client.getViews("app", List.of("/event/1"))).as("answered without calling stats-server")
+                .containsEntry("/event/1", 4L);
+        server.verify();
+    }
+
+    private RestTemplate restTemplate() {
+        StatsClientProperties properties = new StatsClientProperties();
+        RestTemplateConfig config = new RestTemplateConfig();
+        return config.restTemplate(properties, httpClient, config.statsConnectionLimit(properties));
+    }
 }
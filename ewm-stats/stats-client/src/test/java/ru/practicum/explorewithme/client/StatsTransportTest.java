@@ -0,0 +1,150 @@
+package ru.practicum.explorewithme.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import ru.practicum.explorewithme.client.Config.RestTemplateConfig;
+import ru.practicum.explorewithme.client.Config.StatsClientProperties;
+import ru.practicum.statsdto.ViewStats;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the configured rest template against a real HTTP server, one that answers slowly when asked to.
+ */
+class StatsTransportTest {
+    private static final String STATS = "[{\"app\":\"ewm-main\",\"uri\":\"/events/1\",\"hits\":7}]";
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private final CountDownLatch slowStarted = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final List<HttpClient> httpClients = new ArrayList<>();
+    private HttpServer server;
+    private volatile String acceptEncoding;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/stats", this::stats);
+        server.createContext("/slow", exchange -> {
+            slowStarted.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+        server.stop(0);
+        httpClients.forEach(HttpClient::close);
+    }
+
+    @ParameterizedTest
+    @EnumSource(StatsTransport.class)
+    void getStats_shouldInflateGzipResponses(StatsTransport transport) {
+        StatsClientProperties properties = properties(transport);
+        properties.setSmile(false);
+        StatsClient client = new StatsClient(restTemplate(properties), url(), 50, false);
+
+        List<ViewStats> stats = client.getStats(START, START.plusDays(1), List.of("/events/1"), false).getBody();
+
+        assertThat(acceptEncoding).isEqualTo("gzip");
+        assertThat(stats).singleElement().extracting(ViewStats::getHits).isEqualTo(7L);
+    }
+
+    @ParameterizedTest
+    @EnumSource(StatsTransport.class)
+    void exchange_shouldGiveUpAtTheReadTimeout(StatsTransport transport) {
+        RestTemplate restTemplate = restTemplate(properties(transport));
+
+        long started = System.nanoTime();
+        assertThatThrownBy(() -> restTemplate.getForEntity(url() + "/slow", Void.class))
+                .isInstanceOf(ResourceAccessException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(5));
+    }
+
+    @ParameterizedTest
+    @EnumSource(StatsTransport.class)
+    void exchange_shouldFailWhenAllConnectionsStayBusy(StatsTransport transport) throws Exception {
+        StatsClientProperties properties = properties(transport);
+        properties.setMaxConnections(1);
+        properties.setReadTimeout(Duration.ofSeconds(10));
+        RestTemplate restTemplate = restTemplate(properties);
+        Future<?> busy = callers.submit(() -> restTemplate.getForEntity(url() + "/slow", Void.class));
+        assertThat(slowStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> restTemplate.getForEntity(url() + "/stats", String.class))
+                .isInstanceOf(ResourceAccessException.class)
+                .hasMessageContaining("connections to stats-server are busy");
+
+        release.countDown();
+        busy.get(5, TimeUnit.SECONDS);
+        assertThat(restTemplate.getForEntity(url() + "/stats", String.class).getBody()).isEqualTo(STATS);
+    }
+
+    private RestTemplate restTemplate(StatsClientProperties properties) {
+        RestTemplateConfig config = new RestTemplateConfig();
+        HttpClient httpClient = config.statsHttpClient(properties);
+        httpClients.add(httpClient);
+        return config.restTemplate(properties, httpClient, config.statsConnectionLimit(properties));
+    }
+
+    private StatsClientProperties properties(StatsTransport transport) {
+        StatsClientProperties properties = new StatsClientProperties();
+        properties.setTransport(transport);
+        properties.setConnectTimeout(Duration.ofMillis(500));
+        properties.setReadTimeout(Duration.ofMillis(500));
+        return properties;
+    }
+
+    private String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(STATS.getBytes(StandardCharsets.UTF_8));
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(200, compressed.size());
+        try (OutputStream body = exchange.getResponseBody()) {
+            compressed.writeTo(body);
+        }
+    }
+}
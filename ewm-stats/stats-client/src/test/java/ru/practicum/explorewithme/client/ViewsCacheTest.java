@@ -0,0 +1,157 @@
+package ru.practicum.explorewithme.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ViewsCacheTest {
+    private static final String APP = "ewm-main";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ViewsCache cache = new ViewsCache(Duration.ofMinutes(1), 100, meterRegistry);
+    private final List<List<String>> loads = new CopyOnWriteArrayList<>();
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void getViews_shouldFetchOnlyMissingUrisInOneCall() {
+        assertThat(cache.getViews(APP, List.of("/events/1"), this::load)).isEqualTo(Map.of("/events/1", 10L));
+
+        Map<String, Long> views = cache.getViews(APP, List.of("/events/1", "/events/2", "/events/3"), this::load);
+
+        assertThat(views).containsOnly(Map.entry("/events/1", 10L), Map.entry("/events/2", 20L));
+        assertThat(loads).containsExactly(List.of("/events/1"), List.of("/events/2", "/events/3"));
+        assertThat(cache.getViews(APP, List.of("/events/3", "/events/2"), this::load))
+                .as("a uri without views is cached too")
+                .isEqualTo(Map.of("/events/2", 20L));
+        assertThat(loads).hasSize(2);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("stats.views.load").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void getViews_shouldKeepAppsApart() {
+        cache.getViews(APP, List.of("/events/1"), this::load);
+        cache.getViews("other-app", List.of("/events/1"), this::load);
+
+        assertThat(loads).hasSize(2);
+    }
+
+    @Test
+    void getViews_shouldShareAnInFlightLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Map<String, Long>> first = callers.submit(() -> cache.getViews(APP, List.of("/events/1"),
+                (app, uris) -> {
+                    loading.countDown();
+                    await(release);
+                    return load(app, uris);
+                }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<Map<String, Long>> second = callers.submit(() -> cache.getViews(APP, List.of("/events/1"),
+                this::load));
+
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(Map.of("/events/1", 10L));
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(Map.of("/events/1", 10L));
+        assertThat(loads).hasSize(1);
+    }
+
+    @Test
+    void getViews_shouldNotCacheFailedLoads() {
+        assertThatThrownBy(() -> cache.getViews(APP, List.of("/events/1"), (app, uris) -> {
+            throw new ResourceAccessException("Connection refused");
+        })).isInstanceOf(ResourceAccessException.class);
+
+        assertThat(cache.getViews(APP, List.of("/events/1"), this::load)).isEqualTo(Map.of("/events/1", 10L));
+    }
+
+    @Test
+    void failedLoads_shouldReachCallersUnwrappedWithoutCaffeineLoggingThem() {
+        List<LogRecord> records = new CopyOnWriteArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger caffeine = Logger.getLogger("com.github.benmanes.caffeine.cache.LocalAsyncCache");
+        caffeine.addHandler(handler);
+        try {
+            assertThatThrownBy(() -> cache.getViews(APP, List.of("/events/1", "/events/2"), (app, uris) -> {
+                throw new ResourceAccessException("Connection refused");
+            })).isInstanceOf(ResourceAccessException.class);
+            assertThat(cache.getViewsAsync(APP, List.of("/events/1"), (app, uris) ->
+                    CompletableFuture.failedFuture(new ResourceAccessException("Connection refused"))))
+                    .failsWithin(Duration.ofSeconds(5))
+                    .withThrowableOfType(ExecutionException.class)
+                    .withCauseInstanceOf(ResourceAccessException.class);
+        } finally {
+            caffeine.removeHandler(handler);
+        }
+
+        assertThat(records).isEmpty();
+    }
+
+    @Test
+    void getViews_shouldReloadAfterTtl() throws InterruptedException {
+        ViewsCache shortLived = new ViewsCache(Duration.ofMillis(50), 100, meterRegistry);
+        shortLived.getViews(APP, List.of("/events/1"), this::load);
+
+        Thread.sleep(100);
+        shortLived.getViews(APP, List.of("/events/1"), this::load);
+
+        assertThat(loads).hasSize(2);
+    }
+
+    private Map<String, Long> load(String app, List<String> uris) {
+        loads.add(uris.stream().sorted().toList());
+        // uris ending in 3 have no hits yet, so stats-server leaves them out
+        return uris.stream()
+                .filter(uri -> !uri.endsWith("3"))
+                .collect(Collectors.toMap(uri -> uri,
+                        uri -> Long.parseLong(uri.substring(uri.lastIndexOf('/') + 1)) * 10));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
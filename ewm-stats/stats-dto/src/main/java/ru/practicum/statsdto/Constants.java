@@ -4,5 +4,13 @@ public class Constants {
     public static final String IPV4_OR_IPV6 = "^(([0-9]{1,3}\\.){3}[0-9]{1,3}|([a-fA-F0-9:]+:+)+[a-fA-F0-9]+)$";
     public static final String URI_STARTS_WITH_SLASH = "^/.*";
     public static final String URI_VALID_FORMAT = "^/[\\w\\-/]+$";
+    /**
+     * A uri prefix followed by {@code *}, e.g. {@code /events/*}, matching every uri that starts with the prefix.
+     */
+    public static final String URI_PREFIX_PATTERN_FORMAT = "^/[\\w\\-/]*\\*$";
+    /**
+     * At least one non-whitespace character; unlike {@code @NotBlank} it lets an omitted optional value through.
+     */
+    public static final String NON_BLANK = "(?s).*\\S.*";
     public static final String DATE_TIME = "yyyy-MM-dd HH:mm:ss";
 }
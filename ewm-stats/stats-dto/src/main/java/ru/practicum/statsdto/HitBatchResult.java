@@ -0,0 +1,13 @@
+package ru.practicum.statsdto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class HitBatchResult {
+    private int received;
+    private int accepted;
+}
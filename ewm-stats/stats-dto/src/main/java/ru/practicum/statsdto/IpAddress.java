@@ -0,0 +1,25 @@
+package ru.practicum.statsdto;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The annotated string is an IPv4 or IPv6 address as accepted by {@link IpAddressFormat}; null is valid.
+ */
+@Documented
+@Constraint(validatedBy = IpAddressValidator.class)
+@Target({ElementType.FIELD, ElementType.PARAMETER, ElementType.TYPE_USE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface IpAddress {
+    String message() default "Invalid IP address format";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,271 @@
+package ru.practicum.statsdto;
+
+import java.util.Arrays;
+
+/**
+ * Validates textual IPv4/IPv6 addresses and converts them to their 4/16-byte network form in a single pass,
+ * without regular expressions or intermediate objects.
+ * <p>
+ * IPv4 is dotted decimal with one to three digits per octet. IPv6 accepts one {@code ::} and a trailing
+ * embedded IPv4 address, e.g. {@code ::ffff:10.0.0.1}; zone ids and brackets are not accepted.
+ */
+public final class IpAddressFormat {
+    public static final int IPV4_BYTES = 4;
+    public static final int IPV6_BYTES = 16;
+    public static final int INVALID = -1;
+
+    private static final int IPV6_WORDS = 8;
+    // "ffff:ffff:ffff:ffff:ffff:ffff:255.255.255.255"
+    private static final int MAX_LENGTH = 45;
+
+    private IpAddressFormat() {
+    }
+
+    public static boolean isValid(CharSequence ip) {
+        return parse(ip, null) != INVALID;
+    }
+
+    /**
+     * Parses {@code ip} into {@code out}, which may be null to only validate.
+     *
+     * @param out at least 4 bytes for an IPv4 address and 16 for an IPv6 address
+     * @return the number of bytes written, 4 or 16, or {@link #INVALID}
+     */
+    public static int parse(CharSequence ip, byte[] out) {
+        return parse(ip, kind(ip), out);
+    }
+
+    private static int parse(CharSequence ip, int kind, byte[] out) {
+        return switch (kind) {
+            case IPV4_BYTES -> parseIpv4(ip, 0, ip.length(), out, 0) ? IPV4_BYTES : INVALID;
+            case IPV6_BYTES -> parseIpv6(ip, out) ? IPV6_BYTES : INVALID;
+            default -> INVALID;
+        };
+    }
+
+    /**
+     * The stored form: IPv4-mapped IPv6 addresses such as {@code ::ffff:10.0.0.1} are folded to the 4 bytes of
+     * the IPv4 address, so a visitor counts once however its address was written.
+     *
+     * @return the 4- or 16-byte form of {@code ip}, or null for null
+     * @throws IllegalArgumentException if {@code ip} is not a valid address
+     */
+    public static byte[] toBytes(String ip) {
+        if (ip == null) {
+            return null;
+        }
+        int kind = kind(ip);
+        if (kind != INVALID) {
+            byte[] bytes = new byte[kind];
+            if (parse(ip, kind, bytes) == kind) {
+                return kind == IPV6_BYTES && isIpv4Mapped(bytes)
+                        ? Arrays.copyOfRange(bytes, IPV6_BYTES - IPV4_BYTES, IPV6_BYTES)
+                        : bytes;
+            }
+        }
+        throw new IllegalArgumentException("Invalid IP address: " + ip);
+    }
+
+    /**
+     * Formats a 4- or 16-byte address. IPv6 uses the RFC 5952 canonical form: lower-case hex without leading zeros,
+     * the longest run of two or more zero groups (the first one on a tie) compressed to {@code ::}, and IPv4-mapped
+     * addresses written as {@code ::ffff:a.b.c.d}.
+     */
+    public static String toString(byte[] ip) {
+        if (ip == null) {
+            return null;
+        }
+        if (ip.length == IPV4_BYTES) {
+            return ipv4ToString(ip, 0);
+        }
+        if (ip.length != IPV6_BYTES) {
+            throw new IllegalArgumentException("Invalid IP address length: " + ip.length);
+        }
+        int[] words = new int[IPV6_WORDS];
+        for (int i = 0; i < IPV6_WORDS; i++) {
+            words[i] = ((ip[i * 2] & 0xFF) << 8) | (ip[i * 2 + 1] & 0xFF);
+        }
+        if (isIpv4Mapped(words)) {
+            return "::ffff:" + ipv4ToString(ip, IPV6_BYTES - IPV4_BYTES);
+        }
+        int gapStart = -1;
+        int gapLength = 1;
+        for (int i = 0; i < IPV6_WORDS; ) {
+            int run = 0;
+            while (i + run < IPV6_WORDS && words[i + run] == 0) {
+                run++;
+            }
+            if (run > gapLength) {
+                gapStart = i;
+                gapLength = run;
+            }
+            i += Math.max(run, 1);
+        }
+        StringBuilder text = new StringBuilder(39);
+        for (int i = 0; i < IPV6_WORDS; i++) {
+            if (i == gapStart) {
+                text.append("::");
+                i += gapLength - 1;
+                continue;
+            }
+            if (text.length() > 0 && text.charAt(text.length() - 1) != ':') {
+                text.append(':');
+            }
+            text.append(Integer.toHexString(words[i]));
+        }
+        return text.toString();
+    }
+
+    private static boolean isIpv4Mapped(byte[] ip) {
+        for (int i = 0; i < 10; i++) {
+            if (ip[i] != 0) {
+                return false;
+            }
+        }
+        return ip[10] == (byte) 0xFF && ip[11] == (byte) 0xFF;
+    }
+
+    private static boolean isIpv4Mapped(int[] words) {
+        for (int i = 0; i < 5; i++) {
+            if (words[i] != 0) {
+                return false;
+            }
+        }
+        return words[5] == 0xFFFF;
+    }
+
+    private static String ipv4ToString(byte[] ip, int offset) {
+        return (ip[offset] & 0xFF) + "." + (ip[offset + 1] & 0xFF) + "." + (ip[offset + 2] & 0xFF) + "."
+                + (ip[offset + 3] & 0xFF);
+    }
+
+    /**
+     * Tells the families apart by the first separator, so the caller can size the output.
+     */
+    private static int kind(CharSequence ip) {
+        if (ip == null || ip.length() > MAX_LENGTH) {
+            return INVALID;
+        }
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (c == ':') {
+                return IPV6_BYTES;
+            }
+            if (c == '.') {
+                return IPV4_BYTES;
+            }
+        }
+        return INVALID;
+    }
+
+    private static boolean parseIpv4(CharSequence ip, int from, int to, byte[] out, int offset) {
+        int octet = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = from; i < to; i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > 3) {
+                    return false;
+                }
+                value = value * 10 + (c - '0');
+            } else if (c == '.' && digits > 0 && octet < IPV4_BYTES - 1) {
+                if (!writeOctet(value, out, offset + octet++)) {
+                    return false;
+                }
+                value = 0;
+                digits = 0;
+            } else {
+                return false;
+            }
+        }
+        return digits > 0 && octet == IPV4_BYTES - 1 && writeOctet(value, out, offset + octet);
+    }
+
+    private static boolean writeOctet(int value, byte[] out, int index) {
+        if (value > 255) {
+            return false;
+        }
+        if (out != null) {
+            out[index] = (byte) value;
+        }
+        return true;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static boolean parseIpv6(CharSequence ip, byte[] out) {
+        int length = ip.length();
+        int words = 0;
+        int gap = -1;
+        int i = 0;
+        if (length >= 2 && ip.charAt(0) == ':' && ip.charAt(1) == ':') {
+            gap = 0;
+            i = 2;
+        }
+        while (i < length) {
+            int start = i;
+            int value = 0;
+            int digit;
+            while (i < length && (digit = hexDigit(ip.charAt(i))) >= 0) {
+                value = (value << 4) | digit;
+                i++;
+            }
+            if (i < length && ip.charAt(i) == '.') {
+                // an embedded IPv4 address takes the last two words
+                if (words > IPV6_WORDS - 2 || !parseIpv4(ip, start, length, out, words * 2)) {
+                    return false;
+                }
+                words += 2;
+                break;
+            }
+            if (i == start || i - start > 4 || words == IPV6_WORDS) {
+                return false;
+            }
+            if (out != null) {
+                out[words * 2] = (byte) (value >>> 8);
+                out[words * 2 + 1] = (byte) value;
+            }
+            words++;
+            if (i == length) {
+                break;
+            }
+            if (ip.charAt(i++) != ':' || i == length) {
+                return false;
+            }
+            if (ip.charAt(i) == ':') {
+                if (gap >= 0) {
+                    return false;
+                }
+                gap = words;
+                i++;
+            }
+        }
+        if (gap < 0) {
+            return words == IPV6_WORDS;
+        }
+        if (words > IPV6_WORDS - 1) {
+            return false;
+        }
+        if (out != null) {
+            // move the words after "::" to the end and zero the gap
+            int tail = words - gap;
+            System.arraycopy(out, gap * 2, out, (IPV6_WORDS - tail) * 2, tail * 2);
+            for (int b = gap * 2; b < (IPV6_WORDS - tail) * 2; b++) {
+                out[b] = 0;
+            }
+        }
+        return true;
+    }
+}
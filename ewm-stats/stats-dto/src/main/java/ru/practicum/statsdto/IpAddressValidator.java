@@ -0,0 +1,11 @@
+package ru.practicum.statsdto;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+public class IpAddressValidator implements ConstraintValidator<IpAddress, CharSequence> {
+    @Override
+    public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+        return value == null || IpAddressFormat.isValid(value);
+    }
+}
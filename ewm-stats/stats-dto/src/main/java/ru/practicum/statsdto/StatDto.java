@@ -2,6 +2,7 @@ package ru.practicum.statsdto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -11,7 +12,6 @@ import lombok.Setter;
 
 import java.time.LocalDateTime;
 
-import static ru.practicum.statsdto.Constants.IPV4_OR_IPV6;
 import static ru.practicum.statsdto.Constants.URI_STARTS_WITH_SLASH;
 
 @Getter
@@ -26,8 +26,9 @@ public class StatDto {
     private String uri;
 
     @NotBlank
-    @Pattern(regexp = IPV4_OR_IPV6, message = "Invalid IP address format")
+    @IpAddress
     private String ip;
+    @NotNull
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime timestamp;
 }
@@ -0,0 +1,10 @@
+package ru.practicum.statsdto;
+
+/**
+ * Width of one point of a {@code /stats/timeseries} series.
+ */
+public enum StatsBucket {
+    MINUTE,
+    HOUR,
+    DAY
+}
@@ -0,0 +1,11 @@
+package ru.practicum.statsdto;
+
+public enum StatsPrecision {
+    EXACT,
+    /**
+     * Unique counts merged from per-day HyperLogLog sketches (2^12 registers).
+     * Standard error is about 1.6%, so 99.7% of estimates fall within ±5% of the exact count;
+     * small counts are effectively exact. Non-unique counts are always exact.
+     */
+    APPROXIMATE
+}
@@ -0,0 +1,50 @@
+package ru.practicum.statsdto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Body of {@code POST /stats/query}, for uri lists too long for a query string.
+ */
+@Getter
+@Setter
+@AllArgsConstructor(access = AccessLevel.PUBLIC)
+@NoArgsConstructor
+public class StatsRequest {
+    @NotNull
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime start;
+    @NotNull
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime end;
+    private List<String> uris;
+    private boolean unique;
+    /**
+     * Only hits recorded by this app; every app when null.
+     */
+    @Pattern(regexp = Constants.NON_BLANK, message = "must not be blank")
+    private String app;
+    /**
+     * As the {@code precision} parameter of {@code GET /stats}; exact when absent.
+     */
+    private StatsPrecision precision = StatsPrecision.EXACT;
+    /**
+     * Only the uris with the most hits; every uri when null.
+     */
+    @Positive
+    private Integer limit;
+
+    public StatsRequest(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique, String app) {
+        this(start, end, uris, unique, app, StatsPrecision.EXACT, null);
+    }
+}
@@ -0,0 +1,20 @@
+package ru.practicum.statsdto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Hits in the bucket that starts at {@code bucket}; buckets without hits are not returned.
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TimeSeriesPoint {
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime bucket;
+    private Long hits;
+}
@@ -1,30 +1,60 @@
 package ru.practicum.explorewithme;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import ru.practicum.explorewithme.config.StatsServerProperties;
+import ru.practicum.explorewithme.service.StatsQuery;
 import ru.practicum.explorewithme.service.StatsService;
+import ru.practicum.explorewithme.service.TimeSeriesQuery;
+import ru.practicum.statsdto.HitBatchResult;
 import ru.practicum.statsdto.StatDto;
+import ru.practicum.statsdto.StatsBucket;
+import ru.practicum.statsdto.StatsPrecision;
+import ru.practicum.statsdto.StatsRequest;
+import ru.practicum.statsdto.TimeSeriesPoint;
 import ru.practicum.statsdto.ViewStats;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static ru.practicum.statsdto.Constants.DATE_TIME;
+import static ru.practicum.statsdto.Constants.NON_BLANK;
 
 @RequiredArgsConstructor
 @Validated
 @RestController
 public class StatController {
+    private static final int MAX_HITS_PER_BATCH = 10_000;
+    private static final int MAX_TOP_LIMIT = 1_000;
+
     private final StatsService service;
+    private final ObjectMapper objectMapper;
+    private final StatsServerProperties properties;
 
     @PostMapping("/hit")
     @ResponseStatus(HttpStatus.CREATED)
@@ -32,13 +62,187 @@ public class StatController {
         return service.createStat(dto);
     }
 
+    /**
+     * Answers 201 when every hit was taken, otherwise 429 with {@code Retry-After}: the body then tells how many
+     * hits, from the start of the batch, were taken all the same.
+     */
+    @PostMapping("/hits/batch")
+    public ResponseEntity<HitBatchResult> saveHits(@RequestBody @NotEmpty @Size(max = MAX_HITS_PER_BATCH)
+                                                   List<@Valid StatDto> dtos) {
+        HitBatchResult result = service.createStats(dtos);
+        if (result.getAccepted() < result.getReceived()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER,
+                            String.valueOf(Math.max(1, properties.getIngestion().getRetryAfter().toSeconds())))
+                    .body(result);
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(result);
+    }
+
     @GetMapping("/stats")
     public List<ViewStats> getStats(@RequestParam(name = "start")
                                     @DateTimeFormat(pattern = DATE_TIME) LocalDateTime start,
                                     @RequestParam(name = "end")
                                     @DateTimeFormat(pattern = DATE_TIME) LocalDateTime end,
                                     @RequestParam(required = false) List<String> uris,
-                                    @RequestParam(name = "unique", defaultValue = "false") Boolean unique) {
-        return service.getStats(start, end, uris, unique);
+                                    @RequestParam(name = "app", required = false)
+                                    @Pattern(regexp = NON_BLANK, message = "must not be blank") String app,
+                                    @RequestParam(name = "unique", defaultValue = "false") Boolean unique,
+                                    @RequestParam(name = "precision", defaultValue = "EXACT")
+                                    StatsPrecision precision,
+                                    @RequestParam(name = "limit", required = false) @Positive Integer limit) {
+        return service.getStats(StatsQuery.builder()
+                .start(start)
+                .end(end)
+                .uris(uris)
+                .app(app)
+                .unique(unique)
+                .precision(precision)
+                .limit(limit)
+                .build());
+    }
+
+    /**
+     * The {@code limit} uris with the most hits, optionally only those starting with {@code prefix}
+     * or recorded by {@code app}.
+     */
+    @GetMapping("/stats/top")
+    public List<ViewStats> getTopStats(@RequestParam(name = "start")
+                                       @DateTimeFormat(pattern = DATE_TIME) LocalDateTime start,
+                                       @RequestParam(name = "end")
+                                       @DateTimeFormat(pattern = DATE_TIME) LocalDateTime end,
+                                       @RequestParam(name = "limit", defaultValue = "10")
+                                       @Positive @Max(MAX_TOP_LIMIT) Integer limit,
+                                       @RequestParam(name = "unique", defaultValue = "false") Boolean unique,
+                                       @RequestParam(name = "prefix", required = false) String prefix,
+                                       @RequestParam(name = "app", required = false)
+                                       @Pattern(regexp = NON_BLANK, message = "must not be blank") String app,
+                                       @RequestParam(name = "precision", defaultValue = "EXACT")
+                                       StatsPrecision precision) {
+        return service.getStats(StatsQuery.builder()
+                .start(start)
+                .end(end)
+                .uris(prefix == null ? null : List.of(prefix + "*"))
+                .app(app)
+                .unique(unique)
+                .precision(precision)
+                .limit(limit)
+                .build());
+    }
+
+    @PostMapping("/stats/query")
+    public List<ViewStats> queryStats(@RequestBody @Valid StatsRequest request) {
+        return service.getStats(StatsQuery.builder()
+                .start(request.getStart())
+                .end(request.getEnd())
+                .uris(request.getUris())
+                .app(request.getApp())
+                .unique(request.isUnique())
+                .precision(request.getPrecision() == null ? StatsPrecision.EXACT : request.getPrecision())
+                .limit(request.getLimit())
+                .build());
+    }
+
+    /**
+     * Writes rows to the response as they are read, as a JSON array or, when the client accepts it, as NDJSON.
+     */
+    @GetMapping(value = "/stats", params = "stream=true")
+    public void streamStats(@RequestParam(name = "start")
+                            @DateTimeFormat(pattern = DATE_TIME) LocalDateTime start,
+                            @RequestParam(name = "end")
+                            @DateTimeFormat(pattern = DATE_TIME) LocalDateTime end,
+                            @RequestParam(required = false) List<String> uris,
+                            @RequestParam(name = "app", required = false)
+                            @Pattern(regexp = NON_BLANK, message = "must not be blank") String app,
+                            @RequestParam(name = "unique", defaultValue = "false") Boolean unique,
+                            @RequestParam(name = "limit", required = false) @Positive Integer limit,
+                            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+                            HttpServletResponse response) throws IOException {
+        StatsQuery query = StatsQuery.builder()
+                .start(start)
+                .end(end)
+                .uris(uris)
+                .app(app)
+                .unique(unique)
+                .precision(StatsPrecision.EXACT)
+                .limit(limit)
+                .build();
+        JsonStreamWriter<ViewStats> writer = new JsonStreamWriter<>(response, isNdjson(accept));
+        service.streamStats(query, writer);
+        writer.finish();
+    }
+
+    /**
+     * Hits per minute, hour or day for one uri or uri pattern, streamed like {@code /stats?stream=true}.
+     */
+    @GetMapping("/stats/timeseries")
+    public void getTimeSeries(@RequestParam(name = "start")
+                              @DateTimeFormat(pattern = DATE_TIME) LocalDateTime start,
+                              @RequestParam(name = "end")
+                              @DateTimeFormat(pattern = DATE_TIME) LocalDateTime end,
+                              @RequestParam(name = "uri") String uri,
+                              @RequestParam(name = "bucket") StatsBucket bucket,
+                              @RequestParam(name = "unique", defaultValue = "false") Boolean unique,
+                              @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+                              HttpServletResponse response) throws IOException {
+        TimeSeriesQuery query = TimeSeriesQuery.builder()
+                .start(start)
+                .end(end)
+                .uri(uri)
+                .bucket(bucket)
+                .unique(unique)
+                .build();
+        JsonStreamWriter<TimeSeriesPoint> writer = new JsonStreamWriter<>(response, isNdjson(accept));
+        service.streamTimeSeries(query, writer);
+        writer.finish();
+    }
+
+    private static boolean isNdjson(String accept) {
+        return accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+    }
+
+    /**
+     * Opens the response lazily, so a validation error thrown before the first row still gets an error body.
+     */
+    @RequiredArgsConstructor
+    private class JsonStreamWriter<T> implements Consumer<T> {
+        private final HttpServletResponse response;
+        private final boolean ndjson;
+        private JsonGenerator generator;
+
+        @Override
+        public void accept(T row) {
+            try {
+                open();
+                generator.writeObject(row);
+                if (ndjson) {
+                    generator.writeRaw('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void open() throws IOException {
+            if (generator != null) {
+                return;
+            }
+            response.setContentType(ndjson ? MediaType.APPLICATION_NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+            if (ndjson) {
+                generator.setRootValueSeparator(null);
+            } else {
+                generator.writeStartArray();
+            }
+        }
+
+        private void finish() throws IOException {
+            open();
+            if (!ndjson) {
+                generator.writeEndArray();
+            }
+            generator.close();
+        }
     }
 }
@@ -3,10 +3,12 @@ package ru.practicum.explorewithme;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import ru.practicum.explorewithme.config.StatsServerProperties;
 
 @SpringBootApplication
 @EnableConfigurationProperties(StatsServerProperties.class)
+@EnableScheduling
 public class StatsApp {
     public static void main(String[] args) {
         SpringApplication.run(StatsApp.class, args);
@@ -0,0 +1,20 @@
+package ru.practicum.explorewithme.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Registers the bean only with the default {@link StorageEngine#JDBC} engine, so the segment engine starts
+ * without a data source.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Documented
+@ConditionalOnProperty(prefix = "stats-server.storage", name = "engine", havingValue = "jdbc", matchIfMissing = true)
+public @interface ConditionalOnJdbcStorage {
+}
@@ -0,0 +1,19 @@
+package ru.practicum.explorewithme.config;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Locale;
+
+public enum DatabaseDialect {
+    POSTGRESQL,
+    GENERIC;
+
+    public static DatabaseDialect detect(JdbcTemplate jdbcTemplate) {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return product != null && product.toLowerCase(Locale.ROOT).contains("postgres")
+                ? POSTGRESQL
+                : GENERIC;
+    }
+}
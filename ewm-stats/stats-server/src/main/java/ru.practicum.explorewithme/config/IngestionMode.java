@@ -0,0 +1,6 @@
+package ru.practicum.explorewithme.config;
+
+public enum IngestionMode {
+    SYNC,
+    BUFFERED
+}
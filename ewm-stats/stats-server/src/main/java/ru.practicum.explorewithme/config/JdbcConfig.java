@@ -0,0 +1,15 @@
+package ru.practicum.explorewithme.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@Configuration
+@ConditionalOnJdbcStorage
+public class JdbcConfig {
+
+    @Bean
+    public DatabaseDialect databaseDialect(JdbcTemplate jdbcTemplate) {
+        return DatabaseDialect.detect(jdbcTemplate);
+    }
+}
@@ -0,0 +1,29 @@
+package ru.practicum.explorewithme.config;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+public enum PartitionInterval {
+    DAY(DateTimeFormatter.ofPattern("yyyyMMdd")),
+    MONTH(DateTimeFormatter.ofPattern("yyyyMM"));
+
+    private final DateTimeFormatter suffixFormat;
+
+    PartitionInterval(DateTimeFormatter suffixFormat) {
+        this.suffixFormat = suffixFormat;
+    }
+
+    public LocalDate floor(LocalDateTime time) {
+        LocalDate date = time.toLocalDate();
+        return this == DAY ? date : date.withDayOfMonth(1);
+    }
+
+    public LocalDate next(LocalDate partitionStart) {
+        return this == DAY ? partitionStart.plusDays(1) : partitionStart.plusMonths(1);
+    }
+
+    public String suffix(LocalDate partitionStart) {
+        return partitionStart.format(suffixFormat);
+    }
+}
@@ -0,0 +1,47 @@
+package ru.practicum.explorewithme.config;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Connections from the replica while {@link ReplicaMonitor} considers it usable, from the primary otherwise or
+ * when the replica does not hand out a connection in time.
+ */
+class ReplicaFallbackDataSource extends AbstractDataSource {
+    private final DataSource replica;
+    private final DataSource primary;
+    private final ReplicaMonitor monitor;
+
+    ReplicaFallbackDataSource(DataSource replica, DataSource primary, ReplicaMonitor monitor) {
+        this.replica = replica;
+        this.primary = primary;
+        this.monitor = monitor;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (monitor.isUsable()) {
+            try {
+                return replica.getConnection();
+            } catch (SQLException e) {
+                monitor.markDown(e);
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (monitor.isUsable()) {
+            try {
+                return replica.getConnection(username, password);
+            } catch (SQLException e) {
+                monitor.markDown(e);
+            }
+        }
+        return primary.getConnection(username, password);
+    }
+}
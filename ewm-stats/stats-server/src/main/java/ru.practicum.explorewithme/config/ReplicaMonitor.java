@@ -0,0 +1,91 @@
+package ru.practicum.explorewithme.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import javax.sql.DataSource;
+
+/**
+ * Decides whether reads may go to the replica: it must answer and, on PostgreSQL, lag behind the primary by no
+ * more than {@code stats-server.replica.max-lag}. Other databases have no replication lag to read, so only
+ * liveness is checked. Until the first successful check reads stay on the primary.
+ */
+public class ReplicaMonitor implements SchedulingConfigurer {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaMonitor.class);
+    // a replica that has replayed everything it received is current, however old its last transaction
+    private static final String POSTGRES_LAG_SECONDS = "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StatsServerProperties.Replica settings;
+    private volatile DatabaseDialect dialect;
+    private volatile boolean usable;
+    private volatile double lagSeconds = Double.NaN;
+
+    public ReplicaMonitor(DataSource replica, StatsServerProperties properties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = new JdbcTemplate(replica);
+        this.settings = properties.getReplica();
+        Gauge.builder("stats.replica.usable", this, monitor -> monitor.usable ? 1 : 0)
+                .description("1 while read-only queries are routed to the replica")
+                .register(meterRegistry);
+        Gauge.builder("stats.replica.lag", this, monitor -> monitor.lagSeconds)
+                .description("Replication lag of the replica at the last check")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    public boolean isUsable() {
+        return usable;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(this::check, settings.getCheckInterval());
+    }
+
+    public void check() {
+        try {
+            if (dialect == null) {
+                dialect = DatabaseDialect.detect(jdbcTemplate);
+            }
+            Double lag = dialect == DatabaseDialect.POSTGRESQL
+                    ? jdbcTemplate.queryForObject(POSTGRES_LAG_SECONDS, Double.class)
+                    : jdbcTemplate.queryForObject("SELECT 0", Double.class);
+            lagSeconds = lag == null ? Double.NaN : lag;
+            if (lag == null || lag * 1000 > settings.getMaxLag().toMillis()) {
+                setUsable(false, "it lags behind by " + lag + "s");
+            } else {
+                setUsable(true, null);
+            }
+        } catch (DataAccessException e) {
+            markDown(e);
+        }
+    }
+
+    /**
+     * Called when a replica connection cannot be obtained; reads stay on the primary until the next good check.
+     */
+    public void markDown(Exception e) {
+        lagSeconds = Double.NaN;
+        setUsable(false, e.getMessage());
+    }
+
+    private void setUsable(boolean usable, String reason) {
+        if (this.usable == usable) {
+            return;
+        }
+        this.usable = usable;
+        if (usable) {
+            logger.info("Replica is available, routing read-only queries to it");
+        } else {
+            logger.warn("Routing read-only queries to the primary, replica is unusable: {}", reason);
+        }
+    }
+}
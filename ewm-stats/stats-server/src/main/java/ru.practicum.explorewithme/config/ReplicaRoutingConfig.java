@@ -0,0 +1,68 @@
+package ru.practicum.explorewithme.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Replaces the auto-configured data source with one that sends read-only transactions to a replica.
+ * <p>
+ * The lazy proxy fetches the real connection at the first statement, when the transaction has marked it
+ * read-only, so the choice between primary and replica is made per transaction. Reads may therefore see data
+ * up to {@code stats-server.replica.max-lag} old.
+ */
+@Configuration
+@ConditionalOnJdbcStorage
+@ConditionalOnProperty(prefix = "stats-server.replica", name = "enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(DataSourceProperties primaryProperties,
+                                              StatsServerProperties properties) {
+        StatsServerProperties.Replica settings = properties.getReplica();
+        HikariDataSource replica = new HikariDataSource();
+        replica.setPoolName("replica");
+        replica.setJdbcUrl(settings.getUrl());
+        replica.setUsername(settings.getUsername());
+        replica.setPassword(settings.getPassword());
+        replica.setDriverClassName(primaryProperties.determineDriverClassName());
+        replica.setMaximumPoolSize(settings.getMaxPoolSize());
+        replica.setConnectionTimeout(settings.getConnectionTimeout().toMillis());
+        // start even while the replica is down; reads use the primary until it comes up
+        replica.setInitializationFailTimeout(-1);
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    public ReplicaMonitor replicaMonitor(@Qualifier("replicaDataSource") DataSource replica,
+                                         StatsServerProperties properties,
+                                         MeterRegistry meterRegistry) {
+        return new ReplicaMonitor(replica, properties, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReplicaMonitor monitor) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(new ReplicaFallbackDataSource(replica, primary, monitor));
+        return dataSource;
+    }
+}
@@ -3,10 +3,173 @@ package ru.practicum.explorewithme.config;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
 
 @ConfigurationProperties(prefix = "stats-server")
 @Getter
 @Setter
 public class StatsServerProperties {
     private String url;
+    private Ingestion ingestion = new Ingestion();
+    private Rollup rollup = new Rollup();
+    private Sketch sketch = new Sketch();
+    private Partitioning partitioning = new Partitioning();
+    private HotIndex hotIndex = new HotIndex();
+    private Compaction compaction = new Compaction();
+    private Replica replica = new Replica();
+    private ResultCache resultCache = new ResultCache();
+    private Storage storage = new Storage();
+
+    @Getter
+    @Setter
+    public static class Ingestion {
+        /**
+         * SYNC commits every hit before answering, BUFFERED acknowledges right away and writes in the background.
+         */
+        private IngestionMode mode = IngestionMode.SYNC;
+        private int queueCapacity = 100_000;
+        private int maxBatchSize = 5_000;
+        private Duration flushInterval = Duration.ofMillis(500);
+        /**
+         * A buffered batch failing this many times in a row is written one hit at a time, dropping the hits the
+         * database rejects.
+         */
+        private int maxFlushAttempts = 3;
+        private Duration retryAfter = Duration.ofSeconds(1);
+    }
+
+    @Getter
+    @Setter
+    public static class Rollup {
+        /**
+         * Maintain per-minute/hour/day hit counts on ingest and answer non-unique stats from them.
+         */
+        private boolean enabled;
+    }
+
+    @Getter
+    @Setter
+    public static class Sketch {
+        /**
+         * Maintain per-day HyperLogLog sketches of visitor IPs and serve precision=approximate from them.
+         */
+        private boolean enabled;
+    }
+
+    @Getter
+    @Setter
+    public static class Partitioning {
+        /**
+         * Range-partition endpoint_hits by timestamp (PostgreSQL only; other databases keep a plain table).
+         */
+        private boolean enabled;
+        private PartitionInterval interval = PartitionInterval.MONTH;
+        /**
+         * Number of partitions kept ready ahead of the current one.
+         */
+        private int premake = 3;
+        /**
+         * Raw hits older than this are dropped a whole partition at a time; zero keeps everything.
+         */
+        private Duration retention = Duration.ZERO;
+    }
+
+    @Getter
+    @Setter
+    public static class HotIndex {
+        /**
+         * Keep all-time counters and visitor IP sets in memory and answer stats over windows covering every hit.
+         */
+        private boolean enabled;
+        /**
+         * Estimated heap budget; past it the index is dropped and queries go to the database until a rebuild.
+         */
+        private DataSize maxMemory = DataSize.ofMegabytes(256);
+    }
+
+    @Getter
+    @Setter
+    public static class Compaction {
+        /**
+         * Periodically fold raw hits older than {@code age} into per-hour visitor rows in compacted_hits.
+         */
+        private boolean enabled;
+        /**
+         * Hits are compacted a whole day at a time, once the day ends before now minus this age.
+         */
+        private Duration age = Duration.ofDays(30);
+        /**
+         * Raw hits moved per transaction, which bounds how long their row locks are held.
+         */
+        private int chunkSize = 5_000;
+    }
+
+    @Getter
+    @Setter
+    public static class Replica {
+        /**
+         * Send read-only transactions to this replica; the primary stays configured under spring.datasource.
+         */
+        private boolean enabled;
+        private String url;
+        private String username;
+        private String password;
+        private int maxPoolSize = 10;
+        /**
+         * Reads go back to the primary while the replica is further behind than this.
+         */
+        private Duration maxLag = Duration.ofSeconds(5);
+        private Duration checkInterval = Duration.ofSeconds(5);
+        /**
+         * How long a read waits for a replica connection before it falls back to the primary.
+         */
+        private Duration connectionTimeout = Duration.ofSeconds(1);
+    }
+
+    @Getter
+    @Setter
+    public static class ResultCache {
+        /**
+         * Cache /stats results keyed by the normalised query parameters.
+         */
+        private boolean enabled = true;
+        /**
+         * Bound on the cached result rows; past it the cache evicts the results least likely to be reused.
+         */
+        private long maxRows = 100_000;
+        /**
+         * How long a result may keep being served after hits it does not count were ingested;
+         * zero drops it on the first such hit.
+         */
+        private Duration maxStaleness = Duration.ZERO;
+        /**
+         * Start and end are truncated to this before they become part of the key, so queries whose window
+         * differs by less share a result.
+         */
+        private Duration keyResolution = Duration.ofSeconds(1);
+    }
+
+    @Getter
+    @Setter
+    public static class Storage {
+        private StorageEngine engine = StorageEngine.JDBC;
+        private Segment segment = new Segment();
+    }
+
+    @Getter
+    @Setter
+    public static class Segment {
+        private Path directory = Path.of("data", "segments");
+        /**
+         * Size of the mapped file hits are appended to; a full file is sorted and sealed as a new segment.
+         */
+        private DataSize segmentSize = DataSize.ofMegabytes(32);
+        /**
+         * Every this many records of a sealed segment get an entry in its sparse (uri, timestamp) index.
+         */
+        private int indexInterval = 128;
+    }
 }
@@ -0,0 +1,12 @@
+package ru.practicum.explorewithme.config;
+
+public enum StorageEngine {
+    /**
+     * Hits in endpoint_hits of the configured database, with rollups, sketches and the hot index on top.
+     */
+    JDBC,
+    /**
+     * Hits in append-only memory-mapped segment files on local disk; no database is needed.
+     */
+    SEGMENT
+}
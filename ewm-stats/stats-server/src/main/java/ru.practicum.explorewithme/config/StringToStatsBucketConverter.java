@@ -0,0 +1,19 @@
+package ru.practicum.explorewithme.config;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsdto.StatsBucket;
+
+import java.util.Locale;
+
+/**
+ * Accepts bucket=minute|hour|day in any case.
+ */
+@Component
+public class StringToStatsBucketConverter implements Converter<String, StatsBucket> {
+
+    @Override
+    public StatsBucket convert(String source) {
+        return StatsBucket.valueOf(source.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,19 @@
+package ru.practicum.explorewithme.config;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsdto.StatsPrecision;
+
+import java.util.Locale;
+
+/**
+ * Accepts precision=exact|approximate in any case.
+ */
+@Component
+public class StringToStatsPrecisionConverter implements Converter<String, StatsPrecision> {
+
+    @Override
+    public StatsPrecision convert(String source) {
+        return StatsPrecision.valueOf(source.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,22 @@
+package ru.practicum.explorewithme.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.practicum.statsdto.StatsWireFormat;
+
+import java.util.List;
+
+/**
+ * Accepts and produces Smile next to JSON. JSON stays first, so clients that do not ask for Smile are unaffected.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(MappingJackson2SmileHttpMessageConverter.class::isInstance);
+        converters.add(new MappingJackson2SmileHttpMessageConverter(StatsWireFormat.smileMapper()));
+    }
+}
@@ -24,11 +24,16 @@ public class Stat {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    private String app;
+    @Column(name = "app_id")
+    private Integer appId;
 
-    private String uri;
+    @Column(name = "uri_id")
+    private Integer uriId;
 
-    private String ip;
+    /**
+     * 4 bytes for IPv4, 16 bytes for IPv6.
+     */
+    private byte[] ip;
 
     @Column(name = "timestamp")
     private LocalDateTime timestamp;
@@ -0,0 +1,18 @@
+package ru.practicum.explorewithme.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "stat_apps")
+@Getter
+@NoArgsConstructor
+public class StatApp {
+    @Id
+    private Integer id;
+
+    private String name;
+}
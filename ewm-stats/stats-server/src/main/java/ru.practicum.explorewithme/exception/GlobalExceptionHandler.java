@@ -1,8 +1,11 @@
 package ru.practicum.explorewithme.exception;
 
+import jakarta.validation.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
@@ -60,6 +63,21 @@ public class GlobalExceptionHandler {
                 message);
     }
 
+    @ExceptionHandler(ConstraintViolationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleConstraintViolation(ConstraintViolationException ex) {
+        String message = ex.getConstraintViolations()
+                .stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .collect(Collectors.joining("; "));
+
+        logger.error("Validation failed: {}", message);
+
+        return new ErrorResponse(HttpStatus.BAD_REQUEST.value(),
+                "Validation error",
+                message);
+    }
+
     @ExceptionHandler(HttpMessageNotReadableException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleInvalidFormat(HttpMessageNotReadableException ex) {
@@ -88,5 +106,20 @@ public class GlobalExceptionHandler {
         return new ErrorResponse(HttpStatus.BAD_REQUEST.value(),
                 "Invalid 'uris' parameter", ex.getMessage());
     }
-}
 
+    @ExceptionHandler(InvalidIpAddressException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleInvalidIpAddress(InvalidIpAddressException ex) {
+        return new ErrorResponse(HttpStatus.BAD_REQUEST.value(),
+                "Invalid IP address", ex.getMessage());
+    }
+
+    @ExceptionHandler(IngestionBufferFullException.class)
+    public ResponseEntity<ErrorResponse> handleBufferFull(IngestionBufferFullException ex) {
+        logger.warn("Rejecting hits: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(new ErrorResponse(HttpStatus.TOO_MANY_REQUESTS.value(),
+                        "Too many requests", ex.getMessage()));
+    }
+}
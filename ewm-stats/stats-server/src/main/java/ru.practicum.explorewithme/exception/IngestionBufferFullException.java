@@ -0,0 +1,15 @@
+package ru.practicum.explorewithme.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+@Getter
+public class IngestionBufferFullException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public IngestionBufferFullException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
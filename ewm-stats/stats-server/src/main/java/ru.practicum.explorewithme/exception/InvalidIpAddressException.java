@@ -0,0 +1,7 @@
+package ru.practicum.explorewithme.exception;
+
+public class InvalidIpAddressException extends RuntimeException {
+    public InvalidIpAddressException(String message) {
+        super(message);
+    }
+}
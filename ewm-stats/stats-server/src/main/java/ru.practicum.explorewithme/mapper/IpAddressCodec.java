@@ -0,0 +1,32 @@
+package ru.practicum.explorewithme.mapper;
+
+import org.mapstruct.Named;
+import ru.practicum.explorewithme.exception.InvalidIpAddressException;
+import ru.practicum.statsdto.IpAddressFormat;
+
+/**
+ * Maps textual IPv4/IPv6 addresses to the 4/16-byte network form they are stored in and back,
+ * see {@link IpAddressFormat}.
+ */
+public final class IpAddressCodec {
+    private IpAddressCodec() {
+    }
+
+    @Named("ipToBytes")
+    public static byte[] toBytes(String ip) {
+        try {
+            return IpAddressFormat.toBytes(ip);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidIpAddressException(e.getMessage());
+        }
+    }
+
+    @Named("ipToString")
+    public static String toString(byte[] ip) {
+        try {
+            return IpAddressFormat.toString(ip);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidIpAddressException(e.getMessage());
+        }
+    }
+}
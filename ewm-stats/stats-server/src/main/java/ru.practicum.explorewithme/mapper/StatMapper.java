@@ -1,12 +1,28 @@
 package ru.practicum.explorewithme.mapper;
 
+import org.mapstruct.AnnotateWith;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import ru.practicum.explorewithme.config.ConditionalOnJdbcStorage;
 import ru.practicum.explorewithme.entity.Stat;
+import ru.practicum.explorewithme.service.HitDictionary;
 import ru.practicum.statsdto.StatDto;
 
-@Mapper(componentModel = "spring")
+import java.util.List;
+
+@AnnotateWith(ConditionalOnJdbcStorage.class)
+@Mapper(componentModel = "spring", uses = {HitDictionary.class, IpAddressCodec.class})
 public interface StatMapper {
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "appId", source = "app", qualifiedByName = "appId")
+    @Mapping(target = "uriId", source = "uri", qualifiedByName = "uriId")
+    @Mapping(target = "ip", source = "ip", qualifiedByName = "ipToBytes")
     Stat toEntity(StatDto dto);
 
+    @Mapping(target = "app", source = "appId", qualifiedByName = "appName")
+    @Mapping(target = "uri", source = "uriId", qualifiedByName = "uriName")
+    @Mapping(target = "ip", source = "ip", qualifiedByName = "ipToString")
     StatDto toDto(Stat hit);
+
+    List<Stat> toEntities(List<StatDto> dtos);
 }
@@ -0,0 +1,101 @@
+package ru.practicum.explorewithme.segment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static ru.practicum.explorewithme.segment.SegmentFormat.RECORD_SIZE;
+
+/**
+ * The memory-mapped file new hits are appended to, in arrival order. Its size is fixed up front and unused space
+ * stays zeroed, so after a restart the records are recovered by reading up to the first empty one.
+ * Not thread-safe: guarded by the storage lock.
+ */
+final class ActiveSegment implements Closeable {
+    private final Path path;
+    private final long sequence;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int count;
+
+    private ActiveSegment(Path path, long sequence, FileChannel channel, MappedByteBuffer buffer) {
+        this.path = path;
+        this.sequence = sequence;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = buffer.capacity() / RECORD_SIZE;
+    }
+
+    /**
+     * Opens the file, creating it with room for {@code sizeBytes} of records, and recovers the records in it.
+     */
+    static ActiveSegment open(Path path, long sequence, long sizeBytes) throws IOException {
+        long size = Files.exists(path) ? Files.size(path) : sizeBytes / RECORD_SIZE * RECORD_SIZE;
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        ActiveSegment segment = new ActiveSegment(path, sequence, channel, buffer);
+        while (segment.count < segment.capacity && SegmentFormat.appId(buffer, segment.count * RECORD_SIZE) != 0) {
+            segment.count++;
+        }
+        return segment;
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    int count() {
+        return count;
+    }
+
+    boolean isFull() {
+        return count == capacity;
+    }
+
+    void append(int appId, int uriId, long timestamp, byte[] ip) {
+        SegmentFormat.write(buffer, count * RECORD_SIZE, appId, uriId, timestamp, ip);
+        count++;
+    }
+
+    /**
+     * Visits records with a timestamp in [from, to] and, unless {@code uriIds} is null, one of the sorted uri ids.
+     */
+    void scan(long from, long to, int[] uriIds, RecordVisitor visitor) {
+        for (int i = 0; i < count; i++) {
+            int offset = i * RECORD_SIZE;
+            long timestamp = SegmentFormat.timestamp(buffer, offset);
+            if (timestamp >= from && timestamp <= to
+                    && (uriIds == null || Arrays.binarySearch(uriIds, SegmentFormat.uriId(buffer, offset)) >= 0)) {
+                visitor.visit(buffer, offset);
+            }
+        }
+    }
+
+    /**
+     * Writes the records sorted by (uri, timestamp) as a sealed segment.
+     */
+    SealedSegment seal(Path target, int indexInterval) throws IOException {
+        buffer.force();
+        return SealedSegment.write(target, buffer, count, indexInterval);
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            buffer.force();
+            channel.close();
+        }
+    }
+}
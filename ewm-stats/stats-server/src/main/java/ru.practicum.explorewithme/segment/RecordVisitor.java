@@ -0,0 +1,11 @@
+package ru.practicum.explorewithme.segment;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives matching records in place; fields are read with the {@link SegmentFormat} accessors.
+ */
+@FunctionalInterface
+interface RecordVisitor {
+    void visit(ByteBuffer buffer, int offset);
+}
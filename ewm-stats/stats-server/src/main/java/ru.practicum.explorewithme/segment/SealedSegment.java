@@ -0,0 +1,172 @@
+package ru.practicum.explorewithme.segment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static ru.practicum.explorewithme.segment.SegmentFormat.RECORD_SIZE;
+
+/**
+ * An immutable, memory-mapped segment: a header, records sorted by (uri id, timestamp) and a sparse index
+ * holding the key and position of every {@code indexInterval}-th record. Reading one uri over a time range
+ * binary-searches the index and scans at most one interval before the first match.
+ */
+final class SealedSegment implements Closeable {
+    private static final int MAGIC = 0x53545347;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int INDEX_ENTRY_SIZE = 16;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int indexCount;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+
+    private SealedSegment(Path path, FileChannel channel, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a stats segment: " + path);
+        }
+        this.count = buffer.getInt(8);
+        this.indexCount = buffer.getInt(12);
+        this.minTimestamp = buffer.getLong(16);
+        this.maxTimestamp = buffer.getLong(24);
+    }
+
+    static SealedSegment open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        return new SealedSegment(path, channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+
+    /**
+     * Sorts {@code count} records of {@code source}, writes them to a temporary file and moves it into place,
+     * so a segment file either is complete or does not exist.
+     */
+    static SealedSegment write(Path path, ByteBuffer source, int count, int indexInterval) throws IOException {
+        Integer[] order = new Integer[count];
+        long minTimestamp = Long.MAX_VALUE;
+        long maxTimestamp = Long.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+            long timestamp = SegmentFormat.timestamp(source, i * RECORD_SIZE);
+            minTimestamp = Math.min(minTimestamp, timestamp);
+            maxTimestamp = Math.max(maxTimestamp, timestamp);
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i -> SegmentFormat.uriId(source, i * RECORD_SIZE))
+                .thenComparingLong(i -> SegmentFormat.timestamp(source, i * RECORD_SIZE)));
+
+        int indexCount = (count + indexInterval - 1) / indexInterval;
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + count * RECORD_SIZE + indexCount * INDEX_ENTRY_SIZE);
+        out.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(indexCount)
+                .putLong(minTimestamp).putLong(maxTimestamp);
+        int indexOffset = HEADER_SIZE + count * RECORD_SIZE;
+        for (int position = 0; position < count; position++) {
+            int from = order[position] * RECORD_SIZE;
+            out.put(HEADER_SIZE + position * RECORD_SIZE, source, from, RECORD_SIZE);
+            if (position % indexInterval == 0) {
+                out.putInt(indexOffset, SegmentFormat.uriId(source, from))
+                        .putInt(indexOffset + 4, position)
+                        .putLong(indexOffset + 8, SegmentFormat.timestamp(source, from));
+                indexOffset += INDEX_ENTRY_SIZE;
+            }
+        }
+        out.clear();
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        return open(path);
+    }
+
+    int count() {
+        return count;
+    }
+
+    /**
+     * Visits records with a timestamp in [from, to] and, unless {@code uriIds} is null, one of the sorted uri ids.
+     */
+    void scan(long from, long to, int[] uriIds, RecordVisitor visitor) {
+        if (count == 0 || to < minTimestamp || from > maxTimestamp) {
+            return;
+        }
+        if (uriIds == null) {
+            for (int position = 0; position < count; position++) {
+                int offset = HEADER_SIZE + position * RECORD_SIZE;
+                long timestamp = SegmentFormat.timestamp(buffer, offset);
+                if (timestamp >= from && timestamp <= to) {
+                    visitor.visit(buffer, offset);
+                }
+            }
+            return;
+        }
+        for (int uriId : uriIds) {
+            for (int position = seek(uriId, from); position < count; position++) {
+                int offset = HEADER_SIZE + position * RECORD_SIZE;
+                int recordUri = SegmentFormat.uriId(buffer, offset);
+                if (recordUri > uriId) {
+                    break;
+                }
+                long timestamp = SegmentFormat.timestamp(buffer, offset);
+                if (recordUri < uriId || timestamp < from) {
+                    continue;
+                }
+                if (timestamp > to) {
+                    break;
+                }
+                visitor.visit(buffer, offset);
+            }
+        }
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Position of the last indexed record whose key is below (uriId, from), or 0.
+     */
+    private int seek(int uriId, long from) {
+        int indexStart = HEADER_SIZE + count * RECORD_SIZE;
+        int lo = 0;
+        int hi = indexCount - 1;
+        int found = 0;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int entry = indexStart + mid * INDEX_ENTRY_SIZE;
+            int entryUri = buffer.getInt(entry);
+            long entryTimestamp = buffer.getLong(entry + 8);
+            if (entryUri < uriId || (entryUri == uriId && entryTimestamp < from)) {
+                found = buffer.getInt(entry + 4);
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+}
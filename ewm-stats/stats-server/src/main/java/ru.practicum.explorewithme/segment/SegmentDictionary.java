@@ -0,0 +1,146 @@
+package ru.practicum.explorewithme.segment;
+
+import ru.practicum.explorewithme.service.UriFilter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * App and uri ids for the segment engine, kept in memory and appended to a log file as they are assigned.
+ * Each entry is a kind byte, a length short and the UTF-8 name; ids follow the order of entries per kind.
+ * A torn entry at the end of the log is cut off when it is opened. Not thread-safe: guarded by the storage lock.
+ */
+final class SegmentDictionary implements Closeable {
+    private static final byte APP = 0;
+    private static final byte URI = 1;
+    private static final int ENTRY_HEADER = Byte.BYTES + Short.BYTES;
+    private static final int MAX_NAME_BYTES = 0xFFFF;
+
+    private final FileChannel channel;
+    private final Map<String, Integer> appIds = new HashMap<>();
+    private final Map<String, Integer> uriIds = new HashMap<>();
+    private final List<String> appNames = new ArrayList<>();
+    private final List<String> uriNames = new ArrayList<>();
+
+    private SegmentDictionary(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    static SegmentDictionary open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        SegmentDictionary dictionary = new SegmentDictionary(channel);
+        ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(file));
+        long valid = 0;
+        while (log.remaining() >= ENTRY_HEADER) {
+            byte kind = log.get();
+            int length = Short.toUnsignedInt(log.getShort());
+            if (log.remaining() < length) {
+                break;
+            }
+            byte[] name = new byte[length];
+            log.get(name);
+            dictionary.register(kind, new String(name, StandardCharsets.UTF_8));
+            valid = log.position();
+        }
+        channel.truncate(valid);
+        channel.position(valid);
+        return dictionary;
+    }
+
+    int appId(String app) throws IOException {
+        Integer id = appIds.get(app);
+        return id != null ? id : append(APP, app);
+    }
+
+    int uriId(String uri) throws IOException {
+        Integer id = uriIds.get(uri);
+        return id != null ? id : append(URI, uri);
+    }
+
+    /**
+     * @return the id, or null when the app has never recorded a hit
+     */
+    Integer findAppId(String app) {
+        return appIds.get(app);
+    }
+
+    String appName(int id) {
+        return appNames.get(id - 1);
+    }
+
+    String uriName(int id) {
+        return uriNames.get(id - 1);
+    }
+
+    /**
+     * Ids of the known uris the filter matches, in ascending order.
+     */
+    int[] uriIds(UriFilter filter) {
+        if (filter.prefixes().isEmpty()) {
+            return filter.exact().stream()
+                    .map(uriIds::get)
+                    .filter(id -> id != null)
+                    .mapToInt(Integer::intValue)
+                    .sorted()
+                    .toArray();
+        }
+        int[] ids = new int[uriNames.size()];
+        int count = 0;
+        for (int i = 0; i < uriNames.size(); i++) {
+            if (filter.matches(uriNames.get(i))) {
+                ids[count++] = i + 1;
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the name does not fit the unsigned short length of a log entry
+     */
+    static byte[] encode(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Name is longer than " + MAX_NAME_BYTES + " UTF-8 bytes: "
+                    + name.substring(0, 64) + "...");
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.force(true);
+        channel.close();
+    }
+
+    private int append(byte kind, String name) throws IOException {
+        byte[] bytes = encode(name);
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_HEADER + bytes.length)
+                .put(kind)
+                .putShort((short) bytes.length)
+                .put(bytes)
+                .flip();
+        while (entry.hasRemaining()) {
+            channel.write(entry);
+        }
+        return register(kind, name);
+    }
+
+    private int register(byte kind, String name) {
+        List<String> names = kind == APP ? appNames : uriNames;
+        names.add(name);
+        (kind == APP ? appIds : uriIds).put(name, names.size());
+        return names.size();
+    }
+}
@@ -0,0 +1,73 @@
+package ru.practicum.explorewithme.segment;
+
+import ru.practicum.explorewithme.service.HyperLogLog;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Fixed 32-byte hit records shared by active and sealed segments:
+ * app id (int), uri id (int), timestamp (epoch millis of the wall-clock time read as UTC) and a 16-byte IP,
+ * IPv4 stored as an IPv4-mapped IPv6 address. Ids start at 1, so an app id of 0 marks unused space.
+ */
+final class SegmentFormat {
+    static final int RECORD_SIZE = 32;
+    static final int APP_ID = 0;
+    static final int URI_ID = 4;
+    static final int TIMESTAMP = 8;
+    static final int IP = 16;
+
+    private static final int IPV6_BYTES = 16;
+
+    private SegmentFormat() {
+    }
+
+    static int appId(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + APP_ID);
+    }
+
+    static int uriId(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + URI_ID);
+    }
+
+    static long timestamp(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + TIMESTAMP);
+    }
+
+    /**
+     * 64-bit hash of the stored IP; two different addresses collide with probability around 2^-64.
+     */
+    static long ipHash(ByteBuffer buffer, int offset) {
+        long high = buffer.getLong(offset + IP);
+        long low = buffer.getLong(offset + IP + Long.BYTES);
+        return HyperLogLog.mix64(high ^ HyperLogLog.mix64(low));
+    }
+
+    /**
+     * Writes a record with the app id last, so a torn write is never read back as a hit.
+     */
+    static void write(ByteBuffer buffer, int offset, int appId, int uriId, long timestamp, byte[] ip) {
+        int ipOffset = offset + IP;
+        if (ip.length == IPV6_BYTES) {
+            buffer.put(ipOffset, ip);
+        } else {
+            buffer.putLong(ipOffset, 0L);
+            buffer.putShort(ipOffset + Long.BYTES, (short) 0);
+            buffer.putShort(ipOffset + Long.BYTES + Short.BYTES, (short) 0xFFFF);
+            buffer.put(ipOffset + IPV6_BYTES - ip.length, ip);
+        }
+        buffer.putLong(offset + TIMESTAMP, timestamp);
+        buffer.putInt(offset + URI_ID, uriId);
+        buffer.putInt(offset + APP_ID, appId);
+    }
+
+    static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+}
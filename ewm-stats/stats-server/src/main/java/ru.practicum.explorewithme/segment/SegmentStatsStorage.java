@@ -0,0 +1,325 @@
+package ru.practicum.explorewithme.segment;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.explorewithme.config.StatsServerProperties;
+import ru.practicum.explorewithme.mapper.IpAddressCodec;
+import ru.practicum.explorewithme.service.LongHashSet;
+import ru.practicum.explorewithme.service.RollupGranularity;
+import ru.practicum.explorewithme.service.StatsQuery;
+import ru.practicum.explorewithme.service.StatsResultCache;
+import ru.practicum.explorewithme.service.StatsStorage;
+import ru.practicum.explorewithme.service.TimeSeriesQuery;
+import ru.practicum.explorewithme.service.TopStatsCollector;
+import ru.practicum.explorewithme.service.UriFilter;
+import ru.practicum.statsdto.StatDto;
+import ru.practicum.statsdto.TimeSeriesPoint;
+import ru.practicum.statsdto.ViewStats;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Stores hits in append-only segment files under {@code stats-server.storage.segment.directory}, without a
+ * database. Hits are appended to a memory-mapped active segment; when it is full it is sorted by (uri, timestamp)
+ * and sealed with a sparse index, and a new active segment is started. Queries scan the active segment and every
+ * sealed segment whose time range overlaps, using the index when uris are given. Sorting and writing a full
+ * segment happens outside the lock, so ingest and queries carry on meanwhile.
+ * <p>
+ * Unique counts compare 64-bit hashes of the visitor IPs, so they are exact unless two addresses collide.
+ * Writes take an exclusive lock and queries a shared one. Writes reach the page cache before the call returns and
+ * are forced to disk when a segment is sealed and on shutdown.
+ */
+@Component
+@ConditionalOnProperty(prefix = "stats-server.storage", name = "engine", havingValue = "segment")
+public class SegmentStatsStorage implements StatsStorage {
+    private static final Logger logger = LoggerFactory.getLogger(SegmentStatsStorage.class);
+    private static final String SEALED_SUFFIX = ".seg";
+    private static final String ACTIVE_SUFFIX = ".active";
+
+    private final Path directory;
+    private final long segmentSize;
+    private final int indexInterval;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SegmentDictionary dictionary;
+    private final StatsResultCache resultCache;
+    private final List<SealedSegment> sealed = new ArrayList<>();
+    // full segments being sealed outside the lock, still scanned as they are
+    private final List<ActiveSegment> sealing = new ArrayList<>();
+    private ActiveSegment active;
+
+    public SegmentStatsStorage(StatsServerProperties properties, StatsResultCache resultCache) throws IOException {
+        StatsServerProperties.Segment config = properties.getStorage().getSegment();
+        this.directory = config.getDirectory();
+        this.segmentSize = config.getSegmentSize().toBytes();
+        this.indexInterval = config.getIndexInterval();
+        this.resultCache = resultCache;
+        Files.createDirectories(directory);
+        this.dictionary = SegmentDictionary.open(directory.resolve("dictionary.log"));
+        open();
+    }
+
+    @Override
+    public StatDto save(StatDto dto) {
+        saveAll(List.of(dto));
+        return dto;
+    }
+
+    /**
+     * Appends the hits under the write lock. A segment that fills up is swapped for a new active one there, and
+     * sorted and sealed only after the lock is released.
+     */
+    @Override
+    public int saveAll(List<StatDto> dtos) {
+        List<byte[]> ips = new ArrayList<>(dtos.size());
+        long[] timestamps = new long[dtos.size()];
+        for (int i = 0; i < dtos.size(); i++) {
+            // checked up front so that a bad hit does not leave half of the batch stored
+            StatDto dto = dtos.get(i);
+            SegmentDictionary.encode(dto.getApp());
+            SegmentDictionary.encode(dto.getUri());
+            ips.add(IpAddressCodec.toBytes(dto.getIp()));
+            if (dto.getTimestamp() == null) {
+                throw new IllegalArgumentException("Hit of " + dto.getUri() + " has no timestamp");
+            }
+            timestamps[i] = SegmentFormat.toMillis(dto.getTimestamp());
+        }
+        List<ActiveSegment> full = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < dtos.size(); i++) {
+                StatDto dto = dtos.get(i);
+                if (active.isFull()) {
+                    full.add(roll());
+                }
+                active.append(dictionary.appId(dto.getApp()), dictionary.uriId(dto.getUri()),
+                        timestamps[i], ips.get(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        resultCache.onIngest();
+        full.forEach(this::sealFull);
+        return dtos.size();
+    }
+
+    @Override
+    public List<ViewStats> getStats(StatsQuery query) {
+        Map<Long, Counter> counters = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            Integer appId = query.app() == null ? null : dictionary.findAppId(query.app());
+            if (query.app() != null && appId == null) {
+                return List.of();
+            }
+            scan(query.start(), query.end(), query.uris(), new RecordVisitor() {
+                private long lastKey = -1;
+                private Counter last;
+
+                @Override
+                public void visit(ByteBuffer buffer, int offset) {
+                    if (appId != null && SegmentFormat.appId(buffer, offset) != appId) {
+                        return;
+                    }
+                    long key = (long) SegmentFormat.appId(buffer, offset) << 32 | SegmentFormat.uriId(buffer, offset);
+                    if (key != lastKey) {
+                        lastKey = key;
+                        last = counters.computeIfAbsent(key, k -> new Counter(query.unique()));
+                    }
+                    last.add(buffer, offset);
+                }
+            });
+            TopStatsCollector top = new TopStatsCollector(query.limit() == null ? counters.size() : query.limit());
+            counters.forEach((key, counter) -> top.accept(new ViewStats(dictionary.appName((int) (key >>> 32)),
+                    dictionary.uriName((int) (long) key), counter.hits())));
+            return top.result();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void streamStats(StatsQuery query, Consumer<ViewStats> consumer) {
+        getStats(query).forEach(consumer);
+    }
+
+    @Override
+    public void streamTimeSeries(TimeSeriesQuery query, Consumer<TimeSeriesPoint> consumer) {
+        long bucketMillis = RollupGranularity.of(query.bucket()).millis();
+        TreeMap<Long, Counter> buckets = new TreeMap<>();
+        lock.readLock().lock();
+        try {
+            scan(query.start(), query.end(), List.of(query.uri()), (buffer, offset) -> {
+                long bucket = Math.floorDiv(SegmentFormat.timestamp(buffer, offset), bucketMillis) * bucketMillis;
+                buckets.computeIfAbsent(bucket, k -> new Counter(query.unique())).add(buffer, offset);
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        buckets.forEach((bucket, counter) ->
+                consumer.accept(new TimeSeriesPoint(SegmentFormat.fromMillis(bucket), counter.hits())));
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            active.close();
+            for (ActiveSegment segment : sealing) {
+                segment.close();
+            }
+            for (SealedSegment segment : sealed) {
+                segment.close();
+            }
+            dictionary.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void scan(LocalDateTime start, LocalDateTime end, List<String> uris, RecordVisitor visitor) {
+        int[] uriIds = uris == null ? null : dictionary.uriIds(UriFilter.of(uris));
+        if (uriIds != null && uriIds.length == 0) {
+            return;
+        }
+        long from = SegmentFormat.toMillis(start);
+        long to = SegmentFormat.toMillis(end);
+        for (SealedSegment segment : sealed) {
+            segment.scan(from, to, uriIds, visitor);
+        }
+        for (ActiveSegment segment : sealing) {
+            segment.scan(from, to, uriIds, visitor);
+        }
+        active.scan(from, to, uriIds, visitor);
+    }
+
+    /**
+     * Opens the sealed segments in sequence order and recovers the active one. An active file whose sealed copy
+     * already exists was sealed just before a crash and is dropped.
+     */
+    private void open() throws IOException {
+        List<Long> activeSequences = new ArrayList<>();
+        long next = 1;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.sorted().toList()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SEALED_SUFFIX)) {
+                    sealed.add(SealedSegment.open(file));
+                    next = sequence(name, SEALED_SUFFIX) + 1;
+                } else if (name.endsWith(ACTIVE_SUFFIX)) {
+                    activeSequences.add(sequence(name, ACTIVE_SUFFIX));
+                } else if (name.endsWith(".tmp")) {
+                    Files.delete(file);
+                }
+            }
+        }
+        for (long sequence : activeSequences) {
+            ActiveSegment segment = ActiveSegment.open(file(sequence, ACTIVE_SUFFIX), sequence, segmentSize);
+            if (Files.exists(file(sequence, SEALED_SUFFIX))) {
+                segment.delete();
+            } else if (active == null) {
+                active = segment;
+            } else {
+                seal(active);
+                active = segment;
+            }
+            next = Math.max(next, sequence);
+        }
+        if (active == null) {
+            active = ActiveSegment.open(file(next, ACTIVE_SUFFIX), next, segmentSize);
+        }
+        logger.info("Opened {} sealed segments and an active segment with {} hits in {}",
+                sealed.size(), active.count(), directory);
+    }
+
+    /**
+     * Starts the next active segment; the full one stays readable until {@link #sealFull} replaces it.
+     *
+     * @return the full segment
+     */
+    private ActiveSegment roll() throws IOException {
+        ActiveSegment full = active;
+        long next = full.sequence() + 1;
+        active = ActiveSegment.open(file(next, ACTIVE_SUFFIX), next, segmentSize);
+        sealing.add(full);
+        return full;
+    }
+
+    /**
+     * Sorts and writes a full segment without holding the lock, then swaps it for its sealed copy. Should that fail,
+     * the full segment keeps being read as it is and is sealed on the next start.
+     */
+    private void sealFull(ActiveSegment segment) {
+        SealedSegment sealedSegment;
+        try {
+            sealedSegment = segment.seal(file(segment.sequence(), SEALED_SUFFIX), indexInterval);
+        } catch (IOException e) {
+            logger.error("Could not seal segment {}, it stays active until the next start", segment.sequence(), e);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            sealing.remove(segment);
+            sealed.add(sealedSegment);
+            segment.delete();
+        } catch (IOException e) {
+            logger.warn("Could not delete sealed active segment {}", segment.sequence(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Sealed segment {} with {} hits", segment.sequence(), segment.count());
+    }
+
+    private void seal(ActiveSegment segment) throws IOException {
+        sealed.add(segment.seal(file(segment.sequence(), SEALED_SUFFIX), indexInterval));
+        segment.delete();
+        logger.info("Sealed segment {} with {} hits", segment.sequence(), segment.count());
+    }
+
+    private Path file(long sequence, String suffix) {
+        return directory.resolve(String.format("%012d%s", sequence, suffix));
+    }
+
+    private static long sequence(String name, String suffix) {
+        return Long.parseLong(name.substring(0, name.length() - suffix.length()));
+    }
+
+    private static final class Counter {
+        private final LongHashSet ips;
+        private long hits;
+
+        private Counter(boolean unique) {
+            this.ips = unique ? new LongHashSet() : null;
+        }
+
+        private void add(ByteBuffer buffer, int offset) {
+            if (ips != null) {
+                ips.add(SegmentFormat.ipHash(buffer, offset));
+            } else {
+                hits++;
+            }
+        }
+
+        private long hits() {
+            return ips != null ? ips.size() : hits;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package ru.practicum.explorewithme.service;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.explorewithme.config.ConditionalOnJdbcStorage;
+import ru.practicum.explorewithme.exception.InvalidIpAddressException;
+import ru.practicum.explorewithme.mapper.IpAddressCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts an endpoint_hits table with string app, uri and ip columns in place to dictionary ids
+ * and binary IPs. Plain and partitioned tables are handled alike, since ALTER TABLE propagates to partitions.
+ */
+@Component
+@ConditionalOnJdbcStorage
+@RequiredArgsConstructor
+public class DictionaryEncodingMigration {
+    private static final Logger logger = LoggerFactory.getLogger(DictionaryEncodingMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return whether a legacy table was found and converted
+     */
+    public boolean migrateIfNeeded() {
+        Integer legacyColumns = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.columns " +
+                "WHERE table_schema = CURRENT_SCHEMA AND LOWER(table_name) = 'endpoint_hits' " +
+                "AND LOWER(column_name) = 'uri'", Integer.class);
+        if (legacyColumns == null || legacyColumns == 0) {
+            return false;
+        }
+        logger.info("Converting endpoint_hits to dictionary-encoded app and uri and binary ip columns");
+        int apps = jdbcTemplate.update("INSERT INTO stat_apps (name) SELECT DISTINCT e.app FROM endpoint_hits e " +
+                "WHERE NOT EXISTS (SELECT 1 FROM stat_apps a WHERE a.name = e.app)");
+        int uris = jdbcTemplate.update("INSERT INTO stat_uris (uri) SELECT DISTINCT e.uri FROM endpoint_hits e " +
+                "WHERE NOT EXISTS (SELECT 1 FROM stat_uris u WHERE u.uri = e.uri)");
+        logger.info("Interned {} apps and {} uris", apps, uris);
+
+        jdbcTemplate.execute("CREATE TABLE endpoint_hit_ips_migration (" +
+                "ip VARCHAR(255) NOT NULL PRIMARY KEY, ip_bytes BYTEA NOT NULL)");
+        List<Object[]> ips = new ArrayList<>();
+        for (String ip : jdbcTemplate.queryForList("SELECT DISTINCT ip FROM endpoint_hits", String.class)) {
+            try {
+                ips.add(new Object[]{ip, IpAddressCodec.toBytes(ip)});
+            } catch (InvalidIpAddressException e) {
+                logger.warn("Dropping hits with unparseable ip '{}'", ip);
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO endpoint_hit_ips_migration (ip, ip_bytes) VALUES (?, ?)", ips);
+
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_endpoint_hits_uri_time");
+        jdbcTemplate.execute("ALTER TABLE endpoint_hits ADD COLUMN app_id INTEGER");
+        jdbcTemplate.execute("ALTER TABLE endpoint_hits ADD COLUMN uri_id INTEGER");
+        jdbcTemplate.execute("ALTER TABLE endpoint_hits ADD COLUMN ip_bytes BYTEA");
+        jdbcTemplate.update("UPDATE endpoint_hits SET " +
+                "app_id = (SELECT a.id FROM stat_apps a WHERE a.name = endpoint_hits.app), " +
+                "uri_id = (SELECT u.id FROM stat_uris u WHERE u.uri = endpoint_hits.uri), " +
+                "ip_bytes = (SELECT m.ip_bytes FROM endpoint_hit_ips_migration m WHERE m.ip = endpoint_hits.ip)");
+        int dropped = jdbcTemplate.update("DELETE FROM endpoint_hits WHERE ip_bytes IS NULL");
+        if (dropped > 0) {
+            logger.warn("Dropped {} hits with unparseable ips", dropped);
+        }
+        jdbcTemplate.execute("DROP TABLE endpoint_hit_ips_migration");
+
+        jdbcTemplate.execute("ALTER TABLE endpoint_hits DROP COLUMN app");
+        jdbcTemplate.execute("ALTER TABLE endpoint_hits DROP COLUMN uri");
+        jdbcTemplate.execute("ALTER TABLE endpoint_hits DROP COLUMN ip");
+        jdbcTemplate.execute("ALTER TABLE endpoint_hits RENAME COLUMN ip_bytes TO ip");
+        for (String column : List.of("app_id", "uri_id", "ip")) {
+            jdbcTemplate.execute("ALTER TABLE endpoint_hits ALTER COLUMN " + column + " SET NOT NULL");
+        }
+        // derived tables keyed by strings and hashed from textual ips; rebuilt by the backfills
+        jdbcTemplate.execute("DROP TABLE IF EXISTS endpoint_hit_rollups");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS endpoint_hit_sketches");
+        return true;
+    }
+}
@@ -0,0 +1,23 @@
+package ru.practicum.explorewithme.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+import ru.practicum.explorewithme.config.ConditionalOnJdbcStorage;
+
+/**
+ * Progress of raw-hit compaction at /actuator/compaction.
+ */
+@Component
+@ConditionalOnJdbcStorage
+@Endpoint(id = "compaction")
+@RequiredArgsConstructor
+public class HitCompactionEndpoint {
+    private final HitCompactor compactor;
+
+    @ReadOperation
+    public HitCompactor.CompactionStatus status() {
+        return compactor.status();
+    }
+}
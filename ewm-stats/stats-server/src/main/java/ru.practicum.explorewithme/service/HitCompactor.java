@@ -0,0 +1,198 @@
+package ru.practicum.explorewithme.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.explorewithme.config.ConditionalOnJdbcStorage;
+import ru.practicum.explorewithme.config.DatabaseDialect;
+import ru.practicum.explorewithme.config.StatsServerProperties;
+
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves raw hits of days past the configured age from endpoint_hits into compacted_hits, which keeps one row
+ * per (hour, app, uri, visitor IP) with the hit count, so both hit and exact unique-visitor counts survive and
+ * windows over compacted days stay accurate to the hour.
+ * <p>
+ * Each chunk is read, folded and deleted in its own short transaction: a hit is always in exactly one of the
+ * two tables, so queries that read both (see {@link RawStatsRepository}) never miss or double-count it, and an
+ * interrupted run simply resumes with the next chunk.
+ */
+@Component
+@ConditionalOnJdbcStorage
+public class HitCompactor {
+    private static final Logger logger = LoggerFactory.getLogger(HitCompactor.class);
+
+    private static final String SELECT_CHUNK =
+            "SELECT id, app_id, uri_id, ip, timestamp FROM endpoint_hits WHERE timestamp < ? LIMIT ? FOR UPDATE";
+    private static final String DELETE_CHUNK =
+            "DELETE FROM endpoint_hits WHERE timestamp < ? AND id = ANY(?)";
+    private static final String POSTGRES_UPSERT =
+            "INSERT INTO compacted_hits (bucket_hour, app_id, uri_id, ip, hits) VALUES (?, ?, ?, ?, ?) " +
+                    "ON CONFLICT (uri_id, bucket_hour, app_id, ip) " +
+                    "DO UPDATE SET hits = compacted_hits.hits + EXCLUDED.hits";
+    private static final String GENERIC_UPSERT =
+            "MERGE INTO compacted_hits c " +
+                    "USING (VALUES (CAST(? AS TIMESTAMP), CAST(? AS INTEGER), CAST(? AS INTEGER), " +
+                    "CAST(? AS VARBINARY), CAST(? AS BIGINT))) AS s (bucket_hour, app_id, uri_id, ip, hits) " +
+                    "ON c.uri_id = s.uri_id AND c.bucket_hour = s.bucket_hour " +
+                    "AND c.app_id = s.app_id AND c.ip = s.ip " +
+                    "WHEN MATCHED THEN UPDATE SET hits = c.hits + s.hits " +
+                    "WHEN NOT MATCHED THEN INSERT (bucket_hour, app_id, uri_id, ip, hits) " +
+                    "VALUES (s.bucket_hour, s.app_id, s.uri_id, s.ip, s.hits)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StatsServerProperties.Compaction settings;
+    private final TransactionTemplate transactionTemplate;
+    private final StatsResultCache resultCache;
+    private final String selectChunkSql;
+    private final String upsertSql;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Counter movedHits;
+    private volatile LocalDateTime cutoff;
+    private volatile LocalDateTime lastStarted;
+    private volatile LocalDateTime lastFinished;
+    private volatile long runChunks;
+    private volatile long runMovedHits;
+    private volatile String lastError;
+
+    public HitCompactor(JdbcTemplate jdbcTemplate,
+                        DatabaseDialect dialect,
+                        StatsServerProperties properties,
+                        PlatformTransactionManager transactionManager,
+                        StatsResultCache resultCache,
+                        MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.settings = properties.getCompaction();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.resultCache = resultCache;
+        // another instance compacting at the same time takes the next unlocked rows instead of waiting
+        this.selectChunkSql = dialect == DatabaseDialect.POSTGRESQL ? SELECT_CHUNK + " SKIP LOCKED" : SELECT_CHUNK;
+        this.upsertSql = dialect == DatabaseDialect.POSTGRESQL ? POSTGRES_UPSERT : GENERIC_UPSERT;
+        this.movedHits = Counter.builder("stats.compaction.hits")
+                .description("Raw hits folded into compacted_hits")
+                .register(meterRegistry);
+        Gauge.builder("stats.compaction.running", running, flag -> flag.get() ? 1 : 0)
+                .description("1 while a compaction run is in progress")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${stats-server.compaction.cron:0 45 0 * * *}")
+    public void scheduledCompaction() {
+        if (settings.isEnabled()) {
+            compact(LocalDateTime.now().minus(settings.getAge()));
+        }
+    }
+
+    /**
+     * Compacts every raw hit before the start of the cutoff's day; does nothing while another run is in progress.
+     *
+     * @return the number of raw hits moved
+     */
+    public long compact(LocalDateTime cutoff) {
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Compaction is already running, skipping this run");
+            return 0;
+        }
+        LocalDateTime before = RollupGranularity.DAY.floor(cutoff);
+        this.cutoff = before;
+        lastStarted = LocalDateTime.now();
+        lastError = null;
+        runChunks = 0;
+        runMovedHits = 0;
+        try {
+            int moved;
+            do {
+                moved = transactionTemplate.execute(status -> compactChunk(before));
+                if (moved > 0) {
+                    runChunks++;
+                    runMovedHits += moved;
+                    movedHits.increment(moved);
+                }
+            } while (moved > 0);
+            if (runMovedHits > 0) {
+                // a moved hit now counts at hour resolution, which can change answers for windows cutting an hour
+                resultCache.invalidateAll();
+            }
+            logger.info("Compacted {} raw hits older than {} in {} chunks", runMovedHits, before, runChunks);
+            return runMovedHits;
+        } catch (RuntimeException e) {
+            lastError = e.getMessage();
+            throw e;
+        } finally {
+            lastFinished = LocalDateTime.now();
+            running.set(false);
+        }
+    }
+
+    public CompactionStatus status() {
+        return new CompactionStatus(settings.isEnabled(), running.get(), cutoff, lastStarted, lastFinished,
+                runChunks, runMovedHits, (long) movedHits.count(), lastError);
+    }
+
+    private int compactChunk(LocalDateTime before) {
+        Timestamp cutoff = Timestamp.valueOf(before);
+        List<Long> ids = new ArrayList<>();
+        // sorted keys give concurrent writers the same lock order
+        Map<CompactedKey, Long> hits = new TreeMap<>();
+        jdbcTemplate.query(selectChunkSql, (RowCallbackHandler) rs -> {
+            ids.add(rs.getLong("id"));
+            hits.merge(new CompactedKey(rs.getInt("uri_id"),
+                    RollupGranularity.HOUR.floor(rs.getTimestamp("timestamp").toLocalDateTime()),
+                    rs.getInt("app_id"),
+                    ByteBuffer.wrap(rs.getBytes("ip"))), 1L, Long::sum);
+        }, cutoff, settings.getChunkSize());
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> rows = new ArrayList<>(hits.size());
+        hits.forEach((key, count) -> rows.add(new Object[]{
+                Timestamp.valueOf(key.hour()), key.appId(), key.uriId(), key.ip().array(), count}));
+        jdbcTemplate.batchUpdate(upsertSql, rows);
+        jdbcTemplate.update(DELETE_CHUNK, cutoff, ids.toArray(Long[]::new));
+        return ids.size();
+    }
+
+    /**
+     * What the compaction endpoint reports; the chunk and hit counts are those of the current or last run.
+     */
+    public record CompactionStatus(boolean enabled,
+                                   boolean running,
+                                   LocalDateTime cutoff,
+                                   LocalDateTime lastStarted,
+                                   LocalDateTime lastFinished,
+                                   long chunks,
+                                   long movedHits,
+                                   long totalMovedHits,
+                                   String lastError) {
+    }
+
+    private record CompactedKey(int uriId, LocalDateTime hour, int appId, ByteBuffer ip)
+            implements Comparable<CompactedKey> {
+        private static final Comparator<CompactedKey> ORDER = Comparator.comparingInt(CompactedKey::uriId)
+                .thenComparing(CompactedKey::hour)
+                .thenComparingInt(CompactedKey::appId)
+                .thenComparing(CompactedKey::ip);
+
+        @Override
+        public int compareTo(CompactedKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
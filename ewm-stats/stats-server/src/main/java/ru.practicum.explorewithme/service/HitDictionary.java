@@ -0,0 +1,174 @@
+package ru.practicum.explorewithme.service;
+
+import org.mapstruct.Named;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.explorewithme.config.ConditionalOnJdbcStorage;
+import ru.practicum.explorewithme.config.DatabaseDialect;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns app names and uris into the stat_apps and stat_uris dimension tables and caches the ids in-process,
+ * so ingest only touches the database for values it has never seen.
+ * <p>
+ * New values are inserted on the caller's connection, inside its transaction, and their ids are cached only once
+ * that transaction commits: an id must never be cached from a transaction that may still roll back.
+ */
+@Component
+@ConditionalOnJdbcStorage
+public class HitDictionary {
+    private final JdbcTemplate jdbcTemplate;
+    private final Dimension apps;
+    private final Dimension uris;
+
+    public HitDictionary(JdbcTemplate jdbcTemplate, DatabaseDialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.apps = new Dimension("stat_apps", "name", dialect);
+        this.uris = new Dimension("stat_uris", "uri", dialect);
+    }
+
+    @Named("appId")
+    public Integer appId(String app) {
+        return app == null ? null : apps.id(app);
+    }
+
+    @Named("uriId")
+    public Integer uriId(String uri) {
+        return uri == null ? null : uris.id(uri);
+    }
+
+    /**
+     * Looks up a uri without interning it.
+     *
+     * @return the id, or null when the uri has never been hit
+     */
+    public Integer findUriId(String uri) {
+        return uris.find(uri);
+    }
+
+    /**
+     * Looks up an app without interning it.
+     *
+     * @return the id, or null when the app has never recorded a hit
+     */
+    public Integer findAppId(String app) {
+        return apps.find(app);
+    }
+
+    @Named("appName")
+    public String appName(Integer id) {
+        return id == null ? null : apps.value(id);
+    }
+
+    @Named("uriName")
+    public String uriName(Integer id) {
+        return id == null ? null : uris.value(id);
+    }
+
+    private final class Dimension {
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final Map<Integer, String> values = new ConcurrentHashMap<>();
+        private final String insertIfAbsentSql;
+        private final String selectIdSql;
+        private final String selectValueSql;
+
+        private Dimension(String table, String column, DatabaseDialect dialect) {
+            this.insertIfAbsentSql = dialect == DatabaseDialect.POSTGRESQL
+                    ? "INSERT INTO " + table + " (" + column + ") VALUES (?) ON CONFLICT (" + column + ") DO NOTHING"
+                    : "MERGE INTO " + table + " t USING (VALUES (CAST(? AS VARCHAR(255)))) AS v (" + column + ") " +
+                    "ON t." + column + " = v." + column + " " +
+                    "WHEN NOT MATCHED THEN INSERT (" + column + ") VALUES (v." + column + ")";
+            this.selectIdSql = "SELECT id FROM " + table + " WHERE " + column + " = ?";
+            this.selectValueSql = "SELECT " + column + " FROM " + table + " WHERE id = ?";
+        }
+
+        private int id(String value) {
+            Integer id = cached(value);
+            if (id == null) {
+                List<Integer> existing = jdbcTemplate.queryForList(selectIdSql, Integer.class, value);
+                if (existing.isEmpty()) {
+                    jdbcTemplate.update(insertIfAbsentSql, value);
+                    id = jdbcTemplate.queryForObject(selectIdSql, Integer.class, value);
+                } else {
+                    id = existing.getFirst();
+                }
+                cacheOnCommit(value, id);
+            }
+            return id;
+        }
+
+        private Integer find(String value) {
+            Integer id = cached(value);
+            if (id == null) {
+                List<Integer> existing = jdbcTemplate.queryForList(selectIdSql, Integer.class, value);
+                if (existing.isEmpty()) {
+                    return null;
+                }
+                id = existing.getFirst();
+                // the row may be one this transaction inserted itself
+                cacheOnCommit(value, id);
+            }
+            return id;
+        }
+
+        private Integer cached(String value) {
+            Integer id = ids.get(value);
+            if (id == null && TransactionSynchronizationManager.hasResource(this)) {
+                id = pending().get(value);
+            }
+            return id;
+        }
+
+        private void cacheOnCommit(String value, int id) {
+            Map<String, Integer> pending = pending();
+            if (pending == null) {
+                cache(value, id);
+            } else {
+                pending.put(value, id);
+            }
+        }
+
+        /**
+         * @return the ids looked up by the current transaction, cached once it commits; null outside a transaction
+         */
+        @SuppressWarnings("unchecked")
+        private Map<String, Integer> pending() {
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                return null;
+            }
+            Map<String, Integer> pending = (Map<String, Integer>) TransactionSynchronizationManager.getResource(this);
+            if (pending == null) {
+                Map<String, Integer> created = new HashMap<>();
+                TransactionSynchronizationManager.bindResource(this, created);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        created.forEach(Dimension.this::cache);
+                    }
+
+                    @Override
+                    public void afterCompletion(int status) {
+                        TransactionSynchronizationManager.unbindResource(Dimension.this);
+                    }
+                });
+                pending = created;
+            }
+            return pending;
+        }
+
+        private void cache(String value, int id) {
+            ids.put(value, id);
+            values.put(id, value);
+        }
+
+        private String value(int id) {
+            return values.computeIfAbsent(id, key -> jdbcTemplate.queryForObject(selectValueSql, String.class, key));
+        }
+    }
+}
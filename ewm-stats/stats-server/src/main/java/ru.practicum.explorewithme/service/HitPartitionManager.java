@@ -0,0 +1,238 @@
+package ru.practicum.explorewithme.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.explorewithme.config.ConditionalOnJdbcStorage;
+import ru.practicum.explorewithme.config.DatabaseDialect;
+import ru.practicum.explorewithme.config.PartitionInterval;
+import ru.practicum.explorewithme.config.StatsServerProperties;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps endpoint_hits range-partitioned by timestamp on PostgreSQL: converts a legacy plain table once,
+ * creates partitions ahead of time and drops whole partitions past the retention period.
+ * Other databases keep the plain table from schema.sql and apply retention with a DELETE.
+ * Either way retention also prunes the rollups, sketches and compacted hits of the removed days.
+ */
+@Component
+@ConditionalOnJdbcStorage
+public class HitPartitionManager {
+    private static final Logger logger = LoggerFactory.getLogger(HitPartitionManager.class);
+    private static final String TABLE = "endpoint_hits";
+    private static final Pattern PARTITION_NAME = Pattern.compile(TABLE + "_p(\\d{6}|\\d{8})");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect dialect;
+    private final StatsServerProperties.Partitioning settings;
+    private final TransactionTemplate transactionTemplate;
+    private final HotStatsIndex hotIndex;
+    private final StatsResultCache resultCache;
+
+    public HitPartitionManager(JdbcTemplate jdbcTemplate,
+                               DatabaseDialect dialect,
+                               StatsServerProperties properties,
+                               PlatformTransactionManager transactionManager,
+                               HotStatsIndex hotIndex,
+                               StatsResultCache resultCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.hotIndex = hotIndex;
+        this.resultCache = resultCache;
+        this.settings = properties.getPartitioning();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public boolean isPartitioned() {
+        return settings.isEnabled() && dialect == DatabaseDialect.POSTGRESQL;
+    }
+
+    /**
+     * Called by {@link StatsStorageInitializer} once the raw table has its current column layout.
+     */
+    public void initialize() {
+        if (!isPartitioned()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!"p".equals(tableKind())) {
+                migrateToPartitioned();
+            }
+        });
+        ensurePartitionsAndRetention();
+    }
+
+    @Scheduled(cron = "${stats-server.partitioning.maintenance-cron:0 15 0 * * *}")
+    public void maintain() {
+        if (ensurePartitionsAndRetention()) {
+            // retention lowers all-time counts, which the index itself only ever increments
+            hotIndex.rebuild();
+            resultCache.invalidateAll();
+        }
+    }
+
+    /**
+     * @return whether retention removed hits
+     */
+    private boolean ensurePartitionsAndRetention() {
+        if (isPartitioned()) {
+            transactionTemplate.executeWithoutResult(status -> ensurePartitions(LocalDateTime.now()));
+        }
+        if (settings.getRetention().isZero()) {
+            return false;
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                applyRetention(LocalDateTime.now().minus(settings.getRetention())));
+        return true;
+    }
+
+    /**
+     * Removes everything older than the cutoff, rounded down to a partition bound (or to the day without
+     * partitions) so that whole partitions, rollup buckets and sketch days go: partitions that end at or before it
+     * are dropped, rows left in the default partition (or in a plain table) are deleted, and the rollups, sketches
+     * and compacted hits derived from them are deleted with the same cutoff.
+     */
+    public void applyRetention(LocalDateTime cutoff) {
+        LocalDateTime before = isPartitioned()
+                ? settings.getInterval().floor(cutoff).atStartOfDay()
+                : RollupGranularity.DAY.floor(cutoff);
+        if (isPartitioned()) {
+            dropPartitionsBefore(before);
+        }
+        String table = isPartitioned() ? TABLE + "_default" : TABLE;
+        int deleted = jdbcTemplate.update("DELETE FROM " + table + " WHERE timestamp < ?", Timestamp.valueOf(before));
+        logger.info("Retention removed {} raw hits older than {}", deleted, before);
+        int rollups = jdbcTemplate.update("DELETE FROM hit_rollups WHERE bucket_start < ?", Timestamp.valueOf(before));
+        Date day = Date.valueOf(before.toLocalDate());
+        int sketches = jdbcTemplate.update("DELETE FROM hit_sketches WHERE bucket_day < ?", day);
+        int compacted = jdbcTemplate.update("DELETE FROM compacted_hits WHERE bucket_hour < ?",
+                Timestamp.valueOf(before));
+        logger.info("Retention removed {} rollups, {} sketches and {} compacted hits older than {}",
+                rollups, sketches, compacted, before);
+    }
+
+    private void dropPartitionsBefore(LocalDateTime before) {
+        for (String partition : partitions()) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches()) {
+                continue;
+            }
+            String suffix = matcher.group(1);
+            // the suffix length tells the interval, which may differ from the configured one after a change
+            PartitionInterval interval = suffix.length() == 8 ? PartitionInterval.DAY : PartitionInterval.MONTH;
+            LocalDate start = suffix.length() == 8
+                    ? LocalDate.parse(suffix, DateTimeFormatter.BASIC_ISO_DATE)
+                    : LocalDate.parse(suffix + "01", DateTimeFormatter.BASIC_ISO_DATE);
+            if (!interval.next(start).atStartOfDay().isAfter(before)) {
+                jdbcTemplate.execute("DROP TABLE " + partition);
+                logger.info("Retention dropped partition {}", partition);
+            }
+        }
+    }
+
+    private void ensurePartitions(LocalDateTime now) {
+        PartitionInterval interval = settings.getInterval();
+        LocalDate start = interval.floor(now);
+        for (int i = 0; i <= settings.getPremake(); i++) {
+            createPartition(start);
+            start = interval.next(start);
+        }
+    }
+
+    private void migrateToPartitioned() {
+        logger.info("Converting {} into a table partitioned by timestamp", TABLE);
+        String sequence = jdbcTemplate.queryForObject("SELECT pg_get_serial_sequence(?, 'id')", String.class,
+                TABLE);
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + TABLE + "_legacy");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + "_legacy " +
+                "RENAME CONSTRAINT pk_endpoint_hit_id TO pk_endpoint_hit_legacy_id");
+        jdbcTemplate.execute("ALTER INDEX IF EXISTS " + StatsStorageInitializer.URI_TIME_INDEX +
+                " RENAME TO idx_endpoint_hits_legacy_uri_time");
+        jdbcTemplate.execute("ALTER INDEX IF EXISTS " + StatsStorageInitializer.APP_URI_TIME_INDEX +
+                " RENAME TO idx_endpoint_hits_legacy_app_uri_time");
+        jdbcTemplate.execute("CREATE TABLE " + TABLE + " (" +
+                "id BIGINT NOT NULL DEFAULT nextval('" + sequence + "'), " +
+                "app_id INTEGER NOT NULL, " +
+                "uri_id INTEGER NOT NULL, " +
+                "ip BYTEA NOT NULL, " +
+                "timestamp TIMESTAMP NOT NULL, " +
+                "CONSTRAINT pk_endpoint_hit_id PRIMARY KEY (id, timestamp)" +
+                ") PARTITION BY RANGE (timestamp)");
+        jdbcTemplate.execute("CREATE INDEX " + StatsStorageInitializer.URI_TIME_INDEX + " ON " + TABLE +
+                " (uri_id, timestamp)");
+        jdbcTemplate.execute("CREATE INDEX " + StatsStorageInitializer.APP_URI_TIME_INDEX + " ON " + TABLE +
+                " " + StatsStorageInitializer.POSTGRES_APP_URI_TIME_COLUMNS);
+        jdbcTemplate.execute("CREATE TABLE " + TABLE + "_default PARTITION OF " + TABLE + " DEFAULT");
+
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM " + TABLE + "_legacy",
+                Timestamp.class);
+        if (oldest != null) {
+            PartitionInterval interval = settings.getInterval();
+            LocalDate end = interval.next(interval.floor(LocalDateTime.now()));
+            for (LocalDate start = interval.floor(oldest.toLocalDateTime()); start.isBefore(end);
+                 start = interval.next(start)) {
+                createPartition(start);
+            }
+        }
+        int copied = jdbcTemplate.update("INSERT INTO " + TABLE + " (id, app_id, uri_id, ip, timestamp) " +
+                "SELECT id, app_id, uri_id, ip, timestamp FROM " + TABLE + "_legacy");
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " OWNED BY " + TABLE + ".id");
+        jdbcTemplate.execute("DROP TABLE " + TABLE + "_legacy");
+        logger.info("Moved {} hits into partitioned {}", copied, TABLE);
+    }
+
+    /**
+     * Creates the partition unless it exists. Hits of its range that were already routed to the default partition
+     * would make a plain CREATE ... PARTITION OF fail, so the default partition is detached while they are moved.
+     */
+    private void createPartition(LocalDate start) {
+        PartitionInterval interval = settings.getInterval();
+        String name = TABLE + "_p" + interval.suffix(start);
+        String bounds = " FOR VALUES FROM ('" + start + "') TO ('" + interval.next(start) + "')";
+        if (partitions().contains(name)) {
+            return;
+        }
+        Timestamp from = Timestamp.valueOf(start.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(interval.next(start).atStartOfDay());
+        Boolean misrouted = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + TABLE + "_default " +
+                "WHERE timestamp >= ? AND timestamp < ?)", Boolean.class, from, to);
+        if (!Boolean.TRUE.equals(misrouted)) {
+            jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF " + TABLE + bounds);
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + TABLE + "_default");
+        jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF " + TABLE + bounds);
+        int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + TABLE + "_default " +
+                "WHERE timestamp >= ? AND timestamp < ? RETURNING id, app_id, uri_id, ip, timestamp) " +
+                "INSERT INTO " + TABLE + " (id, app_id, uri_id, ip, timestamp) " +
+                "SELECT id, app_id, uri_id, ip, timestamp FROM moved", from, to);
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + TABLE + "_default DEFAULT");
+        logger.info("Moved {} hits from the default partition into new partition {}", moved, name);
+    }
+
+    private String tableKind() {
+        List<String> kinds = jdbcTemplate.queryForList(
+                "SELECT relkind::text FROM pg_class WHERE relname = ? AND relnamespace = current_schema()::regnamespace",
+                String.class, TABLE);
+        return kinds.isEmpty() ? null : kinds.getFirst();
+    }
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "JOIN pg_class p ON p.oid = i.inhparent " +
+                "WHERE p.relname = ? AND p.relnamespace = current_schema()::regnamespace", String.class, TABLE);
+    }
+}
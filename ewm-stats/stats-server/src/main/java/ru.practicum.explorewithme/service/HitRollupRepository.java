@@ -0,0 +1,141 @@
+package ru.practicum.explorewithme.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.explorewithme.config.ConditionalOnJdbcStorage;
+import ru.practicum.explorewithme.config.DatabaseDialect;
+import ru.practicum.explorewithme.entity.Stat;
+import ru.practicum.statsdto.ViewStats;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hit counts per (app, uri) and minute, hour and day bucket, kept in hit_rollups keyed by dictionary ids.
+ */
+@Repository
+@ConditionalOnJdbcStorage
+public class HitRollupRepository {
+    private static final Logger logger = LoggerFactory.getLogger(HitRollupRepository.class);
+
+    private static final String POSTGRES_UPSERT =
+            "INSERT INTO hit_rollups (granularity, bucket_start, app_id, uri_id, hits) VALUES (?, ?, ?, ?, ?) " +
+                    "ON CONFLICT (granularity, uri_id, bucket_start, app_id) " +
+                    "DO UPDATE SET hits = hit_rollups.hits + EXCLUDED.hits";
+    private static final String GENERIC_UPSERT =
+            "MERGE INTO hit_rollups r " +
+                    "USING (VALUES (CAST(? AS VARCHAR(8)), CAST(? AS TIMESTAMP), CAST(? AS INTEGER), " +
+                    "CAST(? AS INTEGER), CAST(? AS BIGINT))) AS s (granularity, bucket_start, app_id, uri_id, hits) " +
+                    "ON r.granularity = s.granularity AND r.uri_id = s.uri_id " +
+                    "AND r.bucket_start = s.bucket_start AND r.app_id = s.app_id " +
+                    "WHEN MATCHED THEN UPDATE SET hits = r.hits + s.hits " +
+                    "WHEN NOT MATCHED THEN INSERT (granularity, bucket_start, app_id, uri_id, hits) " +
+                    "VALUES (s.granularity, s.bucket_start, s.app_id, s.uri_id, s.hits)";
+    private static final String BACKFILL =
+            "INSERT INTO hit_rollups (granularity, bucket_start, app_id, uri_id, hits) " +
+                    "SELECT '%1$s', DATE_TRUNC('%2$s', timestamp), app_id, uri_id, SUM(hits) FROM (" +
+                    "SELECT timestamp, app_id, uri_id, 1 AS hits FROM endpoint_hits UNION ALL " +
+                    "SELECT bucket_hour, app_id, uri_id, hits FROM compacted_hits) h " +
+                    "GROUP BY DATE_TRUNC('%2$s', timestamp), app_id, uri_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String upsertSql;
+
+    public HitRollupRepository(JdbcTemplate jdbcTemplate, DatabaseDialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.upsertSql = dialect == DatabaseDialect.POSTGRESQL ? POSTGRES_UPSERT : GENERIC_UPSERT;
+    }
+
+    public void add(List<Stat> stats) {
+        // sorted keys give concurrent writers the same lock order
+        Map<RollupKey, Long> increments = new TreeMap<>();
+        for (Stat stat : stats) {
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                RollupKey key = new RollupKey(granularity, granularity.floor(stat.getTimestamp()),
+                        stat.getAppId(), stat.getUriId());
+                increments.merge(key, 1L, Long::sum);
+            }
+        }
+        List<Object[]> args = new ArrayList<>(increments.size());
+        increments.forEach((key, hits) -> args.add(new Object[]{
+                key.granularity().name(), Timestamp.valueOf(key.bucketStart()), key.appId(), key.uriId(), hits}));
+        jdbcTemplate.batchUpdate(upsertSql, args);
+    }
+
+    public List<ViewStats> sumHits(List<RollupRange> ranges, List<String> uris, String app) {
+        if (ranges.isEmpty()) {
+            return Collections.emptyList();
+        }
+        StringBuilder sql = new StringBuilder("SELECT a.name AS app, u.uri AS uri, SUM(r.hits) AS hits " +
+                "FROM hit_rollups r JOIN stat_apps a ON a.id = r.app_id JOIN stat_uris u ON u.id = r.uri_id WHERE (");
+        List<Object> args = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            RollupRange range = ranges.get(i);
+            sql.append(i > 0 ? " OR " : "").append("(r.granularity = ? AND r.bucket_start >= ? AND r.bucket_start < ?)");
+            args.add(range.granularity().name());
+            args.add(Timestamp.valueOf(range.from()));
+            args.add(Timestamp.valueOf(range.to()));
+        }
+        sql.append(')');
+        if (app != null) {
+            sql.append(" AND a.name = ?");
+            args.add(app);
+        }
+        if (uris != null) {
+            sql.append(" AND ").append(UriFilter.of(uris).toSql("u.uri", args));
+        }
+        sql.append(" GROUP BY a.name, u.uri");
+        return jdbcTemplate.query(sql.toString(),
+                (rs, rowNum) -> new ViewStats(rs.getString("app"), rs.getString("uri"), rs.getLong("hits")),
+                args.toArray());
+    }
+
+    /**
+     * Builds the rollups from endpoint_hits and compacted_hits when the rollup table is still empty, e.g. right after
+     * rollout or after {@link #clear()}. A compacted hour lands in the first minute of that hour.
+     */
+    public void backfillIfEmpty() {
+        Long rollups = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hit_rollups", Long.class);
+        if (rollups != null && rollups > 0) {
+            return;
+        }
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            int rows = jdbcTemplate.update(String.format(BACKFILL, granularity.name(),
+                    granularity.name().toLowerCase(Locale.ROOT)));
+            logger.info("Backfilled {} {} rollup rows", rows, granularity);
+        }
+    }
+
+    /**
+     * Drops every rollup. Called while rollups are disabled: hits stored meanwhile are not rolled up, so the
+     * table is rebuilt from scratch once they are enabled again rather than served with a gap.
+     */
+    public void clear() {
+        int rows = jdbcTemplate.update("DELETE FROM hit_rollups");
+        if (rows > 0) {
+            logger.info("Rollups are disabled, deleted {} stale rollup rows", rows);
+        }
+    }
+
+    private record RollupKey(RollupGranularity granularity, LocalDateTime bucketStart, int appId, int uriId)
+            implements Comparable<RollupKey> {
+        private static final Comparator<RollupKey> ORDER = Comparator.comparing(RollupKey::granularity)
+                .thenComparingInt(RollupKey::uriId)
+                .thenComparing(RollupKey::bucketStart)
+                .thenComparingInt(RollupKey::appId);
+
+        @Override
+        public int compareTo(RollupKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
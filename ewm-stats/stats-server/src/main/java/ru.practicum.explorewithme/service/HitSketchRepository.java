@@ -0,0 +1,227 @@
+package ru.practicum.explorewithme.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import ru.practicum.explorewithme.config.ConditionalOnJdbcStorage;
+import ru.practicum.explorewithme.config.DatabaseDialect;
+import ru.practicum.explorewithme.entity.Stat;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-(app, uri, day) HyperLogLog sketches of binary visitor IPs, kept in hit_sketches keyed by dictionary ids.
+ */
+@Repository
+@ConditionalOnJdbcStorage
+public class HitSketchRepository {
+    private static final Logger logger = LoggerFactory.getLogger(HitSketchRepository.class);
+
+    private static final String POSTGRES_INSERT_IF_ABSENT =
+            "INSERT INTO hit_sketches (app_id, uri_id, bucket_day, registers) VALUES (?, ?, ?, ?) " +
+                    "ON CONFLICT DO NOTHING";
+    private static final String GENERIC_INSERT_IF_ABSENT =
+            "MERGE INTO hit_sketches s " +
+                    "USING (VALUES (CAST(? AS INTEGER), CAST(? AS INTEGER), CAST(? AS DATE), " +
+                    "CAST(? AS VARBINARY))) AS v (app_id, uri_id, bucket_day, registers) " +
+                    "ON s.uri_id = v.uri_id AND s.bucket_day = v.bucket_day AND s.app_id = v.app_id " +
+                    "WHEN NOT MATCHED THEN INSERT (app_id, uri_id, bucket_day, registers) " +
+                    "VALUES (v.app_id, v.uri_id, v.bucket_day, v.registers)";
+    private static final String SELECT_FOR_UPDATE =
+            "SELECT registers FROM hit_sketches WHERE uri_id = ? AND bucket_day = ? AND app_id = ? FOR UPDATE";
+    private static final String SELECT_MANY_FOR_UPDATE =
+            "SELECT app_id, uri_id, bucket_day, registers FROM hit_sketches " +
+                    "WHERE (uri_id, bucket_day, app_id) IN (%s) ORDER BY uri_id, bucket_day, app_id FOR UPDATE";
+    private static final String UPDATE =
+            "UPDATE hit_sketches SET registers = ? WHERE uri_id = ? AND bucket_day = ? AND app_id = ?";
+    private static final String NAMES_JOIN =
+            " JOIN stat_apps a ON a.id = h.app_id JOIN stat_uris u ON u.id = h.uri_id";
+
+    private static final int KEYS_PER_SELECT = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String insertIfAbsentSql;
+
+    public HitSketchRepository(JdbcTemplate jdbcTemplate, DatabaseDialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.insertIfAbsentSql = dialect == DatabaseDialect.POSTGRESQL
+                ? POSTGRES_INSERT_IF_ABSENT
+                : GENERIC_INSERT_IF_ABSENT;
+    }
+
+    /**
+     * Merges the batch into its sketches in memory first, then locks the stored sketches of the batch with one select
+     * and writes each touched key once.
+     */
+    public void add(List<Stat> stats) {
+        // sorted keys give concurrent writers the same lock order
+        Map<SketchKey, HyperLogLog> sketches = new TreeMap<>();
+        for (Stat stat : stats) {
+            SketchKey key = new SketchKey(stat.getAppId(), stat.getUriId(), stat.getTimestamp().toLocalDate());
+            sketches.computeIfAbsent(key, k -> new HyperLogLog()).add(stat.getIp());
+        }
+        List<SketchKey> keys = new ArrayList<>(sketches.keySet());
+        Map<SketchKey, HyperLogLog> stored = new HashMap<>();
+        for (int from = 0; from < keys.size(); from += KEYS_PER_SELECT) {
+            lockStored(keys.subList(from, Math.min(keys.size(), from + KEYS_PER_SELECT)), stored);
+        }
+        List<Object[]> updates = new ArrayList<>();
+        List<SketchKey> absent = new ArrayList<>();
+        sketches.forEach((key, sketch) -> {
+            HyperLogLog merged = stored.get(key);
+            if (merged == null) {
+                absent.add(key);
+            } else {
+                merged.merge(sketch);
+                updates.add(new Object[]{merged.toBytes(), key.uriId(), Date.valueOf(key.day()), key.appId()});
+            }
+        });
+        jdbcTemplate.batchUpdate(UPDATE, updates);
+        int[] inserted = jdbcTemplate.batchUpdate(insertIfAbsentSql,
+                absent.stream().map(key -> toRow(key, sketches.get(key))).toList());
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i] == 0) {
+                // a concurrent writer created the sketch after our select
+                mergeInto(absent.get(i), sketches.get(absent.get(i)));
+            }
+        }
+    }
+
+    /**
+     * Merges the sketches of whole days in [from, to) per (app, uri).
+     */
+    public Map<AppUri, HyperLogLog> load(LocalDate from, LocalDate to, List<String> uris, String app) {
+        List<Object> args = new ArrayList<>(List.of(Date.valueOf(from), Date.valueOf(to)));
+        String sql = "SELECT a.name AS app, u.uri AS uri, h.registers FROM hit_sketches h" + NAMES_JOIN +
+                " WHERE h.bucket_day >= ? AND h.bucket_day < ?" + appFilter(app, args) + uriFilter(uris, args);
+        Map<AppUri, HyperLogLog> merged = new HashMap<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> merged
+                .computeIfAbsent(new AppUri(rs.getString("app"), rs.getString("uri")), k -> new HyperLogLog())
+                .merge(HyperLogLog.fromBytes(rs.getBytes("registers"))), args.toArray());
+        return merged;
+    }
+
+    /**
+     * Adds the IPs of raw hits in [from, to), or [from, to] when inclusive, to the per-(app, uri) sketches, together
+     * with those of compacted hours whose start lies in the range, as {@link RawStatsRepository} counts them.
+     */
+    public void addRawHits(Map<AppUri, HyperLogLog> sketches, LocalDateTime from, LocalDateTime to,
+                           boolean inclusive, List<String> uris, String app) {
+        String upper = inclusive ? "<=" : "<";
+        List<Object> args = new ArrayList<>(List.of(Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        String sql = "SELECT DISTINCT a.name AS app, u.uri AS uri, h.ip FROM endpoint_hits h" + NAMES_JOIN +
+                " WHERE h.timestamp >= ? AND h.timestamp " + upper + " ?" + appFilter(app, args) +
+                uriFilter(uris, args);
+        args.add(Timestamp.valueOf(RollupGranularity.HOUR.ceil(from)));
+        args.add(Timestamp.valueOf(to));
+        sql += " UNION SELECT a.name, u.uri, h.ip FROM compacted_hits h" + NAMES_JOIN +
+                " WHERE h.bucket_hour >= ? AND h.bucket_hour " + upper + " ?" + appFilter(app, args) +
+                uriFilter(uris, args);
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> sketches
+                .computeIfAbsent(new AppUri(rs.getString("app"), rs.getString("uri")), k -> new HyperLogLog())
+                .add(rs.getBytes("ip")), args.toArray());
+    }
+
+    /**
+     * Builds the sketches from endpoint_hits and compacted_hits when the sketch table is still empty, e.g. right
+     * after rollout.
+     */
+    public void backfillIfEmpty() {
+        Long sketches = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hit_sketches", Long.class);
+        if (sketches != null && sketches > 0) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        SketchKey[] current = new SketchKey[1];
+        HyperLogLog[] sketch = new HyperLogLog[1];
+        jdbcTemplate.query("SELECT DISTINCT app_id, uri_id, CAST(timestamp AS DATE) AS bucket_day, ip FROM (" +
+                "SELECT app_id, uri_id, timestamp, ip FROM endpoint_hits UNION ALL " +
+                "SELECT app_id, uri_id, bucket_hour, ip FROM compacted_hits) h " +
+                "ORDER BY app_id, uri_id, bucket_day", (RowCallbackHandler) rs -> {
+                    SketchKey key = new SketchKey(rs.getInt("app_id"), rs.getInt("uri_id"),
+                            rs.getDate("bucket_day").toLocalDate());
+                    if (!key.equals(current[0])) {
+                        if (current[0] != null) {
+                            rows.add(toRow(current[0], sketch[0]));
+                        }
+                        current[0] = key;
+                        sketch[0] = new HyperLogLog();
+                    }
+                    sketch[0].add(rs.getBytes("ip"));
+                });
+        if (current[0] != null) {
+            rows.add(toRow(current[0], sketch[0]));
+        }
+        jdbcTemplate.batchUpdate(insertIfAbsentSql, rows);
+        logger.info("Backfilled {} unique-visitor sketches", rows.size());
+    }
+
+    private void lockStored(List<SketchKey> keys, Map<SketchKey, HyperLogLog> stored) {
+        List<Object> args = new ArrayList<>(keys.size() * 3);
+        for (SketchKey key : keys) {
+            args.add(key.uriId());
+            args.add(Date.valueOf(key.day()));
+            args.add(key.appId());
+        }
+        String placeholders = String.join(", ", Collections.nCopies(keys.size(), "(?, ?, ?)"));
+        jdbcTemplate.query(String.format(SELECT_MANY_FOR_UPDATE, placeholders), (RowCallbackHandler) rs -> stored.put(
+                new SketchKey(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getDate("bucket_day").toLocalDate()),
+                HyperLogLog.fromBytes(rs.getBytes("registers"))), args.toArray());
+    }
+
+    private void mergeInto(SketchKey key, HyperLogLog sketch) {
+        if (jdbcTemplate.update(insertIfAbsentSql, toRow(key, sketch)) > 0) {
+            return;
+        }
+        byte[] stored = jdbcTemplate.queryForObject(SELECT_FOR_UPDATE, byte[].class,
+                key.uriId(), Date.valueOf(key.day()), key.appId());
+        HyperLogLog merged = HyperLogLog.fromBytes(stored);
+        merged.merge(sketch);
+        jdbcTemplate.update(UPDATE, merged.toBytes(), key.uriId(), Date.valueOf(key.day()), key.appId());
+    }
+
+    private static Object[] toRow(SketchKey key, HyperLogLog sketch) {
+        return new Object[]{key.appId(), key.uriId(), Date.valueOf(key.day()), sketch.toBytes()};
+    }
+
+    private static String appFilter(String app, List<Object> args) {
+        if (app == null) {
+            return "";
+        }
+        args.add(app);
+        return " AND a.name = ?";
+    }
+
+    private static String uriFilter(List<String> uris, List<Object> args) {
+        if (uris == null) {
+            return "";
+        }
+        return " AND " + UriFilter.of(uris).toSql("u.uri", args);
+    }
+
+    public record AppUri(String app, String uri) {
+    }
+
+    private record SketchKey(int appId, int uriId, LocalDate day) implements Comparable<SketchKey> {
+        private static final Comparator<SketchKey> ORDER = Comparator.comparingInt(SketchKey::uriId)
+                .thenComparing(SketchKey::day)
+                .thenComparingInt(SketchKey::appId);
+
+        @Override
+        public int compareTo(SketchKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
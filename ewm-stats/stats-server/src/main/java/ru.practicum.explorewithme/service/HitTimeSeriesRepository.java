@@ -0,0 +1,73 @@
+package ru.practicum.explorewithme.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import ru.practicum.explorewithme.config.ConditionalOnJdbcStorage;
+import ru.practicum.statsdto.TimeSeriesPoint;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Per-bucket hit counts for one uri or uri pattern, oldest bucket first, read with a fetch size like
+ * {@link RawStatsRepository}.
+ */
+@Repository
+@ConditionalOnJdbcStorage
+public class HitTimeSeriesRepository {
+    private static final int FETCH_SIZE = 1_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public HitTimeSeriesRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    /**
+     * Groups raw hits in [from, to), or [from, to] when {@code toInclusive}, with DATE_TRUNC in a single scan.
+     * Compacted hours whose start lies in the range are grouped with them, all in the bucket of that start, so a
+     * finer bucket than an hour puts a compacted hour's hits in its first bucket.
+     */
+    public void streamRaw(LocalDateTime from, LocalDateTime to, boolean toInclusive, String uri, boolean unique,
+                          RollupGranularity granularity, Consumer<TimeSeriesPoint> consumer) {
+        String bucket = "DATE_TRUNC('" + granularity.name().toLowerCase(Locale.ROOT) + "', timestamp)";
+        String upper = toInclusive ? "<=" : "<";
+        List<Object> args = new ArrayList<>(List.of(Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        String rawUris = UriFilter.of(List.of(uri)).toSql("uri", args);
+        args.add(Timestamp.valueOf(RollupGranularity.HOUR.ceil(from)));
+        args.add(Timestamp.valueOf(to));
+        String compactedUris = UriFilter.of(List.of(uri)).toSql("uri", args);
+        String sql = "SELECT " + bucket + " AS bucket, " + (unique ? "COUNT(DISTINCT ip)" : "SUM(hits)") +
+                " AS hits FROM (SELECT timestamp, ip, 1 AS hits FROM endpoint_hits " +
+                "WHERE timestamp >= ? AND timestamp " + upper + " ? " +
+                "AND uri_id IN (SELECT id FROM stat_uris WHERE " + rawUris + ") UNION ALL " +
+                "SELECT bucket_hour, ip, hits FROM compacted_hits WHERE bucket_hour >= ? AND bucket_hour " + upper +
+                " ? AND uri_id IN (SELECT id FROM stat_uris WHERE " + compactedUris + ")) h " +
+                "GROUP BY " + bucket + " ORDER BY bucket";
+        query(sql, args, consumer);
+    }
+
+    /**
+     * Sums whole rollup buckets whose start lies in the range, across apps and matching uris.
+     */
+    public void streamRollups(RollupRange range, String uri, Consumer<TimeSeriesPoint> consumer) {
+        List<Object> args = new ArrayList<>(List.of(range.granularity().name(),
+                Timestamp.valueOf(range.from()), Timestamp.valueOf(range.to())));
+        String sql = "SELECT bucket_start AS bucket, SUM(hits) AS hits FROM hit_rollups " +
+                "WHERE granularity = ? AND bucket_start >= ? AND bucket_start < ? " +
+                "AND uri_id IN (SELECT id FROM stat_uris WHERE " + UriFilter.of(List.of(uri)).toSql("uri", args) +
+                ") GROUP BY bucket_start ORDER BY bucket_start";
+        query(sql, args, consumer);
+    }
+
+    private void query(String sql, List<Object> args, Consumer<TimeSeriesPoint> consumer) {
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> consumer.accept(new TimeSeriesPoint(
+                rs.getTimestamp("bucket").toLocalDateTime(), rs.getLong("hits"))), args.toArray());
+    }
+}
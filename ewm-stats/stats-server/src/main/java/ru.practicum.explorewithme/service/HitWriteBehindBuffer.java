@@ -0,0 +1,233 @@
+package ru.practicum.explorewithme.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.explorewithme.config.ConditionalOnJdbcStorage;
+import ru.practicum.explorewithme.config.IngestionMode;
+import ru.practicum.explorewithme.config.StatsServerProperties;
+import ru.practicum.explorewithme.entity.Stat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded in-memory queue of hits drained into endpoint_hits by a single background writer.
+ * Only started when ingestion mode is BUFFERED.
+ * <p>
+ * A failed batch is retried as a whole, and after {@code max-flush-attempts} failures written one hit at a time:
+ * hits the database rejects are dropped and counted, so one bad hit cannot hold up the hits queued behind it,
+ * while a database that fails altogether keeps the rest of the batch queued.
+ */
+@Component
+@ConditionalOnJdbcStorage
+public class HitWriteBehindBuffer implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(HitWriteBehindBuffer.class);
+    // stops after the embedded web server, so no hit can be accepted once the final flush has run
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final HitWriter writer;
+    private final TransactionTemplate transactionTemplate;
+    private final StatsServerProperties.Ingestion settings;
+    private final BlockingQueue<Stat> queue;
+    // owned by the writer thread while running, by the stopping thread afterwards
+    private final List<Stat> pending;
+    private final Counter droppedHits;
+    private int failedAttempts;
+
+    private volatile boolean running;
+    private Thread drainThread;
+
+    public HitWriteBehindBuffer(HitWriter writer,
+                                PlatformTransactionManager transactionManager,
+                                StatsServerProperties properties,
+                                MeterRegistry meterRegistry) {
+        this.writer = writer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.settings = properties.getIngestion();
+        this.queue = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+        this.pending = new ArrayList<>(settings.getMaxBatchSize());
+        this.droppedHits = Counter.builder("stats.ingestion.dropped")
+                .description("Buffered hits the database rejected when written one at a time")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return settings.getMode() == IngestionMode.BUFFERED;
+    }
+
+    /**
+     * Enqueues as many hits as fit into the buffer, in order.
+     *
+     * @return number of hits accepted
+     */
+    public int offer(List<Stat> stats) {
+        int accepted = 0;
+        for (Stat stat : stats) {
+            if (!queue.offer(stat)) {
+                break;
+            }
+            accepted++;
+        }
+        return accepted;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public void start() {
+        if (!isEnabled() || running) {
+            return;
+        }
+        running = true;
+        drainThread = new Thread(this::drainLoop, "hit-write-behind");
+        drainThread.setDaemon(true);
+        drainThread.start();
+        logger.info("Write-behind hit buffer started: capacity={}, flushInterval={}",
+                settings.getQueueCapacity(), settings.getFlushInterval());
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        drainThread.interrupt();
+        try {
+            drainThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushRemaining();
+        logger.info("Write-behind hit buffer flushed and stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void drainLoop() {
+        while (running) {
+            try {
+                if (pending.isEmpty()) {
+                    Stat first = queue.poll(settings.getFlushInterval().toMillis(), TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    pending.add(first);
+                    queue.drainTo(pending, settings.getMaxBatchSize() - 1);
+                }
+                write(pending);
+                pending.clear();
+                failedAttempts = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                recover(e);
+            }
+        }
+    }
+
+    private void recover(RuntimeException failure) {
+        if (++failedAttempts < settings.getMaxFlushAttempts()) {
+            // keep the batch and retry it; the queue fills up meanwhile and pushes back on clients
+            logger.error("Failed to flush {} buffered hits, retrying", pending.size(), failure);
+            pause();
+            return;
+        }
+        logger.error("Failed to flush {} buffered hits {} times, writing them one at a time", pending.size(),
+                failedAttempts, failure);
+        failedAttempts = 0;
+        try {
+            writeOneByOne();
+        } catch (RuntimeException e) {
+            logger.error("Failed to write buffered hits one at a time, {} left to retry", pending.size(), e);
+            pause();
+        }
+    }
+
+    /**
+     * Writes the pending hits each in its own transaction, dropping those rejected as invalid. Stops at the first
+     * other database failure, leaving that hit and the ones after it pending.
+     */
+    private void writeOneByOne() {
+        int done = 0;
+        try {
+            for (Stat stat : pending) {
+                try {
+                    write(List.of(stat));
+                } catch (DataAccessException e) {
+                    if (!(e instanceof DataIntegrityViolationException)) {
+                        throw e;
+                    }
+                    drop(stat, e);
+                } catch (RuntimeException e) {
+                    drop(stat, e);
+                }
+                done++;
+            }
+        } finally {
+            pending.subList(0, done).clear();
+        }
+    }
+
+    private void drop(Stat stat, RuntimeException e) {
+        droppedHits.increment();
+        logger.warn("Dropping buffered hit app={} uri={} timestamp={} the database rejects: {}", stat.getAppId(),
+                stat.getUriId(), stat.getTimestamp(), e.getMessage());
+    }
+
+    private void flushRemaining() {
+        try {
+            do {
+                if (!pending.isEmpty()) {
+                    write(pending);
+                    pending.clear();
+                }
+            } while (queue.drainTo(pending, settings.getMaxBatchSize()) > 0);
+        } catch (RuntimeException e) {
+            try {
+                writeOneByOne();
+            } catch (RuntimeException failure) {
+                logger.error("Dropping {} buffered hits on shutdown", pending.size() + queue.size(), failure);
+                pending.clear();
+                queue.clear();
+                return;
+            }
+            flushRemaining();
+        }
+    }
+
+    private void write(List<Stat> batch) {
+        transactionTemplate.executeWithoutResult(status -> writer.writeAll(batch));
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(settings.getFlushInterval().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ru.practicum.explorewithme.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.explorewithme.config.ConditionalOnJdbcStorage;
+import ru.practicum.explorewithme.config.StatsServerProperties;
+import ru.practicum.explorewithme.entity.Stat;
+
+import java.util.List;
+
+/**
+ * Single write path for hits: the raw row plus every derived structure kept up to date on ingest.
+ */
+@Component
+@ConditionalOnJdbcStorage
+@RequiredArgsConstructor
+public class HitWriter {
+    private final StatsRepository repository;
+    private final HitRollupRepository rollupRepository;
+    private final HitSketchRepository sketchRepository;
+    private final HotStatsIndex hotIndex;
+    private final StatsResultCache resultCache;
+    private final StatsServerProperties properties;
+
+    @Transactional
+    public void write(Stat stat) {
+        writeAll(List.of(stat));
+    }
+
+    @Transactional
+    public int writeAll(List<Stat> stats) {
+        int inserted = repository.insertAll(stats);
+        addDerived(stats);
+        return inserted;
+    }
+
+    private void addDerived(List<Stat> stats) {
+        if (properties.getRollup().isEnabled()) {
+            rollupRepository.add(stats);
+        }
+        if (properties.getSketch().isEnabled()) {
+            sketchRepository.add(stats);
+        }
+        hotIndex.addOnCommit(stats);
+        resultCache.onIngest();
+    }
+}
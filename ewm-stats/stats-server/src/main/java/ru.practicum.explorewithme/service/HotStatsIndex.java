@@ -0,0 +1,340 @@
+package ru.practicum.explorewithme.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.explorewithme.config.ConditionalOnJdbcStorage;
+import ru.practicum.explorewithme.config.StatsServerProperties;
+import ru.practicum.explorewithme.entity.Stat;
+import ru.practicum.statsdto.ViewStats;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * All-time hit counters and visitor IP sets per (uri, app), held in memory so that stats over a window
+ * covering every stored hit are answered without touching endpoint_hits.
+ * <p>
+ * Hits are applied after their transaction commits. Ingest holds the read lock from the write until completion.
+ * {@link #rebuild()} takes the write lock only to pin its database snapshot and again to swap in the rebuilt
+ * counters: hits committed after the snapshot are queued meanwhile and replayed before the swap, so a rebuild
+ * never misses or double-counts an in-flight hit and never stalls ingest for the length of the scan.
+ * Once the estimated footprint exceeds the configured budget the index drops its data and stops serving
+ * until the next rebuild.
+ */
+@Component
+@ConditionalOnJdbcStorage
+public class HotStatsIndex {
+    private static final Logger logger = LoggerFactory.getLogger(HotStatsIndex.class);
+    // object headers, map nodes and the LongAdder of one (uri, app) entry, roughly
+    private static final long ENTRY_OVERHEAD_BYTES = 160;
+    private static final int REBUILD_FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final HitDictionary dictionary;
+    private final StatsServerProperties.HotIndex settings;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Counter servedQueries;
+    private volatile Index index = new Index();
+    // hits committed while a rebuild scans, replayed into the rebuilt index; null outside a rebuild
+    private volatile Queue<List<Stat>> arrivedDuringRebuild;
+    private volatile boolean serving;
+
+    public HotStatsIndex(JdbcTemplate jdbcTemplate,
+                         HitDictionary dictionary,
+                         StatsServerProperties properties,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry) {
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(REBUILD_FETCH_SIZE);
+        // both rebuild queries must see the same snapshot, the one pinned under the write lock
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.dictionary = dictionary;
+        this.settings = properties.getHotIndex();
+        Gauge.builder("stats.hot_index.memory", this, hot -> hot.index.memoryBytes.get())
+                .description("Estimated heap used by the in-memory stats index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("stats.hot_index.entries", this,
+                        hot -> hot.index.counters.values().stream().mapToInt(Map::size).sum())
+                .description("(uri, app) pairs held by the in-memory stats index")
+                .register(meterRegistry);
+        Gauge.builder("stats.hot_index.serving", this, index -> index.serving ? 1 : 0)
+                .description("1 while the in-memory stats index answers queries")
+                .register(meterRegistry);
+        this.servedQueries = Counter.builder("stats.hot_index.queries")
+                .description("Stats queries answered from the in-memory index")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /**
+     * @return whether [start, end] contains every indexed hit, so the index alone gives the exact answer
+     */
+    public boolean covers(LocalDateTime start, LocalDateTime end) {
+        if (!serving) {
+            return false;
+        }
+        Index current = index;
+        LocalDateTime from = current.oldest.get();
+        LocalDateTime to = current.newest.get();
+        return from == null || !start.isAfter(from) && !end.isBefore(to);
+    }
+
+    /**
+     * @param app only this app's counters; every app when null
+     */
+    public List<ViewStats> getStats(List<String> uris, String app, boolean unique) {
+        List<ViewStats> result = new ArrayList<>();
+        forEachStats(uris, app, unique, result::add);
+        result.sort(Comparator.comparing(ViewStats::getHits).reversed());
+        return result;
+    }
+
+    /**
+     * The {@code limit} uris with the most hits, selected without materializing a row per counter.
+     */
+    public List<ViewStats> getTopStats(List<String> uris, String app, boolean unique, int limit) {
+        TopStatsCollector top = new TopStatsCollector(limit);
+        forEachStats(uris, app, unique, top);
+        return top.result();
+    }
+
+    private void forEachStats(List<String> uris, String app, boolean unique, Consumer<ViewStats> consumer) {
+        servedQueries.increment();
+        Integer appId = app == null ? null : dictionary.findAppId(app);
+        if (app != null && appId == null) {
+            return;
+        }
+        Map<Integer, Map<Integer, Counters>> counters = index.counters;
+        Collection<Map<Integer, Counters>> selected;
+        if (uris == null) {
+            selected = counters.values();
+        } else {
+            UriFilter filter = UriFilter.of(uris);
+            selected = new ArrayList<>(uris.size());
+            for (String uri : filter.exact()) {
+                Integer uriId = dictionary.findUriId(uri);
+                Map<Integer, Counters> byApp = uriId == null ? null : counters.get(uriId);
+                if (byApp != null) {
+                    selected.add(byApp);
+                }
+            }
+            if (!filter.prefixes().isEmpty()) {
+                counters.forEach((uriId, byApp) -> {
+                    String uri = dictionary.uriName(uriId);
+                    if (!filter.exact().contains(uri) && filter.matches(uri)) {
+                        selected.add(byApp);
+                    }
+                });
+            }
+        }
+        for (Map<Integer, Counters> byApp : selected) {
+            if (appId == null) {
+                byApp.values().forEach(entry -> consumer.accept(toStats(entry, unique)));
+            } else {
+                Counters entry = byApp.get(appId);
+                if (entry != null) {
+                    consumer.accept(toStats(entry, unique));
+                }
+            }
+        }
+    }
+
+    private ViewStats toStats(Counters entry, boolean unique) {
+        return new ViewStats(dictionary.appName(entry.appId), dictionary.uriName(entry.uriId),
+                unique ? entry.uniqueIps() : entry.hits.sum());
+    }
+
+    /**
+     * Applies the hits once the surrounding transaction commits. Must be called inside a transaction.
+     */
+    public void addOnCommit(List<Stat> stats) {
+        if (!isEnabled()) {
+            return;
+        }
+        lock.readLock().lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                Queue<List<Stat>> arrived = arrivedDuringRebuild;
+                if (arrived != null) {
+                    arrived.add(stats);
+                } else if (serving) {
+                    Index current = index;
+                    stats.forEach(current::add);
+                    serving = !current.overflowed;
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Reloads the index from endpoint_hits and compacted_hits into fresh counters, streamed in a transaction of its
+     * own, and swaps them in once loaded. The index does not serve while it rebuilds.
+     */
+    public void rebuild() {
+        if (!isEnabled()) {
+            return;
+        }
+        Index rebuilt = new Index();
+        Queue<List<Stat>> arrived = new ConcurrentLinkedQueue<>();
+        snapshotTransaction.executeWithoutResult(status -> {
+            lock.writeLock().lock();
+            try {
+                serving = false;
+                arrivedDuringRebuild = arrived;
+                // the first query pins the snapshot; every later commit goes through the queue
+                loadBounds(rebuilt);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            jdbcTemplate.query("SELECT app_id, uri_id, ip, SUM(hits) AS hits FROM (" +
+                    "SELECT app_id, uri_id, ip, 1 AS hits FROM endpoint_hits UNION ALL " +
+                    "SELECT app_id, uri_id, ip, hits FROM compacted_hits) h " +
+                    "GROUP BY uri_id, app_id, ip", (RowCallbackHandler) rs -> {
+                        if (!rebuilt.overflowed) {
+                            rebuilt.add(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getBytes("ip"),
+                                    rs.getLong("hits"));
+                        }
+                    });
+        });
+        lock.writeLock().lock();
+        try {
+            arrivedDuringRebuild = null;
+            for (List<Stat> stats : arrived) {
+                stats.forEach(rebuilt::add);
+            }
+            index = rebuilt;
+            serving = !rebuilt.overflowed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (serving) {
+            logger.info("Hot stats index loaded, ~{} KB, {} batches replayed", rebuilt.memoryBytes.get() / 1024,
+                    arrived.size());
+        }
+    }
+
+    private void loadBounds(Index rebuilt) {
+        // a compacted hour is dated by its start, as RawStatsRepository counts it
+        jdbcTemplate.query("SELECT MIN(oldest) AS oldest, MAX(newest) AS newest FROM (" +
+                "SELECT MIN(timestamp) AS oldest, MAX(timestamp) AS newest FROM endpoint_hits UNION ALL " +
+                "SELECT MIN(bucket_hour), MAX(bucket_hour) FROM compacted_hits) b", (RowCallbackHandler) rs -> {
+                    Timestamp from = rs.getTimestamp("oldest");
+                    Timestamp to = rs.getTimestamp("newest");
+                    rebuilt.oldest.set(from == null ? null : from.toLocalDateTime());
+                    rebuilt.newest.set(to == null ? null : to.toLocalDateTime());
+                });
+    }
+
+    /**
+     * IPv4 addresses are stored as their 32-bit value, IPv6 addresses as a 64-bit hash.
+     */
+    private static long ipKey(byte[] ip) {
+        if (ip.length == 4) {
+            return ((ip[0] & 0xFFL) << 24) | ((ip[1] & 0xFFL) << 16) | ((ip[2] & 0xFFL) << 8) | (ip[3] & 0xFFL);
+        }
+        return HyperLogLog.hash64(ip);
+    }
+
+    private static final class Counters {
+        private final int appId;
+        private final int uriId;
+        private final LongAdder hits = new LongAdder();
+        private final LongHashSet ips = new LongHashSet();
+
+        private Counters(int appId, int uriId) {
+            this.appId = appId;
+            this.uriId = uriId;
+        }
+
+        /**
+         * @return the growth of the IP set in bytes
+         */
+        private synchronized long addIp(byte[] ip) {
+            long before = ips.memoryBytes();
+            ips.add(ipKey(ip));
+            return ips.memoryBytes() - before;
+        }
+
+        private synchronized long uniqueIps() {
+            return ips.size();
+        }
+    }
+
+    /**
+     * One generation of counters; a rebuild fills a fresh one and swaps it in.
+     */
+    private final class Index {
+        private final Map<Integer, Map<Integer, Counters>> counters = new ConcurrentHashMap<>();
+        private final AtomicLong memoryBytes = new AtomicLong();
+        private final AtomicReference<LocalDateTime> oldest = new AtomicReference<>();
+        private final AtomicReference<LocalDateTime> newest = new AtomicReference<>();
+        private volatile boolean overflowed;
+
+        private void add(Stat stat) {
+            add(stat.getAppId(), stat.getUriId(), stat.getIp(), 1);
+            oldest.accumulateAndGet(stat.getTimestamp(), (current, hit) ->
+                    current == null || hit.isBefore(current) ? hit : current);
+            newest.accumulateAndGet(stat.getTimestamp(), (current, hit) ->
+                    current == null || hit.isAfter(current) ? hit : current);
+        }
+
+        private void add(int appId, int uriId, byte[] ip, long hits) {
+            if (overflowed) {
+                return;
+            }
+            Counters entry = counters.computeIfAbsent(uriId, id -> new ConcurrentHashMap<>(2))
+                    .computeIfAbsent(appId, id -> {
+                        memoryBytes.addAndGet(ENTRY_OVERHEAD_BYTES);
+                        return new Counters(appId, uriId);
+                    });
+            entry.hits.add(hits);
+            memoryBytes.addAndGet(entry.addIp(ip));
+            if (memoryBytes.get() > settings.getMaxMemory().toBytes()) {
+                logger.warn("Hot stats index exceeded its {} budget, falling back to the database until the next " +
+                        "rebuild", settings.getMaxMemory());
+                overflowed = true;
+                counters.clear();
+                memoryBytes.set(0);
+                oldest.set(null);
+                newest.set(null);
+            }
+        }
+    }
+}
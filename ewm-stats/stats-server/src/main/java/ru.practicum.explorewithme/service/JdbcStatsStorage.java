@@ -0,0 +1,113 @@
+package ru.practicum.explorewithme.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.explorewithme.config.ConditionalOnJdbcStorage;
+import ru.practicum.explorewithme.config.StatsServerProperties;
+import ru.practicum.explorewithme.entity.Stat;
+import ru.practicum.explorewithme.exception.IngestionBufferFullException;
+import ru.practicum.explorewithme.mapper.StatMapper;
+import ru.practicum.statsdto.StatDto;
+import ru.practicum.statsdto.TimeSeriesPoint;
+import ru.practicum.statsdto.ViewStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hits in endpoint_hits; queries go to the hot index, sketches, rollups or raw hits, whichever can answer.
+ */
+@Component
+@ConditionalOnJdbcStorage
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class JdbcStatsStorage implements StatsStorage {
+    private final StatMapper mapper;
+    private final HitWriter writer;
+    private final HitWriteBehindBuffer buffer;
+    private final RollupQueryPlanner rollupPlanner;
+    private final SketchQueryPlanner sketchPlanner;
+    private final HotStatsIndex hotIndex;
+    private final RawStatsRepository rawRepository;
+    private final TimeSeriesQueryPlanner timeSeriesPlanner;
+    private final StatsServerProperties properties;
+
+    @Override
+    @Transactional
+    public StatDto save(StatDto dto) {
+        if (buffer.isEnabled()) {
+            enqueue(List.of(mapper.toEntity(dto)));
+            return dto;
+        }
+        Stat stat = mapper.toEntity(dto);
+        writer.write(stat);
+        return mapper.toDto(stat);
+    }
+
+    @Override
+    @Transactional
+    public int saveAll(List<StatDto> dtos) {
+        List<Stat> stats = mapper.toEntities(dtos);
+        return buffer.isEnabled()
+                ? enqueue(stats)
+                : writer.writeAll(stats);
+    }
+
+    private int enqueue(List<Stat> stats) {
+        int accepted = buffer.offer(stats);
+        if (accepted == 0) {
+            throw new IngestionBufferFullException("Hit buffer is full, retry later",
+                    properties.getIngestion().getRetryAfter());
+        }
+        return accepted;
+    }
+
+    @Override
+    public List<ViewStats> getStats(StatsQuery query) {
+        if (hotIndex.covers(query.start(), query.end())) {
+            return getHotStats(query);
+        }
+        if (query.unique() && query.approximate() && sketchPlanner.isEnabled()) {
+            return limit(sketchPlanner.getStatsUnique(query.start(), query.end(), query.uris(), query.app()),
+                    query.limit());
+        }
+        if (!query.unique() && rollupPlanner.isEnabled()) {
+            return limit(rollupPlanner.getStatsNonUnique(query.start(), query.end(), query.uris(), query.app()),
+                    query.limit());
+        }
+        List<ViewStats> stats = new ArrayList<>();
+        rawRepository.stream(query, stats::add);
+        return stats;
+    }
+
+    @Override
+    public void streamStats(StatsQuery query, Consumer<ViewStats> consumer) {
+        if (hotIndex.covers(query.start(), query.end())) {
+            getHotStats(query).forEach(consumer);
+            return;
+        }
+        rawRepository.stream(query, consumer);
+    }
+
+    @Override
+    public void streamTimeSeries(TimeSeriesQuery query, Consumer<TimeSeriesPoint> consumer) {
+        timeSeriesPlanner.stream(query, consumer);
+    }
+
+    private List<ViewStats> getHotStats(StatsQuery query) {
+        return query.limit() == null
+                ? hotIndex.getStats(query.uris(), query.app(), query.unique())
+                : hotIndex.getTopStats(query.uris(), query.app(), query.unique(), query.limit());
+    }
+
+    private static List<ViewStats> limit(List<ViewStats> stats, Integer limit) {
+        if (limit == null || stats.size() <= limit) {
+            return stats;
+        }
+        TopStatsCollector top = new TopStatsCollector(limit);
+        stats.forEach(top);
+        return top.result();
+    }
+}
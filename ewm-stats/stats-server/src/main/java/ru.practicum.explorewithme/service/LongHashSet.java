@@ -0,0 +1,66 @@
+package ru.practicum.explorewithme.service;
+
+/**
+ * Open-addressing set of primitive longs with linear probing; 8 bytes per slot and no boxing.
+ * Not thread-safe.
+ */
+public final class LongHashSet {
+    private static final int INITIAL_CAPACITY = 8;
+    private static final long EMPTY = 0L;
+
+    private long[] slots = new long[INITIAL_CAPACITY];
+    private boolean containsEmpty;
+    private int size;
+
+    /**
+     * @return whether the value was not present before
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsEmpty) {
+                return false;
+            }
+            containsEmpty = true;
+            size++;
+            return true;
+        }
+        int mask = slots.length - 1;
+        int index = (int) HyperLogLog.mix64(value) & mask;
+        while (slots[index] != EMPTY) {
+            if (slots[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        slots[index] = value;
+        size++;
+        // keep the load factor at or below 0.5
+        if (size * 2 > slots.length) {
+            grow();
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long memoryBytes() {
+        return (long) slots.length * Long.BYTES;
+    }
+
+    private void grow() {
+        long[] old = slots;
+        slots = new long[old.length * 2];
+        int mask = slots.length - 1;
+        for (long value : old) {
+            if (value != EMPTY) {
+                int index = (int) HyperLogLog.mix64(value) & mask;
+                while (slots[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                slots[index] = value;
+            }
+        }
+    }
+}
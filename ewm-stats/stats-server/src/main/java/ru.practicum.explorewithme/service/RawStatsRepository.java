@@ -0,0 +1,138 @@
+package ru.practicum.explorewithme.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import ru.practicum.explorewithme.config.ConditionalOnJdbcStorage;
+import ru.practicum.statsdto.ViewStats;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Exact stats aggregated from endpoint_hits over JDBC, together with the per-hour rows {@link HitCompactor} moved
+ * into compacted_hits.
+ * <p>
+ * Uris, exact or prefix patterns, are resolved through stat_uris (see {@link UriFilter}) and hits are filtered
+ * by uri id; an app is resolved through stat_apps the same way, so its hits are read from the (app_id, uri_id,
+ * timestamp) index, which on PostgreSQL also carries the IP and answers both counts with an index-only scan.
+ * A compacted hour only has hour resolution, so it counts when its start lies in the window.
+ * Rows are read with a fetch size, so callers can write each one out before the next is fetched;
+ * PostgreSQL only uses a cursor inside a transaction.
+ */
+@Repository
+@ConditionalOnJdbcStorage
+public class RawStatsRepository {
+    private static final int FETCH_SIZE = 1_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RawStatsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    /**
+     * Hits in [start, end], most hits first, at most {@code query.limit()} rows. With a limit the database keeps
+     * only the top rows while sorting (a top-N heapsort on PostgreSQL), so nothing else leaves the server.
+     */
+    public void stream(StatsQuery query, Consumer<ViewStats> consumer) {
+        query(query.start(), query.end(), true, true, query.uris(), query.app(), query.unique(), true, query.limit(),
+                consumer);
+    }
+
+    /**
+     * Hits in [start, end], most hits first; {@code app} may be null for every app, as in the methods below.
+     */
+    public List<ViewStats> find(LocalDateTime start, LocalDateTime end, List<String> uris, String app,
+                                boolean unique) {
+        List<ViewStats> stats = new ArrayList<>();
+        query(start, end, true, true, uris, app, unique, true, null, stats::add);
+        return stats;
+    }
+
+    /**
+     * Non-unique raw hits in [start, end), in no particular order. Compacted hours are left out: these are the
+     * edges of a rollup query, and the rollups already count compacted hits.
+     */
+    public List<ViewStats> findNonUniqueBefore(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                               String app) {
+        List<ViewStats> stats = new ArrayList<>();
+        query(start, end, false, false, uris, app, false, false, null, stats::add);
+        return stats;
+    }
+
+    /**
+     * Non-unique raw hits in [start, end], in no particular order, without compacted hours like
+     * {@link #findNonUniqueBefore}.
+     */
+    public List<ViewStats> findNonUniqueThrough(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                                String app) {
+        List<ViewStats> stats = new ArrayList<>();
+        query(start, end, true, false, uris, app, false, false, null, stats::add);
+        return stats;
+    }
+
+    private void query(LocalDateTime start, LocalDateTime end, boolean endInclusive, boolean withCompacted,
+                       List<String> uris, String app, boolean unique, boolean sorted, Integer limit,
+                       Consumer<ViewStats> consumer) {
+        LocalDateTime firstHour = RollupGranularity.HOUR.ceil(start);
+        List<Object> args = new ArrayList<>(List.of(Timestamp.valueOf(start), Timestamp.valueOf(end)));
+        StringBuilder sql = new StringBuilder("SELECT a.name AS app, u.uri AS uri, t.hits FROM (");
+        if (!withCompacted || (endInclusive ? firstHour.isAfter(end) : !firstHour.isBefore(end))) {
+            sql.append("SELECT app_id, uri_id, ")
+                    .append(unique ? "COUNT(DISTINCT ip)" : "COUNT(*)")
+                    .append(" AS hits FROM endpoint_hits WHERE timestamp >= ? AND timestamp ")
+                    .append(endInclusive ? "<=" : "<")
+                    .append(" ?")
+                    .append(appCondition(app, args))
+                    .append(uriCondition(uris, args));
+        } else {
+            sql.append("SELECT app_id, uri_id, ")
+                    .append(unique ? "COUNT(DISTINCT ip)" : "SUM(hits)")
+                    .append(" AS hits FROM (SELECT app_id, uri_id, ip, 1 AS hits FROM endpoint_hits ")
+                    .append("WHERE timestamp >= ? AND timestamp ")
+                    .append(endInclusive ? "<=" : "<")
+                    .append(" ?")
+                    .append(appCondition(app, args))
+                    .append(uriCondition(uris, args))
+                    .append(" UNION ALL SELECT app_id, uri_id, ip, hits FROM compacted_hits ")
+                    .append("WHERE bucket_hour >= ? AND bucket_hour ")
+                    .append(endInclusive ? "<=" : "<")
+                    .append(" ?");
+            args.add(Timestamp.valueOf(firstHour));
+            args.add(Timestamp.valueOf(end));
+            sql.append(appCondition(app, args))
+                    .append(uriCondition(uris, args))
+                    .append(") h");
+        }
+        sql.append(" GROUP BY app_id, uri_id) t ")
+                .append("JOIN stat_apps a ON a.id = t.app_id JOIN stat_uris u ON u.id = t.uri_id");
+        if (sorted) {
+            sql.append(" ORDER BY t.hits DESC, u.uri, a.name");
+        }
+        if (limit != null) {
+            sql.append(" LIMIT ?");
+            args.add(limit);
+        }
+        jdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> consumer.accept(
+                new ViewStats(rs.getString("app"), rs.getString("uri"), rs.getLong("hits"))), args.toArray());
+    }
+
+    private static String appCondition(String app, List<Object> args) {
+        if (app == null) {
+            return "";
+        }
+        args.add(app);
+        return " AND app_id = (SELECT id FROM stat_apps WHERE name = ?)";
+    }
+
+    private static String uriCondition(List<String> uris, List<Object> args) {
+        return uris == null
+                ? ""
+                : " AND uri_id IN (SELECT id FROM stat_uris WHERE " + UriFilter.of(uris).toSql("uri", args) + ")";
+    }
+}
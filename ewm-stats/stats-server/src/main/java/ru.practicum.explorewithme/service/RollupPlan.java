@@ -0,0 +1,59 @@
+package ru.practicum.explorewithme.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits an inclusive [start, end] window into a raw head [start, rollupStart), whole rollup buckets
+ * and a raw tail [rollupEnd, end]. The coarsest granularity that fits is used for every part of the window.
+ */
+public record RollupPlan(LocalDateTime start,
+                         LocalDateTime rollupStart,
+                         LocalDateTime rollupEnd,
+                         LocalDateTime end,
+                         List<RollupRange> ranges) {
+
+    public static RollupPlan of(LocalDateTime start, LocalDateTime end) {
+        LocalDateTime lo = RollupGranularity.MINUTE.ceil(start);
+        LocalDateTime hi = RollupGranularity.MINUTE.floor(end);
+        if (!lo.isBefore(hi)) {
+            return new RollupPlan(start, end, end, end, List.of());
+        }
+        List<RollupRange> ranges = new ArrayList<>();
+        split(RollupGranularity.MINUTE, lo, hi, ranges);
+        return new RollupPlan(start, lo, hi, end, List.copyOf(ranges));
+    }
+
+    public boolean hasRawHead() {
+        return start.isBefore(rollupStart);
+    }
+
+    public boolean hasRollups() {
+        return !ranges.isEmpty();
+    }
+
+    private static void split(RollupGranularity granularity, LocalDateTime lo, LocalDateTime hi,
+                              List<RollupRange> ranges) {
+        RollupGranularity[] all = RollupGranularity.values();
+        if (granularity.ordinal() + 1 < all.length) {
+            RollupGranularity coarser = all[granularity.ordinal() + 1];
+            LocalDateTime coarseLo = coarser.ceil(lo);
+            LocalDateTime coarseHi = coarser.floor(hi);
+            if (coarseLo.isBefore(coarseHi)) {
+                addRange(granularity, lo, coarseLo, ranges);
+                split(coarser, coarseLo, coarseHi, ranges);
+                addRange(granularity, coarseHi, hi, ranges);
+                return;
+            }
+        }
+        addRange(granularity, lo, hi, ranges);
+    }
+
+    private static void addRange(RollupGranularity granularity, LocalDateTime from, LocalDateTime to,
+                                 List<RollupRange> ranges) {
+        if (from.isBefore(to)) {
+            ranges.add(new RollupRange(granularity, from, to));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ru.practicum.explorewithme.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.explorewithme.config.ConditionalOnJdbcStorage;
+import ru.practicum.explorewithme.config.StatsServerProperties;
+import ru.practicum.statsdto.ViewStats;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers non-unique stats from whole rollup buckets and reads raw hits only for the partial edge buckets.
+ */
+@Component
+@ConditionalOnJdbcStorage
+@RequiredArgsConstructor
+public class RollupQueryPlanner {
+    private final RawStatsRepository rawRepository;
+    private final HitRollupRepository rollupRepository;
+    private final StatsServerProperties properties;
+
+    public boolean isEnabled() {
+        return properties.getRollup().isEnabled();
+    }
+
+    public List<ViewStats> getStatsNonUnique(LocalDateTime start, LocalDateTime end, List<String> uris, String app) {
+        RollupPlan plan = RollupPlan.of(start, end);
+        if (!plan.hasRollups()) {
+            return rawRepository.find(start, end, uris, app, false);
+        }
+        Map<AppUri, Long> hits = new LinkedHashMap<>();
+        if (plan.hasRawHead()) {
+            merge(hits, rawRepository.findNonUniqueBefore(start, plan.rollupStart(), uris, app));
+        }
+        merge(hits, rollupRepository.sumHits(plan.ranges(), uris, app));
+        merge(hits, rawRepository.findNonUniqueThrough(plan.rollupEnd(), end, uris, app));
+        return hits.entrySet().stream()
+                .map(entry -> new ViewStats(entry.getKey().app(), entry.getKey().uri(), entry.getValue()))
+                .sorted(Comparator.comparing(ViewStats::getHits).reversed())
+                .toList();
+    }
+
+    private static void merge(Map<AppUri, Long> hits, List<ViewStats> part) {
+        for (ViewStats stats : part) {
+            hits.merge(new AppUri(stats.getApp(), stats.getUri()), stats.getHits(), Long::sum);
+        }
+    }
+
+    private record AppUri(String app, String uri) {
+    }
+}
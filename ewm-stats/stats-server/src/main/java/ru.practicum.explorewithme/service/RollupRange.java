@@ -0,0 +1,9 @@
+package ru.practicum.explorewithme.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Whole buckets of one granularity whose start lies in [from, to).
+ */
+public record RollupRange(RollupGranularity granularity, LocalDateTime from, LocalDateTime to) {
+}
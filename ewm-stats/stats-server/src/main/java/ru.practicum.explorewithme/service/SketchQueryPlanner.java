@@ -0,0 +1,46 @@
+package ru.practicum.explorewithme.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.explorewithme.config.ConditionalOnJdbcStorage;
+import ru.practicum.explorewithme.config.StatsServerProperties;
+import ru.practicum.statsdto.ViewStats;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers approximate unique stats by merging per-day sketches, adding raw IPs only for the partial edge days.
+ */
+@Component
+@ConditionalOnJdbcStorage
+@RequiredArgsConstructor
+public class SketchQueryPlanner {
+    private final RawStatsRepository rawRepository;
+    private final HitSketchRepository sketchRepository;
+    private final StatsServerProperties properties;
+
+    public boolean isEnabled() {
+        return properties.getSketch().isEnabled();
+    }
+
+    public List<ViewStats> getStatsUnique(LocalDateTime start, LocalDateTime end, List<String> uris, String app) {
+        LocalDateTime firstDay = RollupGranularity.DAY.ceil(start);
+        LocalDateTime lastDay = RollupGranularity.DAY.floor(end);
+        if (!firstDay.isBefore(lastDay)) {
+            return rawRepository.find(start, end, uris, app, true);
+        }
+        Map<HitSketchRepository.AppUri, HyperLogLog> sketches =
+                sketchRepository.load(firstDay.toLocalDate(), lastDay.toLocalDate(), uris, app);
+        if (start.isBefore(firstDay)) {
+            sketchRepository.addRawHits(sketches, start, firstDay, false, uris, app);
+        }
+        sketchRepository.addRawHits(sketches, lastDay, end, true, uris, app);
+        return sketches.entrySet().stream()
+                .map(entry -> new ViewStats(entry.getKey().app(), entry.getKey().uri(), entry.getValue().estimate()))
+                .sorted(Comparator.comparing(ViewStats::getHits).reversed())
+                .toList();
+    }
+}
@@ -0,0 +1,9 @@
+package ru.practicum.explorewithme.service;
+
+import ru.practicum.explorewithme.entity.Stat;
+
+import java.util.List;
+
+public interface StatsBatchRepository {
+    int insertAll(List<Stat> stats);
+}
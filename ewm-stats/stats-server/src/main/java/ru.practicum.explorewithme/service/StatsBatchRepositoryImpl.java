@@ -0,0 +1,55 @@
+package ru.practicum.explorewithme.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.explorewithme.entity.Stat;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes hits with multi-row INSERT statements, bypassing the per-row IDENTITY round-trip of JPA.
+ */
+@RequiredArgsConstructor
+public class StatsBatchRepositoryImpl implements StatsBatchRepository {
+    static final int MAX_ROWS_PER_INSERT = 500;
+
+    private static final String INSERT_PREFIX = "INSERT INTO endpoint_hits (app_id, uri_id, ip, timestamp) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int insertAll(List<Stat> stats) {
+        int inserted = 0;
+        for (int from = 0; from < stats.size(); from += MAX_ROWS_PER_INSERT) {
+            List<Stat> chunk = stats.subList(from, Math.min(from + MAX_ROWS_PER_INSERT, stats.size()));
+            inserted += jdbcTemplate.update(buildInsert(chunk.size()), toArgs(chunk));
+        }
+        return inserted;
+    }
+
+    private static String buildInsert(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows * (ROW_PLACEHOLDER.length() + 2));
+        sql.append(INSERT_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDER);
+        }
+        return sql.toString();
+    }
+
+    private static Object[] toArgs(List<Stat> chunk) {
+        List<Object> args = new ArrayList<>(chunk.size() * 4);
+        for (Stat stat : chunk) {
+            args.add(stat.getAppId());
+            args.add(stat.getUriId());
+            args.add(stat.getIp());
+            args.add(stat.getTimestamp() != null ? Timestamp.valueOf(stat.getTimestamp()) : null);
+        }
+        return args.toArray();
+    }
+}
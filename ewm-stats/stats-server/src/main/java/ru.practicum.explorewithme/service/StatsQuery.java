@@ -0,0 +1,21 @@
+package ru.practicum.explorewithme.service;
+
+import lombok.Builder;
+import ru.practicum.statsdto.StatsPrecision;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Builder(toBuilder = true)
+public record StatsQuery(LocalDateTime start,
+                         LocalDateTime end,
+                         List<String> uris,
+                         String app,
+                         boolean unique,
+                         StatsPrecision precision,
+                         Integer limit) {
+
+    public boolean approximate() {
+        return precision == StatsPrecision.APPROXIMATE;
+    }
+}
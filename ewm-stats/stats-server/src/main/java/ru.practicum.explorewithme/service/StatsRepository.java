@@ -1,32 +1,7 @@
 package ru.practicum.explorewithme.service;
 
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 import ru.practicum.explorewithme.entity.Stat;
-import ru.practicum.statsdto.ViewStats;
 
-import java.time.LocalDateTime;
-import java.util.List;
-
-public interface StatsRepository extends JpaRepository<Stat, Long> {
-    @Query("SELECT new ru.practicum.statsdto.ViewStats(e.app, e.uri, COUNT(DISTINCT e.ip)) " +
-            "FROM Stat e " +
-            "WHERE e.timestamp BETWEEN :start AND :end " +
-            "AND (:uris IS NULL OR e.uri IN :uris) " +
-            "GROUP BY e.app, e.uri " +
-            "ORDER BY COUNT(DISTINCT e.ip) DESC")
-    List<ViewStats> getStatsUnique(@Param("start") LocalDateTime start,
-                                   @Param("end") LocalDateTime end,
-                                   @Param("uris") List<String> uris);
-
-    @Query("SELECT new ru.practicum.statsdto.ViewStats(e.app, e.uri, COUNT(*)) " +
-            "FROM Stat e " +
-            "WHERE e.timestamp BETWEEN :start AND :end " +
-            "AND (:uris IS NULL OR e.uri IN :uris) " +
-            "GROUP BY e.app, e.uri " +
-            "ORDER BY COUNT(*) DESC")
-    List<ViewStats> getStatsNonUnique(@Param("start") LocalDateTime start,
-                                      @Param("end") LocalDateTime end,
-                                      @Param("uris") List<String> uris);
+public interface StatsRepository extends JpaRepository<Stat, Long>, StatsBatchRepository {
 }
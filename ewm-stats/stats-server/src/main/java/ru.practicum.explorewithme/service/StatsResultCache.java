@@ -0,0 +1,140 @@
+package ru.practicum.explorewithme.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.explorewithme.config.StatsServerProperties;
+import ru.practicum.statsdto.StatsPrecision;
+import ru.practicum.statsdto.ViewStats;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Results of {@link StatsService#getStats} keyed by (start bucket, end bucket, sorted uris, app, unique,
+ * precision, limit) and bounded by the number of cached rows.
+ * <p>
+ * Every commit of hits moves a watermark forward. A result stays valid while no hits were committed since shortly
+ * before its load started, "shortly" being how long committed hits may take to reach the replica queries read.
+ * After that it is served for at most {@code max-staleness}, so it never misses stored hits for longer than that
+ * bound. A non-zero bound also caps how long any result is kept, plus the replica lag.
+ */
+@Component
+public class StatsResultCache {
+    private final StatsServerProperties.ResultCache settings;
+    private final Cache<Key, Entry> cache;
+    private final long resolutionSeconds;
+    private final long visibilityDelayNanos;
+    private final long maxStalenessNanos;
+    private final AtomicLong ingestWatermark;
+
+    public StatsResultCache(StatsServerProperties properties, MeterRegistry meterRegistry) {
+        this.settings = properties.getResultCache();
+        Duration visibilityDelay = properties.getReplica().isEnabled()
+                ? properties.getReplica().getMaxLag()
+                : Duration.ZERO;
+        Caffeine<Key, Entry> builder = Caffeine.newBuilder()
+                .maximumWeight(settings.getMaxRows())
+                .<Key, Entry>weigher((key, entry) -> entry.stats().size() + 1)
+                .recordStats();
+        Duration maxAge = settings.getMaxStaleness().plus(visibilityDelay);
+        if (maxAge.isPositive()) {
+            // also bounds results that miss hits this instance never saw, e.g. those stored by another instance
+            builder.expireAfterWrite(maxAge);
+        }
+        this.cache = builder.build();
+        this.resolutionSeconds = Math.max(1, settings.getKeyResolution().toSeconds());
+        this.visibilityDelayNanos = visibilityDelay.toNanos();
+        this.maxStalenessNanos = settings.getMaxStaleness().toNanos();
+        this.ingestWatermark = new AtomicLong(System.nanoTime() - visibilityDelayNanos - 1);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "stats.results");
+        Gauge.builder("stats.result_cache.hit_ratio", cache, c -> c.stats().hitRate())
+                .description("Share of /stats queries answered from the result cache")
+                .register(meterRegistry);
+    }
+
+    public List<ViewStats> get(StatsQuery query, Function<StatsQuery, List<ViewStats>> loader) {
+        if (!settings.isEnabled()) {
+            return loader.apply(query);
+        }
+        Key key = Key.of(query, resolutionSeconds);
+        // a peek through the map view leaves the hit/miss statistics to the get below
+        Entry current = cache.asMap().get(key);
+        if (current != null && !isValid(current)) {
+            cache.asMap().remove(key, current);
+        }
+        return cache.get(key, k -> {
+            long loadStarted = System.nanoTime();
+            return new Entry(List.copyOf(loader.apply(query)), loadStarted);
+        }).stats();
+    }
+
+    /**
+     * Called as hits are stored: moves the watermark once the surrounding transaction commits, or right away
+     * outside one. Hits still waiting in the write-behind buffer do not count yet.
+     */
+    public void onIngest() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            advanceWatermark();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                advanceWatermark();
+            }
+        });
+    }
+
+    /**
+     * Drops every result, e.g. after retention removed hits.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private void advanceWatermark() {
+        long now = System.nanoTime();
+        ingestWatermark.accumulateAndGet(now, (current, next) -> next - current > 0 ? next : current);
+    }
+
+    private boolean isValid(Entry entry) {
+        return entry.loadStarted() - visibilityDelayNanos - ingestWatermark.get() > 0
+                || System.nanoTime() - entry.loadStarted() <= maxStalenessNanos;
+    }
+
+    private record Entry(List<ViewStats> stats, long loadStarted) {
+    }
+
+    private record Key(LocalDateTime start,
+                       LocalDateTime end,
+                       List<String> uris,
+                       String app,
+                       boolean unique,
+                       StatsPrecision precision,
+                       Integer limit) {
+
+        static Key of(StatsQuery query, long resolutionSeconds) {
+            List<String> uris = query.uris() == null
+                    ? null
+                    : query.uris().stream().distinct().sorted().toList();
+            return new Key(truncate(query.start(), resolutionSeconds), truncate(query.end(), resolutionSeconds),
+                    uris, query.app(), query.unique(), query.precision(), query.limit());
+        }
+
+        private static LocalDateTime truncate(LocalDateTime time, long resolutionSeconds) {
+            long seconds = time.toEpochSecond(ZoneOffset.UTC);
+            return LocalDateTime.ofEpochSecond(Math.floorDiv(seconds, resolutionSeconds) * resolutionSeconds,
+                    0, ZoneOffset.UTC);
+        }
+    }
+}
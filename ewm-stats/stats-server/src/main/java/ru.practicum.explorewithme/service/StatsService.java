@@ -1,13 +1,40 @@
 package ru.practicum.explorewithme.service;
 
+import ru.practicum.statsdto.HitBatchResult;
 import ru.practicum.statsdto.StatDto;
+import ru.practicum.statsdto.StatsPrecision;
+import ru.practicum.statsdto.TimeSeriesPoint;
 import ru.practicum.statsdto.ViewStats;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatsService {
     StatDto createStat(StatDto dto);
 
-    List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique);
+    HitBatchResult createStats(List<StatDto> dtos);
+
+    List<ViewStats> getStats(StatsQuery query);
+
+    /**
+     * Hands exact stats to the consumer one row at a time, most hits first, while they are read from the database.
+     * Precision is ignored: rollups and sketches are not consulted.
+     */
+    void streamStats(StatsQuery query, Consumer<ViewStats> consumer);
+
+    /**
+     * Hands per-bucket hits for one uri or uri pattern to the consumer, oldest bucket first.
+     */
+    void streamTimeSeries(TimeSeriesQuery query, Consumer<TimeSeriesPoint> consumer);
+
+    default List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        return getStats(StatsQuery.builder()
+                .start(start)
+                .end(end)
+                .uris(uris)
+                .unique(unique)
+                .precision(StatsPrecision.EXACT)
+                .build());
+    }
 }
@@ -2,43 +2,58 @@ package ru.practicum.explorewithme.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import ru.practicum.explorewithme.entity.Stat;
 import ru.practicum.explorewithme.exception.InvalidUriParameterException;
 import ru.practicum.explorewithme.exception.TimeRangeValidationException;
-import ru.practicum.explorewithme.mapper.StatMapper;
 import ru.practicum.statsdto.Constants;
+import ru.practicum.statsdto.HitBatchResult;
 import ru.practicum.statsdto.StatDto;
+import ru.practicum.statsdto.TimeSeriesPoint;
 import ru.practicum.statsdto.ViewStats;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 @Service
 @RequiredArgsConstructor
-@Transactional(readOnly = true)
 public class StatsServiceImpl implements StatsService {
-    private final StatsRepository repository;
-    private final StatMapper mapper;
+    private static final Pattern URI_FORMAT = Pattern.compile(Constants.URI_VALID_FORMAT);
+
+    private final StatsStorage storage;
+    private final StatsResultCache resultCache;
 
     @Override
-    @Transactional
     public StatDto createStat(StatDto dto) {
-        Stat stat = repository.save(mapper.toEntity(dto));
-        return mapper.toDto(stat);
+        return storage.save(dto);
+    }
+
+    @Override
+    public HitBatchResult createStats(List<StatDto> dtos) {
+        int accepted = storage.saveAll(dtos);
+        return new HitBatchResult(dtos.size(), accepted);
+    }
+
+    @Override
+    public List<ViewStats> getStats(StatsQuery query) {
+        validateRequestParams(query.start(), query.end());
+        validateUrisParams(query.uris());
+        return resultCache.get(query, storage::getStats);
+    }
+
+    @Override
+    public void streamStats(StatsQuery query, Consumer<ViewStats> consumer) {
+        validateRequestParams(query.start(), query.end());
+        validateUrisParams(query.uris());
+        storage.streamStats(query, consumer);
     }
 
     @Override
-    public List<ViewStats> getStats(LocalDateTime start,
-                                    LocalDateTime end,
-                                    List<String> uris,
-                                    boolean unique) {
-        validateRequestParams(start, end);
-        validateUrisParams(uris);
-        System.out.println(">>> Received unique = " + unique);
-        return unique
-                ? repository.getStatsUnique(start, end, uris)
-                : repository.getStatsNonUnique(start, end, uris);
+    public void streamTimeSeries(TimeSeriesQuery query, Consumer<TimeSeriesPoint> consumer) {
+        validateRequestParams(query.start(), query.end());
+        validateUrisParams(Collections.singletonList(query.uri()));
+        storage.streamTimeSeries(query, consumer);
     }
 
     private void validateRequestParams(LocalDateTime start, LocalDateTime end) {
@@ -58,7 +73,7 @@ public class StatsServiceImpl implements StatsService {
         }
 
         for (String uri : uris) {
-            if (!uri.matches(Constants.URI_VALID_FORMAT)) {
+            if (!URI_FORMAT.matcher(uri).matches() && !UriFilter.isPattern(uri)) {
                 throw new InvalidUriParameterException("Invalid URI format: " + uri);
             }
         }
@@ -0,0 +1,27 @@
+package ru.practicum.explorewithme.service;
+
+import ru.practicum.statsdto.StatDto;
+import ru.practicum.statsdto.TimeSeriesPoint;
+import ru.practicum.statsdto.ViewStats;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Where hits are kept and stats are computed, chosen with {@code stats-server.storage.engine}.
+ * Queries reach it already validated by {@link StatsService}.
+ */
+public interface StatsStorage {
+    StatDto save(StatDto dto);
+
+    /**
+     * @return how many of the hits were accepted
+     */
+    int saveAll(List<StatDto> dtos);
+
+    List<ViewStats> getStats(StatsQuery query);
+
+    void streamStats(StatsQuery query, Consumer<ViewStats> consumer);
+
+    void streamTimeSeries(TimeSeriesQuery query, Consumer<TimeSeriesPoint> consumer);
+}
@@ -0,0 +1,133 @@
+package ru.practicum.explorewithme.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.explorewithme.config.ConditionalOnJdbcStorage;
+import ru.practicum.explorewithme.config.DatabaseDialect;
+import ru.practicum.explorewithme.config.StatsServerProperties;
+
+import java.util.List;
+
+/**
+ * Brings the stats tables up to date before the web server starts, in dependency order:
+ * the raw table layout, then partitioning, then the derived tables and the in-memory index built from raw hits.
+ * Running before the first request means no hit is counted twice or missed by the backfills.
+ */
+@Component
+@ConditionalOnJdbcStorage
+public class StatsStorageInitializer implements SmartInitializingSingleton {
+    private static final Logger logger = LoggerFactory.getLogger(StatsStorageInitializer.class);
+
+    static final String URI_TIME_INDEX = "idx_endpoint_hits_uri_id_time";
+    static final String APP_URI_TIME_INDEX = "idx_endpoint_hits_app_id_uri_id_time";
+    // the IP rides along on PostgreSQL, so app-scoped unique counts are index-only scans too
+    static final String POSTGRES_APP_URI_TIME_COLUMNS = "(app_id, uri_id, timestamp) INCLUDE (ip)";
+    static final String GENERIC_APP_URI_TIME_COLUMNS = "(app_id, uri_id, timestamp)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect dialect;
+    private final DictionaryEncodingMigration dictionaryMigration;
+    private final HitPartitionManager partitionManager;
+    private final HitRollupRepository rollupRepository;
+    private final HitSketchRepository sketchRepository;
+    private final HotStatsIndex hotIndex;
+    private final StatsServerProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    public StatsStorageInitializer(JdbcTemplate jdbcTemplate,
+                                   DatabaseDialect dialect,
+                                   DictionaryEncodingMigration dictionaryMigration,
+                                   HitPartitionManager partitionManager,
+                                   HitRollupRepository rollupRepository,
+                                   HitSketchRepository sketchRepository,
+                                   HotStatsIndex hotIndex,
+                                   StatsServerProperties properties,
+                                   PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.dictionaryMigration = dictionaryMigration;
+        this.partitionManager = partitionManager;
+        this.rollupRepository = rollupRepository;
+        this.sketchRepository = sketchRepository;
+        this.hotIndex = hotIndex;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        transactionTemplate.executeWithoutResult(status -> {
+            dictionaryMigration.migrateIfNeeded();
+            migrateCompactedHitsToHours();
+        });
+        // not in schema.sql: a legacy table has no uri_id column until it is migrated
+        createIndex(URI_TIME_INDEX, "endpoint_hits", "(uri_id, timestamp)");
+        createIndex(APP_URI_TIME_INDEX, "endpoint_hits", dialect == DatabaseDialect.POSTGRESQL
+                ? POSTGRES_APP_URI_TIME_COLUMNS
+                : GENERIC_APP_URI_TIME_COLUMNS);
+        if (dialect == DatabaseDialect.POSTGRESQL) {
+            // the unique index follows the database collation, which LIKE 'prefix%' cannot range-scan
+            createIndex("idx_stat_uris_uri_prefix", "stat_uris", "(uri text_pattern_ops)");
+        }
+        partitionManager.initialize();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (properties.getRollup().isEnabled()) {
+                rollupRepository.backfillIfEmpty();
+            } else {
+                rollupRepository.clear();
+            }
+        });
+        if (properties.getSketch().isEnabled()) {
+            transactionTemplate.executeWithoutResult(status -> sketchRepository.backfillIfEmpty());
+        }
+        hotIndex.rebuild();
+    }
+
+    /**
+     * On PostgreSQL a missing index is built with CREATE INDEX CONCURRENTLY outside a transaction, so other
+     * instances keep writing hits meanwhile. That is not possible on a partitioned table, whose indexes
+     * {@link HitPartitionManager} creates when it converts the table.
+     */
+    private void createIndex(String name, String table, String columns) {
+        if (dialect != DatabaseDialect.POSTGRESQL) {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + name + " ON " + table + " " + columns);
+            return;
+        }
+        List<Boolean> valid = jdbcTemplate.queryForList("SELECT i.indisvalid FROM pg_index i " +
+                "JOIN pg_class c ON c.oid = i.indexrelid WHERE c.relname = ? AND pg_table_is_visible(c.oid)",
+                Boolean.class, name);
+        if (valid.contains(Boolean.TRUE)) {
+            return;
+        }
+        if (!valid.isEmpty()) {
+            // left behind by an interrupted concurrent build; IF NOT EXISTS would keep it
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY " + name);
+        }
+        String kind = jdbcTemplate.queryForObject("SELECT CAST(relkind AS VARCHAR) FROM pg_class " +
+                "WHERE relname = ? AND pg_table_is_visible(oid)", String.class, table);
+        String concurrently = "p".equals(kind) ? "" : "CONCURRENTLY ";
+        jdbcTemplate.execute("CREATE INDEX " + concurrently + "IF NOT EXISTS " + name + " ON " + table + " " +
+                columns);
+        logger.info("Created index {} on {}", name, table);
+    }
+
+    /**
+     * compacted_hits used to keep one row per day; such a row becomes the row of the day's first hour.
+     */
+    private void migrateCompactedHitsToHours() {
+        Integer dayColumns = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.columns " +
+                "WHERE table_schema = CURRENT_SCHEMA AND LOWER(table_name) = 'compacted_hits' " +
+                "AND LOWER(column_name) = 'bucket_day'", Integer.class);
+        if (dayColumns == null || dayColumns == 0) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE compacted_hits RENAME COLUMN bucket_day TO bucket_hour");
+        jdbcTemplate.execute("ALTER TABLE compacted_hits ALTER COLUMN bucket_hour SET DATA TYPE TIMESTAMP");
+        logger.info("Converted compacted_hits from per-day to per-hour rows");
+    }
+}
@@ -0,0 +1,14 @@
+package ru.practicum.explorewithme.service;
+
+import lombok.Builder;
+import ru.practicum.statsdto.StatsBucket;
+
+import java.time.LocalDateTime;
+
+@Builder
+public record TimeSeriesQuery(LocalDateTime start,
+                              LocalDateTime end,
+                              String uri,
+                              StatsBucket bucket,
+                              boolean unique) {
+}
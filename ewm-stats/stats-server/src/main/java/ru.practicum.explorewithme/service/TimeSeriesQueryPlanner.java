@@ -0,0 +1,40 @@
+package ru.practicum.explorewithme.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.explorewithme.config.ConditionalOnJdbcStorage;
+import ru.practicum.explorewithme.config.StatsServerProperties;
+import ru.practicum.statsdto.TimeSeriesPoint;
+
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Streams a series in bucket order. Non-unique whole buckets come from hit_rollups of the requested granularity
+ * when rollups are enabled; the partial first and last buckets, and unique counts, are grouped from raw and
+ * compacted hits.
+ */
+@Component
+@ConditionalOnJdbcStorage
+@RequiredArgsConstructor
+public class TimeSeriesQueryPlanner {
+    private final HitTimeSeriesRepository repository;
+    private final StatsServerProperties properties;
+
+    public void stream(TimeSeriesQuery query, Consumer<TimeSeriesPoint> consumer) {
+        RollupGranularity granularity = RollupGranularity.of(query.bucket());
+        LocalDateTime start = query.start();
+        LocalDateTime end = query.end();
+        LocalDateTime rollupStart = granularity.ceil(start);
+        LocalDateTime rollupEnd = granularity.floor(end);
+        if (query.unique() || !properties.getRollup().isEnabled() || !rollupStart.isBefore(rollupEnd)) {
+            repository.streamRaw(start, end, true, query.uri(), query.unique(), granularity, consumer);
+            return;
+        }
+        if (start.isBefore(rollupStart)) {
+            repository.streamRaw(start, rollupStart, false, query.uri(), false, granularity, consumer);
+        }
+        repository.streamRollups(new RollupRange(granularity, rollupStart, rollupEnd), query.uri(), consumer);
+        repository.streamRaw(rollupEnd, end, true, query.uri(), false, granularity, consumer);
+    }
+}
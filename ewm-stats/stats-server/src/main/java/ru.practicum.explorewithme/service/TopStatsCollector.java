@@ -0,0 +1,46 @@
+package ru.practicum.explorewithme.service;
+
+import ru.practicum.statsdto.ViewStats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the {@code limit} rows with the most hits in a min-heap, so memory is bounded by the limit rather than by
+ * the number of rows offered. Ties are broken by uri and then app to keep results stable.
+ */
+public class TopStatsCollector implements Consumer<ViewStats> {
+    public static final Comparator<ViewStats> MOST_HITS_FIRST = Comparator.comparing(ViewStats::getHits).reversed()
+            .thenComparing(ViewStats::getUri)
+            .thenComparing(ViewStats::getApp);
+
+    private final int limit;
+    private final PriorityQueue<ViewStats> heap;
+
+    public TopStatsCollector(int limit) {
+        this.limit = limit;
+        this.heap = new PriorityQueue<>(Math.min(limit, 1_024) + 1, MOST_HITS_FIRST.reversed());
+    }
+
+    @Override
+    public void accept(ViewStats stats) {
+        if (heap.size() < limit) {
+            heap.add(stats);
+        } else if (MOST_HITS_FIRST.compare(stats, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(stats);
+        }
+    }
+
+    /**
+     * The collected rows, most hits first.
+     */
+    public List<ViewStats> result() {
+        List<ViewStats> result = new ArrayList<>(heap);
+        result.sort(MOST_HITS_FIRST);
+        return result;
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.explorewithme.service;
+
+import ru.practicum.statsdto.Constants;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The uris of a stats query, split into exact uris and prefix patterns such as {@code /events/*}.
+ */
+public record UriFilter(List<String> exact, List<String> prefixes) {
+    private static final String WILDCARD = "*";
+    private static final Pattern PREFIX_PATTERN_FORMAT = Pattern.compile(Constants.URI_PREFIX_PATTERN_FORMAT);
+
+    public static UriFilter of(List<String> uris) {
+        List<String> exact = new ArrayList<>();
+        List<String> prefixes = new ArrayList<>();
+        for (String uri : new LinkedHashSet<>(uris)) {
+            if (isPattern(uri)) {
+                prefixes.add(uri.substring(0, uri.length() - WILDCARD.length()));
+            } else {
+                exact.add(uri);
+            }
+        }
+        return new UriFilter(exact, prefixes);
+    }
+
+    public static boolean isPattern(String uri) {
+        return PREFIX_PATTERN_FORMAT.matcher(uri).matches();
+    }
+
+    public boolean matches(String uri) {
+        if (exact.contains(uri)) {
+            return true;
+        }
+        for (String prefix : prefixes) {
+            if (uri.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A predicate on the uri column: the exact uris bound as one array parameter, so one plan serves every
+     * list size, and each prefix as a LIKE range scan.
+     */
+    public String toSql(String column, List<Object> args) {
+        List<String> conditions = new ArrayList<>();
+        if (!exact.isEmpty()) {
+            conditions.add(column + " = ANY(?)");
+            args.add(exact.toArray(String[]::new));
+        }
+        for (String prefix : prefixes) {
+            conditions.add(column + " LIKE ? ESCAPE '\\'");
+            args.add(escapeLike(prefix) + "%");
+        }
+        return "(" + String.join(" OR ", conditions) + ")";
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
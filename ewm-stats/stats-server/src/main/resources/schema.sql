@@ -1,11 +1,48 @@
+CREATE TABLE IF NOT EXISTS stat_apps (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY,
+    name VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_stat_apps PRIMARY KEY (id),
+    CONSTRAINT uq_stat_apps_name UNIQUE (name)
+);
+
+CREATE TABLE IF NOT EXISTS stat_uris (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY,
+    uri VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_stat_uris PRIMARY KEY (id),
+    CONSTRAINT uq_stat_uris_uri UNIQUE (uri)
+);
+
 CREATE TABLE IF NOT EXISTS endpoint_hits (
     id BIGSERIAL NOT NULL,
-    app VARCHAR(255) NOT NULL,
-    uri VARCHAR(255) NOT NULL,
-    ip VARCHAR(255) NOT NULL,
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    ip BYTEA NOT NULL,
     timestamp TIMESTAMP NOT NULL,
     CONSTRAINT pk_endpoint_hit_id PRIMARY KEY (id)
 );
 
-CREATE INDEX IF NOT EXISTS idx_endpoint_hits_uri_time
-    ON endpoint_hits (uri, timestamp);
+CREATE TABLE IF NOT EXISTS hit_rollups (
+    granularity VARCHAR(8) NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    hits BIGINT NOT NULL,
+    CONSTRAINT pk_hit_rollups PRIMARY KEY (granularity, uri_id, bucket_start, app_id)
+);
+
+CREATE TABLE IF NOT EXISTS hit_sketches (
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    bucket_day DATE NOT NULL,
+    registers BYTEA NOT NULL,
+    CONSTRAINT pk_hit_sketches PRIMARY KEY (uri_id, bucket_day, app_id)
+);
+
+CREATE TABLE IF NOT EXISTS compacted_hits (
+    bucket_hour TIMESTAMP NOT NULL,
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    ip BYTEA NOT NULL,
+    hits BIGINT NOT NULL,
+    CONSTRAINT pk_compacted_hits PRIMARY KEY (uri_id, bucket_hour, app_id, ip)
+);
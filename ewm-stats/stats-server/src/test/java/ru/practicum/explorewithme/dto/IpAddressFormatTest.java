@@ -0,0 +1,106 @@
+package ru.practicum.explorewithme.dto;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.Test;
+import ru.practicum.statsdto.IpAddressFormat;
+import ru.practicum.statsdto.StatDto;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IpAddressFormatTest {
+    @Test
+    void parse_shouldMatchInetAddressForValidAddresses() throws Exception {
+        byte[] buffer = new byte[IpAddressFormat.IPV6_BYTES];
+        for (String ip : new String[]{"0.0.0.0", "10.0.0.1", "255.255.255.255",
+                "::", "::1", "1::", "2001:db8::1", "2001:DB8:0:0:0:0:0:1", "fe80::1:2:3:4:5:6",
+                "1:2:3:4:5:6:7:8", "::ffff:10.0.0.1", "64:ff9b::192.0.2.33", "1:2:3:4:5:6:1.2.3.4"}) {
+            int length = IpAddressFormat.parse(ip, buffer);
+            byte[] expected = InetAddress.getByName(ip).getAddress();
+
+            assertThat(IpAddressFormat.isValid(ip)).as(ip).isTrue();
+            // InetAddress collapses ::ffff:a.b.c.d into an IPv4 address, and so does the stored form
+            assertThat(length).as(ip).isEqualTo(ip.indexOf(':') >= 0 ? IpAddressFormat.IPV6_BYTES : expected.length);
+            assertThat(IpAddressFormat.toBytes(ip)).as(ip).containsExactly(expected);
+        }
+    }
+
+    @Test
+    void toBytes_shouldStoreIpv4MappedAddressesAsIpv4() {
+        assertThat(IpAddressFormat.toBytes("::ffff:1.2.3.4")).containsExactly(IpAddressFormat.toBytes("1.2.3.4"));
+        assertThat(IpAddressFormat.toBytes("0:0:0:0:0:ffff:102:304")).containsExactly(1, 2, 3, 4);
+        assertThat(IpAddressFormat.toBytes("::1.2.3.4")).hasSize(IpAddressFormat.IPV6_BYTES);
+        assertThat(IpAddressFormat.toBytes("64:ff9b::1.2.3.4")).hasSize(IpAddressFormat.IPV6_BYTES);
+    }
+
+    @Test
+    void parse_shouldReadLeadingZerosAsDecimal() {
+        assertThat(IpAddressFormat.toBytes("192.168.001.010")).containsExactly(192, 168, 1, 10);
+    }
+
+    @Test
+    void parse_shouldRejectMalformedAddresses() {
+        for (String ip : new String[]{"", "1", "256.0.0.1", "1.2.3", "1.2.3.4.5", "1..2.3", ".1.2.3", "1.2.3.",
+                "0001.2.3.4", "1.2.3.4:80", "ip1", "١.2.3.4", ":", ":::", "1:", ":1", "1:::2", "1::2::3",
+                "12345::1", "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7", "1:2:3:4::5:6:7:8", "g::1", "::1.2.3",
+                "1:2:3:4:5:6:7:1.2.3.4", "::ffff:256.0.0.1", "[::1]", "fe80::1%eth0", null}) {
+            assertThat(IpAddressFormat.parse(ip, new byte[IpAddressFormat.IPV6_BYTES]))
+                    .as(ip)
+                    .isEqualTo(IpAddressFormat.INVALID);
+            if (ip != null) {
+                assertThatThrownBy(() -> IpAddressFormat.toBytes(ip))
+                        .as(ip)
+                        .isInstanceOf(IllegalArgumentException.class);
+            }
+        }
+    }
+
+    @Test
+    void toString_shouldRoundTrip() {
+        assertThat(IpAddressFormat.toString(IpAddressFormat.toBytes("10.0.0.1"))).isEqualTo("10.0.0.1");
+        assertThat(IpAddressFormat.toString(IpAddressFormat.toBytes("2001:DB8:0:0:0:0:0:1"))).isEqualTo("2001:db8::1");
+        assertThatThrownBy(() -> IpAddressFormat.toString(new byte[5])).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void toString_shouldWriteRfc5952CanonicalIpv6() {
+        String[][] cases = {
+                {"0:0:0:0:0:0:0:1", "::1"},
+                {"0:0:0:0:0:0:0:0", "::"},
+                {"1:0:0:0:0:0:0:0", "1::"},
+                {"2001:0db8:0000:0000:0000:ff00:0042:8329", "2001:db8::ff00:42:8329"},
+                {"2001:db8:0:1:1:1:1:1", "2001:db8:0:1:1:1:1:1"},
+                {"2001:0:0:1:0:0:0:1", "2001:0:0:1::1"},
+                {"2001:db8:0:0:1:0:0:1", "2001:db8::1:0:0:1"},
+                {"fe80::1:2:3:4:5:6", "fe80:0:1:2:3:4:5:6"},
+                // stored as IPv4, see toBytes_shouldStoreIpv4MappedAddressesAsIpv4
+                {"::ffff:10.0.0.1", "10.0.0.1"},
+                {"::ffff:a00:1", "10.0.0.1"},
+                {"64:ff9b::c000:221", "64:ff9b::c000:221"}
+        };
+        for (String[] ip : cases) {
+            assertThat(IpAddressFormat.toString(IpAddressFormat.toBytes(ip[0]))).as(ip[0]).isEqualTo(ip[1]);
+        }
+        byte[] mapped = new byte[IpAddressFormat.IPV6_BYTES];
+        IpAddressFormat.parse("::ffff:a00:1", mapped);
+        assertThat(IpAddressFormat.toString(mapped)).isEqualTo("::ffff:10.0.0.1");
+    }
+
+    @Test
+    void ipAddressConstraint_shouldValidateStatDto() {
+        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
+            Validator validator = factory.getValidator();
+            LocalDateTime now = LocalDateTime.now();
+
+            assertThat(validator.validate(new StatDto("app", "/events/1", "2001:db8::1", now))).isEmpty();
+            assertThat(validator.validate(new StatDto("app", "/events/1", "300.1.1.1", now)))
+                    .extracting(violation -> violation.getPropertyPath().toString() + ": " + violation.getMessage())
+                    .containsExactly("ip: Invalid IP address format");
+        }
+    }
+}
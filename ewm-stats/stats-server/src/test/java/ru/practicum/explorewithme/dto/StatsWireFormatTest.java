@@ -0,0 +1,49 @@
+package ru.practicum.explorewithme.dto;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import ru.practicum.statsdto.StatDto;
+import ru.practicum.statsdto.StatsWireFormat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatsWireFormatTest {
+    private final ObjectMapper smile = StatsWireFormat.smileMapper();
+    private final ObjectMapper json = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    void smile_shouldRoundTripHitWithSecondPrecisionTimestamp() throws Exception {
+        StatDto dto = new StatDto("ewm-main-service", "/events/1", "2001:db8::1",
+                LocalDateTime.of(2025, 3, 1, 12, 30, 15));
+
+        StatDto decoded = smile.readValue(smile.writeValueAsBytes(dto), StatDto.class);
+
+        assertThat(decoded).usingRecursiveComparison().isEqualTo(dto);
+    }
+
+    @Test
+    void smile_shouldBeAtLeastHalfTheSizeOfJson_forHitBatch() throws Exception {
+        List<StatDto> batch = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.of(2025, 3, 1, 0, 0);
+        for (int i = 0; i < 500; i++) {
+            batch.add(new StatDto("ewm-main-service", "/events/" + (i % 20), "10.0.0." + (i % 100),
+                    now.plusSeconds(i)));
+        }
+
+        byte[] smileBytes = smile.writeValueAsBytes(batch);
+        byte[] jsonBytes = json.writeValueAsBytes(batch);
+
+        assertThat(smileBytes.length * 2).isLessThan(jsonBytes.length);
+        assertThat(smile.readValue(smileBytes, new TypeReference<List<StatDto>>() {
+        })).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(batch);
+    }
+}
@@ -10,14 +10,24 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.explorewithme.StatController;
+import ru.practicum.explorewithme.exception.IngestionBufferFullException;
 import ru.practicum.explorewithme.service.StatsService;
+import ru.practicum.statsdto.HitBatchResult;
 import ru.practicum.statsdto.StatDto;
+import ru.practicum.statsdto.StatsWireFormat;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -76,6 +86,21 @@ public class HitControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void shouldReturnBadRequest_whenTimestampIsMissing() throws Exception {
+        StatDto dto = new StatDto(
+                "ewm-main-service",
+                "/endpoint",
+                "192.168.0.1",
+                null
+        );
+
+        mockMvc.perform(post("/hit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(dto)))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void shouldCreateStatAndReturnDto() throws Exception {
         StatDto request = new StatDto("my-app", "/uri", "127.0.0.1", LocalDateTime.now());
@@ -105,4 +130,94 @@ public class HitControllerTest {
                         .value("An unexpected error occurred. Please try again later."))
                 .andExpect(jsonPath("$.message").value("Database is down"));
     }
+
+    @Test
+    void shouldSaveHitsBatchAndReturnCounts() throws Exception {
+        List<StatDto> batch = List.of(
+                new StatDto("my-app", "/events/1", "127.0.0.1", LocalDateTime.now()),
+                new StatDto("my-app", "/events/2", "::1", LocalDateTime.now())
+        );
+
+        when(statsService.createStats(any())).thenReturn(new HitBatchResult(2, 2));
+
+        mockMvc.perform(post("/hits/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(batch)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.received").value(2))
+                .andExpect(jsonPath("$.accepted").value(2));
+    }
+
+    @Test
+    void shouldReturn429WithAcceptedCount_whenOnlyPartOfBatchIsTaken() throws Exception {
+        List<StatDto> batch = List.of(
+                new StatDto("my-app", "/events/1", "127.0.0.1", LocalDateTime.now()),
+                new StatDto("my-app", "/events/2", "127.0.0.1", LocalDateTime.now())
+        );
+
+        when(statsService.createStats(any())).thenReturn(new HitBatchResult(2, 1));
+
+        mockMvc.perform(post("/hits/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(batch)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.received").value(2))
+                .andExpect(jsonPath("$.accepted").value(1));
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenBatchContainsInvalidHit() throws Exception {
+        List<StatDto> batch = List.of(
+                new StatDto("my-app", "/events/1", "127.0.0.1", LocalDateTime.now()),
+                new StatDto("my-app", "/events/2", "not_an_ip", LocalDateTime.now())
+        );
+
+        mockMvc.perform(post("/hits/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(batch)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Validation error"));
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenBatchIsEmpty() throws Exception {
+        mockMvc.perform(post("/hits/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturn429WithRetryAfter_whenBufferIsFull() throws Exception {
+        StatDto dto = new StatDto("app", "/uri", "127.0.0.1", LocalDateTime.now());
+
+        when(statsService.createStat(any()))
+                .thenThrow(new IngestionBufferFullException("Hit buffer is full, retry later", Duration.ofSeconds(2)));
+
+        mockMvc.perform(post("/hit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(dto)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"));
+    }
+
+    @Test
+    void shouldAcceptAndProduceSmile() throws Exception {
+        StatDto dto = new StatDto("ewm-main-service", "/events/1", "192.168.0.1",
+                LocalDateTime.of(2025, 3, 1, 12, 0));
+        when(statsService.createStats(any())).thenReturn(new HitBatchResult(1, 1));
+        ObjectMapper smile = StatsWireFormat.smileMapper();
+
+        byte[] response = mockMvc.perform(post("/hits/batch")
+                        .contentType(StatsWireFormat.SMILE_VALUE)
+                        .accept(StatsWireFormat.SMILE_VALUE)
+                        .content(smile.writeValueAsBytes(List.of(dto))))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(StatsWireFormat.SMILE_VALUE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(smile.readValue(response, HitBatchResult.class).getAccepted()).isEqualTo(1);
+        verify(statsService).createStats(argThat(dtos -> dtos.getFirst().getTimestamp().equals(dto.getTimestamp())));
+    }
 }
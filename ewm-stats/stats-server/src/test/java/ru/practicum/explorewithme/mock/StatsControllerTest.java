@@ -7,18 +7,29 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.explorewithme.StatController;
 import ru.practicum.explorewithme.exception.NotFoundException;
+import ru.practicum.explorewithme.service.StatsQuery;
 import ru.practicum.explorewithme.service.StatsService;
+import ru.practicum.explorewithme.service.TimeSeriesQuery;
+import ru.practicum.statsdto.StatsBucket;
+import ru.practicum.statsdto.StatsPrecision;
+import ru.practicum.statsdto.TimeSeriesPoint;
 import ru.practicum.statsdto.ViewStats;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -35,7 +46,7 @@ public class StatsControllerTest {
     @Test
     void shouldReturnStats() throws Exception {
         List<ViewStats> result = List.of(new ViewStats("my-app", "/uri", 5L));
-        when(statsService.getStats(any(), any(), any(), anyBoolean())).thenReturn(result);
+        when(statsService.getStats(any(StatsQuery.class))).thenReturn(result);
 
         mockMvc.perform(get("/stats")
                         .param("start", "2025-01-01 00:00:00")
@@ -48,7 +59,7 @@ public class StatsControllerTest {
 
     @Test
     void shouldReturn404WhenStatsNotFound() throws Exception {
-        when(statsService.getStats(any(), any(), any(), anyBoolean()))
+        when(statsService.getStats(any(StatsQuery.class)))
                 .thenThrow(new NotFoundException("No stats found"));
 
         mockMvc.perform(get("/stats")
@@ -71,4 +82,193 @@ public class StatsControllerTest {
                 .andExpect(jsonPath("$.error").value("Bad request"))
                 .andExpect(jsonPath("$.message").value("Invalid value for parameter: unique"));
     }
+
+    @Test
+    void shouldPassApproximatePrecision() throws Exception {
+        when(statsService.getStats(argThat((StatsQuery query) -> query.approximate())))
+                .thenReturn(List.of(new ViewStats("my-app", "/uri", 7L)));
+
+        mockMvc.perform(get("/stats")
+                        .param("start", "2025-01-01 00:00:00")
+                        .param("end", "2025-12-31 23:59:59")
+                        .param("unique", "true")
+                        .param("precision", "approximate"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].hits").value(7));
+    }
+
+    @Test
+    void shouldStreamStatsAsJsonArray() throws Exception {
+        streamTwoRows();
+
+        mockMvc.perform(get("/stats")
+                        .param("start", "2025-01-01 00:00:00")
+                        .param("end", "2025-12-31 23:59:59")
+                        .param("stream", "true")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].uri").value("/b"));
+    }
+
+    @Test
+    void shouldStreamStatsAsNdjson() throws Exception {
+        streamTwoRows();
+
+        mockMvc.perform(get("/stats")
+                        .param("start", "2025-01-01 00:00:00")
+                        .param("end", "2025-12-31 23:59:59")
+                        .param("stream", "true")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"app\":\"my-app\",\"uri\":\"/a\",\"hits\":9}\n" +
+                        "{\"app\":\"my-app\",\"uri\":\"/b\",\"hits\":4}\n"));
+    }
+
+    @Test
+    void shouldReturn400WhenLimitIsNotPositive() throws Exception {
+        mockMvc.perform(get("/stats")
+                        .param("start", "2025-01-01 00:00:00")
+                        .param("end", "2025-12-31 23:59:59")
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldQueryStatsWithJsonBody() throws Exception {
+        when(statsService.getStats(argThat((StatsQuery query) -> query.unique() && query.uris().size() == 2)))
+                .thenReturn(List.of(new ViewStats("my-app", "/a", 3L)));
+
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"start\":\"2025-01-01 00:00:00\",\"end\":\"2025-12-31 23:59:59\"," +
+                                "\"uris\":[\"/a\",\"/b\"],\"unique\":true}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].hits").value(3));
+    }
+
+    @Test
+    void shouldPassAppFilterToService() throws Exception {
+        when(statsService.getStats(argThat((StatsQuery query) -> "ewm-main".equals(query.app()))))
+                .thenReturn(List.of(new ViewStats("ewm-main", "/events/1", 4L)));
+
+        mockMvc.perform(get("/stats")
+                        .param("start", "2025-01-01 00:00:00")
+                        .param("end", "2025-12-31 23:59:59")
+                        .param("app", "ewm-main"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].app").value("ewm-main"));
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"start\":\"2025-01-01 00:00:00\",\"end\":\"2025-12-31 23:59:59\"," +
+                                "\"app\":\"ewm-main\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].hits").value(4));
+    }
+
+    @Test
+    void shouldReturn400WhenAppIsBlank() throws Exception {
+        mockMvc.perform(get("/stats")
+                        .param("start", "2025-01-01 00:00:00")
+                        .param("end", "2025-12-31 23:59:59")
+                        .param("app", " "))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"start\":\"2025-01-01 00:00:00\",\"end\":\"2025-12-31 23:59:59\"," +
+                                "\"app\":\"\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldPassPrecisionAndLimitOfQueryBodyToService() throws Exception {
+        when(statsService.getStats(argThat((StatsQuery query) -> query.precision() == StatsPrecision.APPROXIMATE
+                && Integer.valueOf(5).equals(query.limit()))))
+                .thenReturn(List.of(new ViewStats("ewm-main", "/events/1", 9L)));
+
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"start\":\"2025-01-01 00:00:00\",\"end\":\"2025-12-31 23:59:59\"," +
+                                "\"unique\":true,\"precision\":\"APPROXIMATE\",\"limit\":5}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].hits").value(9));
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"start\":\"2025-01-01 00:00:00\",\"end\":\"2025-12-31 23:59:59\"," +
+                                "\"limit\":0}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturn400WhenQueryBodyHasNoStart() throws Exception {
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"end\":\"2025-12-31 23:59:59\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnTopStatsForPrefix() throws Exception {
+        when(statsService.getStats(argThat((StatsQuery query) -> query.limit() == 20
+                && query.uris().equals(List.of("/events/*")))))
+                .thenReturn(List.of(new ViewStats("my-app", "/events/7", 12L)));
+
+        mockMvc.perform(get("/stats/top")
+                        .param("start", "2025-01-01 00:00:00")
+                        .param("end", "2025-01-02 00:00:00")
+                        .param("limit", "20")
+                        .param("prefix", "/events/"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].uri").value("/events/7"));
+    }
+
+    @Test
+    void shouldReturn400WhenTopLimitIsTooLarge() throws Exception {
+        mockMvc.perform(get("/stats/top")
+                        .param("start", "2025-01-01 00:00:00")
+                        .param("end", "2025-01-02 00:00:00")
+                        .param("limit", "1001"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldStreamTimeSeries() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<TimeSeriesPoint> consumer = invocation.getArgument(1);
+            consumer.accept(new TimeSeriesPoint(LocalDateTime.of(2025, 1, 1, 10, 0), 7L));
+            return null;
+        }).when(statsService).streamTimeSeries(argThat((TimeSeriesQuery query) ->
+                query.bucket() == StatsBucket.HOUR && query.uri().equals("/events/*")), any());
+
+        mockMvc.perform(get("/stats/timeseries")
+                        .param("start", "2025-01-01 00:00:00")
+                        .param("end", "2025-01-02 00:00:00")
+                        .param("uri", "/events/*")
+                        .param("bucket", "hour"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].bucket").value("2025-01-01 10:00:00"))
+                .andExpect(jsonPath("$[0].hits").value(7));
+    }
+
+    @Test
+    void shouldReturn400WhenBucketIsUnknown() throws Exception {
+        mockMvc.perform(get("/stats/timeseries")
+                        .param("start", "2025-01-01 00:00:00")
+                        .param("end", "2025-01-02 00:00:00")
+                        .param("uri", "/events/1")
+                        .param("bucket", "week"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid value for parameter: bucket"));
+    }
+
+    private void streamTwoRows() {
+        doAnswer(invocation -> {
+            Consumer<ViewStats> consumer = invocation.getArgument(1);
+            consumer.accept(new ViewStats("my-app", "/a", 9L));
+            consumer.accept(new ViewStats("my-app", "/b", 4L));
+            return null;
+        }).when(statsService).streamStats(any(StatsQuery.class), any());
+    }
 }
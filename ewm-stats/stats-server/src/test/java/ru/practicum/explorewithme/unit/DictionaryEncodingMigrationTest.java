@@ -0,0 +1,61 @@
+package ru.practicum.explorewithme.unit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.practicum.explorewithme.service.DictionaryEncodingMigration;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DictionaryEncodingMigrationTest {
+    private JdbcTemplate jdbcTemplate;
+    private DictionaryEncodingMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:legacy-hits;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("CREATE TABLE stat_apps (id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "name VARCHAR(255) NOT NULL UNIQUE)");
+        jdbcTemplate.execute("CREATE TABLE stat_uris (id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "uri VARCHAR(255) NOT NULL UNIQUE)");
+        jdbcTemplate.execute("CREATE TABLE endpoint_hits (id BIGSERIAL PRIMARY KEY, app VARCHAR(255) NOT NULL, " +
+                "uri VARCHAR(255) NOT NULL, ip VARCHAR(255) NOT NULL, timestamp TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX idx_endpoint_hits_uri_time ON endpoint_hits (uri, timestamp)");
+        jdbcTemplate.execute("CREATE TABLE endpoint_hit_rollups (uri VARCHAR(255))");
+        migration = new DictionaryEncodingMigration(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void migrateIfNeeded_shouldReplaceStringsWithIdsAndBinaryIps() {
+        jdbcTemplate.update("INSERT INTO endpoint_hits (app, uri, ip, timestamp) VALUES " +
+                "('ewm-main', '/events/1', '10.0.0.1', NOW()), " +
+                "('ewm-main', '/events/1', '2001:db8::1', NOW()), " +
+                "('ewm-main', '/events/2', '999.0.0.1', NOW())");
+
+        assertThat(migration.migrateIfNeeded()).isTrue();
+
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT a.name, u.uri, h.ip FROM endpoint_hits h " +
+                        "JOIN stat_apps a ON a.id = h.app_id JOIN stat_uris u ON u.id = h.uri_id ORDER BY h.id");
+        assertThat(rows).hasSize(2);
+        assertThat(rows).allSatisfy(row -> {
+            assertThat(row.get("NAME")).isEqualTo("ewm-main");
+            assertThat(row.get("URI")).isEqualTo("/events/1");
+        });
+        assertThat((byte[]) rows.get(0).get("IP")).containsExactly(10, 0, 0, 1);
+        assertThat((byte[]) rows.get(1).get("IP")).hasSize(16);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.tables " +
+                "WHERE LOWER(table_name) = 'endpoint_hit_rollups'", Integer.class)).isZero();
+        assertThat(migration.migrateIfNeeded()).isFalse();
+    }
+}
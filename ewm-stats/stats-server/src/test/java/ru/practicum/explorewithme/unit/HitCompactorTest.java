@@ -0,0 +1,136 @@
+package ru.practicum.explorewithme.unit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.explorewithme.service.HitCompactor;
+import ru.practicum.explorewithme.service.StatsRepository;
+import ru.practicum.explorewithme.service.StatsService;
+import ru.practicum.explorewithme.service.TimeSeriesQuery;
+import ru.practicum.statsdto.StatDto;
+import ru.practicum.statsdto.StatsBucket;
+import ru.practicum.statsdto.TimeSeriesPoint;
+import ru.practicum.statsdto.ViewStats;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest(properties = "stats-server.compaction.chunk-size=2")
+@ActiveProfiles("test")
+@Transactional
+class HitCompactorTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 3, 1, 0, 0);
+
+    @Autowired
+    private HitCompactor compactor;
+    @Autowired
+    private StatsService statsService;
+    @Autowired
+    private StatsRepository repository;
+
+    @Test
+    void compact_shouldMoveOldHitsInChunksAndKeepCounts() {
+        statsService.createStats(List.of(
+                new StatDto("app", "/events/1", "10.0.0.1", BASE.plusHours(10)),
+                new StatDto("app", "/events/1", "10.0.0.1", BASE.plusHours(12)),
+                new StatDto("app", "/events/1", "10.0.0.2", BASE.plusDays(1).plusHours(1)),
+                new StatDto("app", "/events/2", "10.0.0.3", BASE.plusHours(3)),
+                new StatDto("app", "/events/1", "10.0.0.1", BASE.plusDays(5)),
+                new StatDto("app", "/events/1", "10.0.0.4", BASE.plusDays(5).plusHours(2))
+        ));
+        List<ViewStats> allTime = statsService.getStats(BASE.minusYears(1), BASE.plusYears(1), null, false);
+        List<ViewStats> allTimeUnique = statsService.getStats(BASE.minusYears(1), BASE.plusYears(1), null, true);
+
+        // the cutoff falls mid-day, so only whole days before it are compacted
+        long moved = compactor.compact(BASE.plusDays(2).plusHours(6));
+
+        assertThat(moved).isEqualTo(4);
+        assertThat(compactor.status().chunks()).isEqualTo(2);
+        assertThat(compactor.status().running()).isFalse();
+        assertThat(repository.findAll()).hasSize(2);
+        assertThat(statsService.getStats(BASE.minusYears(1), BASE.plusYears(1), null, false))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(allTime);
+        assertThat(statsService.getStats(BASE.minusYears(1), BASE.plusYears(1), null, true))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(allTimeUnique);
+        assertThat(statsService.getStats(BASE, BASE.plusDays(6), List.of("/events/1"), true))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactly(new ViewStats("app", "/events/1", 3L));
+        assertThat(statsService.getStats(BASE.plusDays(1), BASE.plusDays(6), List.of("/events/1"), false))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactly(new ViewStats("app", "/events/1", 3L));
+        assertThat(compactor.compact(BASE.plusDays(2))).isZero();
+    }
+
+    @Test
+    void compact_shouldMergeLateHitsIntoAlreadyCompactedDays() {
+        statsService.createStats(List.of(
+                new StatDto("app", "/events/1", "10.0.0.1", BASE.plusHours(1)),
+                new StatDto("app", "/events/1", "10.0.0.2", BASE.plusHours(2))
+        ));
+        compactor.compact(BASE.plusDays(1));
+        statsService.createStats(List.of(new StatDto("app", "/events/1", "10.0.0.1", BASE.plusHours(3))));
+
+        assertThat(statsService.getStats(BASE, BASE.plusDays(1), null, false))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactly(new ViewStats("app", "/events/1", 3L));
+
+        compactor.compact(BASE.plusDays(1));
+
+        assertThat(repository.findAll()).isEmpty();
+        assertThat(statsService.getStats(BASE, BASE.plusDays(1), null, false))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactly(new ViewStats("app", "/events/1", 3L));
+        assertThat(statsService.getStats(BASE, BASE.plusDays(1), null, true))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactly(new ViewStats("app", "/events/1", 2L));
+    }
+
+    @Test
+    void compact_shouldKeepHourResolutionForWindowsAndSeriesOverCompactedDays() {
+        statsService.createStats(List.of(
+                new StatDto("app", "/events/1", "10.0.0.1", BASE.plusHours(3)),
+                new StatDto("app", "/events/1", "10.0.0.2", BASE.plusHours(10)),
+                new StatDto("app", "/events/1", "10.0.0.1", BASE.plusHours(10).plusMinutes(30)),
+                new StatDto("app", "/events/1", "10.0.0.3", BASE.plusHours(20))
+        ));
+
+        compactor.compact(BASE.plusDays(1));
+
+        assertThat(repository.findAll()).isEmpty();
+        assertThat(statsService.getStats(BASE.plusHours(9), BASE.plusHours(21), null, false))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactly(new ViewStats("app", "/events/1", 3L));
+        assertThat(statsService.getStats(BASE.plusHours(9), BASE.plusHours(20), null, true))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactly(new ViewStats("app", "/events/1", 3L));
+        assertThat(series(StatsBucket.HOUR, false))
+                .extracting(TimeSeriesPoint::getBucket, TimeSeriesPoint::getHits)
+                .containsExactly(
+                        tuple(BASE.plusHours(3), 1L),
+                        tuple(BASE.plusHours(10), 2L),
+                        tuple(BASE.plusHours(20), 1L));
+        assertThat(series(StatsBucket.DAY, true))
+                .extracting(TimeSeriesPoint::getBucket, TimeSeriesPoint::getHits)
+                .containsExactly(tuple(BASE, 3L));
+    }
+
+    private List<TimeSeriesPoint> series(StatsBucket bucket, boolean unique) {
+        List<TimeSeriesPoint> points = new ArrayList<>();
+        statsService.streamTimeSeries(TimeSeriesQuery.builder()
+                .start(BASE)
+                .end(BASE.plusDays(1))
+                .uri("/events/1")
+                .bucket(bucket)
+                .unique(unique)
+                .build(), points::add);
+        return points;
+    }
+}
@@ -0,0 +1,85 @@
+package ru.practicum.explorewithme.unit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.explorewithme.config.PartitionInterval;
+import ru.practicum.explorewithme.service.HitCompactor;
+import ru.practicum.explorewithme.service.HitPartitionManager;
+import ru.practicum.explorewithme.service.StatsRepository;
+import ru.practicum.explorewithme.service.StatsService;
+import ru.practicum.statsdto.StatDto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"stats-server.rollup.enabled=true", "stats-server.sketch.enabled=true"})
+@ActiveProfiles("test")
+@Transactional
+class HitPartitionManagerTest {
+    @Autowired
+    private HitPartitionManager partitionManager;
+    @Autowired
+    private StatsService statsService;
+    @Autowired
+    private StatsRepository repository;
+    @Autowired
+    private HitCompactor compactor;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void applyRetention_shouldFallBackToDeleteWithoutPartitions() {
+        LocalDateTime now = LocalDateTime.now();
+        statsService.createStats(List.of(
+                new StatDto("app", "/events/1", "10.0.0.1", now.minusDays(400)),
+                new StatDto("app", "/events/1", "10.0.0.2", now.minusDays(40)),
+                new StatDto("app", "/events/1", "10.0.0.3", now)
+        ));
+
+        partitionManager.applyRetention(now.minusDays(90));
+
+        assertThat(partitionManager.isPartitioned()).isFalse();
+        assertThat(repository.findAll()).hasSize(2);
+    }
+
+    @Test
+    void applyRetention_shouldPruneDerivedTablesWithTheSameCutoff() {
+        LocalDateTime now = LocalDateTime.now();
+        statsService.createStats(List.of(
+                new StatDto("app", "/events/1", "10.0.0.1", now.minusDays(400)),
+                new StatDto("app", "/events/1", "10.0.0.2", now.minusDays(200)),
+                new StatDto("app", "/events/1", "10.0.0.3", now.minusDays(40))
+        ));
+        compactor.compact(now.minusDays(300));
+
+        partitionManager.applyRetention(now.minusDays(90));
+
+        assertThat(count("compacted_hits")).isZero();
+        assertThat(count("hit_sketches")).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT MIN(bucket_start) FROM hit_rollups", LocalDateTime.class))
+                .isAfterOrEqualTo(now.minusDays(90).toLocalDate().atStartOfDay());
+    }
+
+    @Test
+    void partitionInterval_shouldAlignBoundsAndNames() {
+        LocalDateTime time = LocalDateTime.of(2025, 2, 28, 23, 59, 59);
+
+        assertThat(PartitionInterval.MONTH.floor(time)).isEqualTo(LocalDate.of(2025, 2, 1));
+        assertThat(PartitionInterval.MONTH.next(LocalDate.of(2025, 2, 1))).isEqualTo(LocalDate.of(2025, 3, 1));
+        assertThat(PartitionInterval.MONTH.suffix(LocalDate.of(2025, 2, 1))).isEqualTo("202502");
+        assertThat(PartitionInterval.DAY.floor(time)).isEqualTo(LocalDate.of(2025, 2, 28));
+        assertThat(PartitionInterval.DAY.next(LocalDate.of(2025, 2, 28))).isEqualTo(LocalDate.of(2025, 3, 1));
+        assertThat(PartitionInterval.DAY.suffix(LocalDate.of(2025, 2, 28))).isEqualTo("20250228");
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+}
@@ -0,0 +1,156 @@
+package ru.practicum.explorewithme.unit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.explorewithme.config.IngestionMode;
+import ru.practicum.explorewithme.config.StatsServerProperties;
+import ru.practicum.explorewithme.entity.Stat;
+import ru.practicum.explorewithme.service.HitWriteBehindBuffer;
+import ru.practicum.explorewithme.service.HitWriter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class HitWriteBehindBufferTest {
+    private final HitWriter writer = mock(HitWriter.class);
+    private final List<Stat> written = new ArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void offer_shouldAcceptOnlyUpToCapacity() {
+        HitWriteBehindBuffer buffer = buffer(3, Duration.ofMinutes(1));
+
+        int accepted = buffer.offer(hits(5));
+
+        assertThat(accepted).isEqualTo(3);
+        assertThat(buffer.size()).isEqualTo(3);
+    }
+
+    @Test
+    void start_shouldDrainQueueInBackground() {
+        recordWrites();
+        HitWriteBehindBuffer buffer = buffer(100, Duration.ofMillis(20));
+        buffer.start();
+
+        buffer.offer(hits(10));
+
+        verify(writer, timeout(2_000).atLeastOnce()).writeAll(anyList());
+        buffer.stop();
+        assertThat(written).hasSize(10);
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void stop_shouldFlushEverythingStillQueued() {
+        recordWrites();
+        HitWriteBehindBuffer buffer = buffer(100, Duration.ofMinutes(1));
+        buffer.offer(hits(7));
+        verify(writer, never()).writeAll(anyList());
+
+        buffer.start();
+        buffer.stop();
+
+        verify(writer, atLeastOnce()).writeAll(anyList());
+        assertThat(written).hasSize(7);
+        assertThat(buffer.isRunning()).isFalse();
+    }
+
+    @Test
+    void drain_shouldDropARejectedHitWithoutHoldingUpTheHitsBehindIt() throws Exception {
+        Stat bad = new Stat(null, 1, 99, new byte[]{10, 0, 0, 1}, null);
+        doAnswer(invocation -> {
+            List<Stat> batch = invocation.getArgument(0);
+            if (batch.contains(bad)) {
+                throw new DataIntegrityViolationException("NULL not allowed for column \"TIMESTAMP\"");
+            }
+            synchronized (written) {
+                written.addAll(batch);
+            }
+            return batch.size();
+        }).when(writer).writeAll(anyList());
+        HitWriteBehindBuffer buffer = buffer(100, Duration.ofMillis(20));
+        List<Stat> first = hits(3);
+        List<Stat> behind = hits(2);
+        buffer.offer(first);
+        buffer.offer(List.of(bad));
+        buffer.offer(behind);
+
+        buffer.start();
+
+        awaitWritten(5);
+        List<Stat> next = hits(1);
+        buffer.offer(next);
+        awaitWritten(6);
+        buffer.stop();
+
+        assertThat(written).hasSize(6).doesNotContain(bad).containsAll(first).containsAll(behind).containsAll(next);
+        assertThat(meterRegistry.get("stats.ingestion.dropped").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void start_shouldDoNothingInSyncMode() {
+        StatsServerProperties properties = new StatsServerProperties();
+        properties.getIngestion().setMode(IngestionMode.SYNC);
+        HitWriteBehindBuffer buffer = new HitWriteBehindBuffer(writer,
+                mock(PlatformTransactionManager.class), properties, meterRegistry);
+
+        buffer.start();
+
+        assertThat(buffer.isEnabled()).isFalse();
+        assertThat(buffer.isRunning()).isFalse();
+    }
+
+    private HitWriteBehindBuffer buffer(int capacity, Duration flushInterval) {
+        StatsServerProperties properties = new StatsServerProperties();
+        properties.getIngestion().setMode(IngestionMode.BUFFERED);
+        properties.getIngestion().setQueueCapacity(capacity);
+        properties.getIngestion().setFlushInterval(flushInterval);
+        properties.getIngestion().setMaxFlushAttempts(2);
+        return new HitWriteBehindBuffer(writer, mock(PlatformTransactionManager.class), properties, meterRegistry);
+    }
+
+    private void awaitWritten(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (writtenCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(writtenCount()).isEqualTo(count);
+    }
+
+    private int writtenCount() {
+        synchronized (written) {
+            return written.size();
+        }
+    }
+
+    private void recordWrites() {
+        doAnswer(invocation -> {
+            List<Stat> batch = invocation.getArgument(0);
+            synchronized (written) {
+                written.addAll(batch);
+            }
+            return batch.size();
+        }).when(writer).writeAll(anyList());
+    }
+
+    private static List<Stat> hits(int count) {
+        List<Stat> stats = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            stats.add(new Stat(null, 1, i, new byte[]{10, 0, 0, 1}, LocalDateTime.now()));
+        }
+        return stats;
+    }
+}
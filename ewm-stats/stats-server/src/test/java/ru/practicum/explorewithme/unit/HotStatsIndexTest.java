@@ -0,0 +1,182 @@
+package ru.practicum.explorewithme.unit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.practicum.explorewithme.service.HotStatsIndex;
+import ru.practicum.explorewithme.service.StatsQuery;
+import ru.practicum.explorewithme.service.StatsRepository;
+import ru.practicum.explorewithme.service.StatsService;
+import ru.practicum.statsdto.StatDto;
+import ru.practicum.statsdto.StatsPrecision;
+import ru.practicum.statsdto.ViewStats;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "stats-server.hot-index.enabled=true")
+@ActiveProfiles("test")
+class HotStatsIndexTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 3, 1, 0, 0);
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    @Autowired
+    private StatsService statsService;
+    @Autowired
+    private StatsRepository repository;
+    @Autowired
+    private RawStatsOracle oracle;
+    @Autowired
+    private HotStatsIndex hotIndex;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAllInBatch();
+        hotIndex.rebuild();
+    }
+
+    @Test
+    void getStats_allTime_shouldBeAnsweredFromIndexAndMatchDatabase() {
+        Random random = new Random(11);
+        List<StatDto> hits = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            String ip = i % 5 == 0 ? "2001:db8::" + Integer.toHexString(random.nextInt(30)) : "10.0.0." + random.nextInt(60);
+            hits.add(new StatDto("app", "/events/" + random.nextInt(4), ip, BASE.plusMinutes(random.nextInt(10_000))));
+        }
+        statsService.createStats(hits);
+        statsService.createStat(new StatDto("other-app", "/events/1", "10.0.0.1", BASE));
+        double servedBefore = servedQueries();
+
+        LocalDateTime now = BASE.plusDays(30);
+        List<String> uris = List.of("/events/1", "/events/3", "/events/404");
+        assertThat(toMap(statsService.getStats(EARLIEST, now, null, true)))
+                .isEqualTo(toMap(oracle.getStatsUnique(EARLIEST, now, null)));
+        assertThat(toMap(statsService.getStats(EARLIEST, now, uris, false)))
+                .isEqualTo(toMap(oracle.getStatsNonUnique(EARLIEST, now, uris)));
+        assertThat(toMap(statsService.getStats(EARLIEST, now, List.of("/events/1", "/events/*"), true)))
+                .isEqualTo(toMap(oracle.getStatsUnique(EARLIEST, now, null)));
+        assertThat(servedQueries()).isEqualTo(servedBefore + 3);
+
+        statsService.getStats(BASE.plusDays(1), now, uris, true);
+        assertThat(servedQueries()).isEqualTo(servedBefore + 3);
+        assertThat(meterRegistry.get("stats.hot_index.memory").gauge().value()).isPositive();
+    }
+
+    @Test
+    void getStats_withApp_shouldBeAnsweredFromIndex() {
+        statsService.createStats(List.of(
+                new StatDto("app", "/events/1", "10.0.0.1", BASE),
+                new StatDto("app", "/events/2", "10.0.0.1", BASE.plusHours(1)),
+                new StatDto("other-app", "/events/1", "10.0.0.2", BASE.plusHours(2)),
+                new StatDto("other-app", "/events/1", "10.0.0.2", BASE.plusHours(3))));
+        double servedBefore = servedQueries();
+        StatsQuery query = StatsQuery.builder()
+                .start(EARLIEST)
+                .end(BASE.plusDays(1))
+                .app("other-app")
+                .precision(StatsPrecision.EXACT)
+                .build();
+
+        assertThat(toMap(statsService.getStats(query))).isEqualTo(Map.of("other-app/events/1", 2L));
+        assertThat(toMap(statsService.getStats(query.toBuilder().unique(true).uris(List.of("/events/*")).build())))
+                .isEqualTo(Map.of("other-app/events/1", 1L));
+        assertThat(statsService.getStats(query.toBuilder().app("unknown-app").build())).isEmpty();
+        assertThat(servedQueries()).isEqualTo(servedBefore + 3);
+    }
+
+    @Test
+    void rebuild_shouldRestoreCountersFromDatabase() {
+        statsService.createStats(List.of(
+                new StatDto("app", "/events/1", "10.0.0.1", BASE),
+                new StatDto("app", "/events/1", "10.0.0.1", BASE.plusHours(1)),
+                new StatDto("app", "/events/1", "10.0.0.2", BASE.plusHours(2))));
+        List<ViewStats> beforeRebuild = statsService.getStats(EARLIEST, BASE.plusDays(1), List.of("/events/1"), true);
+
+        hotIndex.rebuild();
+
+        List<ViewStats> afterRebuild = statsService.getStats(EARLIEST, BASE.plusDays(1), List.of("/events/1"), true);
+        assertThat(beforeRebuild.getFirst().getHits()).isEqualTo(2);
+        assertThat(afterRebuild.getFirst().getHits()).isEqualTo(2);
+    }
+
+    @Test
+    void rebuild_shouldKeepHitsCommittedWhileItScans() throws Exception {
+        List<StatDto> initial = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            initial.add(new StatDto("app", "/events/" + i % 7, "10.0." + i % 200 + "." + i % 31, BASE.plusMinutes(i)));
+        }
+        statsService.createStats(initial);
+        ExecutorService ingest = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writes = ingest.submit(() -> {
+                for (int batch = 0; batch < 50; batch++) {
+                    statsService.createStat(new StatDto("app", "/events/" + batch % 7, "10.1.0." + batch,
+                            BASE.plusMinutes(batch)));
+                }
+            });
+            for (int i = 0; i < 3; i++) {
+                hotIndex.rebuild();
+            }
+            writes.get(30, TimeUnit.SECONDS);
+        } finally {
+            ingest.shutdownNow();
+        }
+
+        LocalDateTime now = BASE.plusDays(30);
+        double servedBefore = servedQueries();
+        assertThat(toMap(statsService.getStats(EARLIEST, now, null, true)))
+                .isEqualTo(toMap(oracle.getStatsUnique(EARLIEST, now, null)));
+        assertThat(toMap(statsService.getStats(EARLIEST, now, null, false)))
+                .isEqualTo(toMap(oracle.getStatsNonUnique(EARLIEST, now, null)));
+        assertThat(servedQueries()).isEqualTo(servedBefore + 2);
+    }
+
+    @Test
+    void getStats_withLimit_shouldReturnSameTopRowsFromIndexAndDatabase() {
+        List<StatDto> hits = new ArrayList<>();
+        for (int uri = 0; uri < 50; uri++) {
+            for (int i = 0; i <= uri % 17; i++) {
+                hits.add(new StatDto("app", "/events/" + uri, "10.0.0." + i, BASE.plusMinutes(uri)));
+            }
+        }
+        statsService.createStats(hits);
+        StatsQuery query = StatsQuery.builder()
+                .start(EARLIEST)
+                .end(BASE.plusDays(1))
+                .uris(List.of("/events/*"))
+                .precision(StatsPrecision.EXACT)
+                .limit(5)
+                .build();
+
+        List<ViewStats> fromIndex = statsService.getStats(query);
+        List<ViewStats> fromDatabase = statsService.getStats(query.toBuilder().start(BASE.plusSeconds(1)).build());
+
+        assertThat(fromIndex).extracting(ViewStats::getUri)
+                .containsExactly("/events/16", "/events/33", "/events/15", "/events/32", "/events/49");
+        assertThat(fromDatabase).extracting(ViewStats::getUri)
+                .containsExactly("/events/16", "/events/33", "/events/15", "/events/32", "/events/49");
+    }
+
+    private double servedQueries() {
+        return meterRegistry.get("stats.hot_index.queries").counter().count();
+    }
+
+    private static Map<String, Long> toMap(List<ViewStats> stats) {
+        return stats.stream().collect(Collectors.toMap(s -> s.getApp() + s.getUri(), ViewStats::getHits));
+    }
+}
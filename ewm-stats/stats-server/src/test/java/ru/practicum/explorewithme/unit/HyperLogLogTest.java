@@ -0,0 +1,62 @@
+package ru.practicum.explorewithme.unit;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.explorewithme.service.HyperLogLog;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimate_shouldBeExactForSmallCardinalities() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 50; i++) {
+            sketch.add("10.0.0." + i);
+            sketch.add("10.0.0." + i);
+        }
+
+        assertThat(sketch.estimate()).isEqualTo(50);
+    }
+
+    @Test
+    void estimate_shouldStayWithinErrorBoundForLargeCardinalities() {
+        HyperLogLog sketch = new HyperLogLog();
+        int distinct = 200_000;
+        for (int i = 0; i < distinct; i++) {
+            sketch.add("10." + (i >> 16) + "." + ((i >> 8) & 0xFF) + "." + (i & 0xFF));
+        }
+
+        assertThat((double) sketch.estimate()).isCloseTo(distinct, within(distinct * 0.05));
+    }
+
+    @Test
+    void merge_shouldEqualSketchOfUnion() {
+        HyperLogLog left = new HyperLogLog();
+        HyperLogLog right = new HyperLogLog();
+        HyperLogLog union = new HyperLogLog();
+        for (int i = 0; i < 30_000; i++) {
+            String ip = "192.168." + (i >> 8) + "." + (i & 0xFF);
+            (i % 3 == 0 ? left : right).add(ip);
+            union.add(ip);
+        }
+
+        left.merge(right);
+
+        assertThat(left.estimate()).isEqualTo(union.estimate());
+    }
+
+    @Test
+    void toBytes_shouldRoundTripSparseAndDenseForms() {
+        HyperLogLog sparse = new HyperLogLog();
+        sparse.add("127.0.0.1");
+        HyperLogLog dense = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            dense.add("ip-" + i);
+        }
+
+        assertThat(sparse.toBytes()).hasSizeLessThan(16);
+        assertThat(HyperLogLog.fromBytes(sparse.toBytes()).estimate()).isEqualTo(sparse.estimate());
+        assertThat(HyperLogLog.fromBytes(dense.toBytes()).estimate()).isEqualTo(dense.estimate());
+    }
+}
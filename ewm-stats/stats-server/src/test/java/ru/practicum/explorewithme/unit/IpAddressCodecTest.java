@@ -0,0 +1,38 @@
+package ru.practicum.explorewithme.unit;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.explorewithme.exception.InvalidIpAddressException;
+import ru.practicum.explorewithme.mapper.IpAddressCodec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IpAddressCodecTest {
+
+    @Test
+    void toBytes_shouldEncodeIpv4AsFourBytes() {
+        assertThat(IpAddressCodec.toBytes("192.168.0.1")).containsExactly(192, 168, 0, 1);
+        assertThat(IpAddressCodec.toString(IpAddressCodec.toBytes("0.0.0.0"))).isEqualTo("0.0.0.0");
+    }
+
+    @Test
+    void toBytes_shouldEncodeIpv6AsSixteenBytes() {
+        byte[] full = IpAddressCodec.toBytes("2001:db8:0:0:0:0:0:1");
+        byte[] compressed = IpAddressCodec.toBytes("2001:DB8::1");
+
+        assertThat(full).hasSize(16).containsExactly(compressed);
+        assertThat(IpAddressCodec.toString(full)).isEqualTo("2001:db8::1");
+        assertThat(IpAddressCodec.toBytes("::")).containsOnly(0);
+        assertThat(IpAddressCodec.toBytes("::ffff:10.0.0.1")).containsExactly(10, 0, 0, 1);
+    }
+
+    @Test
+    void toBytes_shouldRejectMalformedAddresses() {
+        for (String ip : new String[]{"256.0.0.1", "1.2.3", "1.2.3.4.5", "1..2.3", "ip1",
+                "1::2::3", "12345::1", "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7", "g::1"}) {
+            assertThatThrownBy(() -> IpAddressCodec.toBytes(ip))
+                    .as(ip)
+                    .isInstanceOf(InvalidIpAddressException.class);
+        }
+    }
+}
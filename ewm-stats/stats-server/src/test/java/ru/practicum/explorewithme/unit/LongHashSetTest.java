@@ -0,0 +1,27 @@
+package ru.practicum.explorewithme.unit;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.explorewithme.service.LongHashSet;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongHashSetTest {
+
+    @Test
+    void add_shouldMatchHashSetSemantics() {
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 50_000; i++) {
+            long value = random.nextInt(20_000) - 100;
+            assertThat(set.add(value)).isEqualTo(expected.add(value));
+        }
+
+        assertThat(set.size()).isEqualTo(expected.size());
+        assertThat(set.memoryBytes()).isLessThanOrEqualTo(4L * expected.size() * Long.BYTES);
+    }
+}
@@ -0,0 +1,57 @@
+package ru.practicum.explorewithme.unit;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.explorewithme.entity.Stat;
+import ru.practicum.statsdto.ViewStats;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Plain JPQL over endpoint_hits that the rollup, sketch and in-memory read paths are checked against.
+ */
+public interface RawStatsOracle extends Repository<Stat, Long> {
+    @Query("SELECT new ru.practicum.statsdto.ViewStats(a.name, u.uri, COUNT(DISTINCT e.ip)) " +
+            "FROM Stat e JOIN StatApp a ON a.id = e.appId JOIN StatUri u ON u.id = e.uriId " +
+            "WHERE e.timestamp BETWEEN :start AND :end " +
+            "AND (:uris IS NULL OR u.uri IN :uris) " +
+            "GROUP BY a.name, u.uri " +
+            "ORDER BY COUNT(DISTINCT e.ip) DESC")
+    List<ViewStats> getStatsUnique(@Param("start") LocalDateTime start,
+                                   @Param("end") LocalDateTime end,
+                                   @Param("uris") List<String> uris);
+
+    @Query("SELECT new ru.practicum.statsdto.ViewStats(a.name, u.uri, COUNT(*)) " +
+            "FROM Stat e JOIN StatApp a ON a.id = e.appId JOIN StatUri u ON u.id = e.uriId " +
+            "WHERE e.timestamp BETWEEN :start AND :end " +
+            "AND (:uris IS NULL OR u.uri IN :uris) " +
+            "GROUP BY a.name, u.uri " +
+            "ORDER BY COUNT(*) DESC")
+    List<ViewStats> getStatsNonUnique(@Param("start") LocalDateTime start,
+                                      @Param("end") LocalDateTime end,
+                                      @Param("uris") List<String> uris);
+
+    @Query("SELECT new ru.practicum.statsdto.ViewStats(a.name, u.uri, COUNT(DISTINCT e.ip)) " +
+            "FROM Stat e JOIN StatApp a ON a.id = e.appId JOIN StatUri u ON u.id = e.uriId " +
+            "WHERE a.name = :app AND e.timestamp BETWEEN :start AND :end " +
+            "AND (:uris IS NULL OR u.uri IN :uris) " +
+            "GROUP BY a.name, u.uri " +
+            "ORDER BY COUNT(DISTINCT e.ip) DESC")
+    List<ViewStats> getStatsUniqueByApp(@Param("start") LocalDateTime start,
+                                        @Param("end") LocalDateTime end,
+                                        @Param("uris") List<String> uris,
+                                        @Param("app") String app);
+
+    @Query("SELECT new ru.practicum.statsdto.ViewStats(a.name, u.uri, COUNT(*)) " +
+            "FROM Stat e JOIN StatApp a ON a.id = e.appId JOIN StatUri u ON u.id = e.uriId " +
+            "WHERE a.name = :app AND e.timestamp BETWEEN :start AND :end " +
+            "AND (:uris IS NULL OR u.uri IN :uris) " +
+            "GROUP BY a.name, u.uri " +
+            "ORDER BY COUNT(*) DESC")
+    List<ViewStats> getStatsNonUniqueByApp(@Param("start") LocalDateTime start,
+                                           @Param("end") LocalDateTime end,
+                                           @Param("uris") List<String> uris,
+                                           @Param("app") String app);
+}
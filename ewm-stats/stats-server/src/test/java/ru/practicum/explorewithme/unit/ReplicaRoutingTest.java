@@ -0,0 +1,101 @@
+package ru.practicum.explorewithme.unit;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import ru.practicum.explorewithme.config.ReplicaMonitor;
+import ru.practicum.explorewithme.service.StatsService;
+import ru.practicum.statsdto.StatDto;
+import ru.practicum.statsdto.ViewStats;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two independent H2 databases stand in for the primary and its replica, so each query shows where it went.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stats-primary",
+        "stats-server.replica.enabled=true",
+        "stats-server.replica.url=jdbc:h2:mem:stats-replica;INIT=RUNSCRIPT FROM 'classpath:schema.sql'",
+        "stats-server.replica.username=stats",
+        "stats-server.replica.password=stats",
+        "stats-server.replica.check-interval=1h"
+})
+@ActiveProfiles("test")
+class ReplicaRoutingTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @Autowired
+    private StatsService statsService;
+    @Autowired
+    private ReplicaMonitor monitor;
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private HikariDataSource primary;
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private HikariDataSource replica;
+
+    @BeforeEach
+    void setUp() {
+        new JdbcTemplate(primary).update("DELETE FROM endpoint_hits");
+        new JdbcTemplate(replica).update("DELETE FROM endpoint_hits");
+        statsService.createStats(List.of(
+                new StatDto("app", "/events/1", "10.0.0.1", START.plusDays(1)),
+                new StatDto("app", "/events/1", "10.0.0.2", START.plusDays(2))
+        ));
+    }
+
+    @Test
+    void getStats_shouldReadFromReplicaOnceItIsUsable() {
+        monitor.markDown(new IllegalStateException("replica not checked yet"));
+        assertThat(hits()).isEqualTo(2);
+
+        monitor.check();
+
+        assertThat(monitor.isUsable()).isTrue();
+        assertThat(hits()).as("nothing was replicated yet").isZero();
+        JdbcTemplate replicaJdbc = new JdbcTemplate(replica);
+        replicaJdbc.update("INSERT INTO stat_apps (name) SELECT 'app' WHERE NOT EXISTS " +
+                "(SELECT 1 FROM stat_apps WHERE name = 'app')");
+        replicaJdbc.update("INSERT INTO stat_uris (uri) SELECT '/events/1' WHERE NOT EXISTS " +
+                "(SELECT 1 FROM stat_uris WHERE uri = '/events/1')");
+        replicaJdbc.update("INSERT INTO endpoint_hits (app_id, uri_id, ip, timestamp) " +
+                "SELECT a.id, u.id, X'0a000001', ? FROM stat_apps a, stat_uris u " +
+                "WHERE a.name = 'app' AND u.uri = '/events/1'", START.plusDays(3));
+        assertThat(hits()).isEqualTo(1);
+        assertThat(new JdbcTemplate(primary).queryForObject("SELECT COUNT(*) FROM endpoint_hits", Long.class))
+                .as("writes still go to the primary")
+                .isEqualTo(2);
+    }
+
+    @Test
+    @DirtiesContext
+    void getStats_shouldFallBackToPrimaryWhenReplicaIsDown() {
+        monitor.check();
+        assertThat(monitor.isUsable()).isTrue();
+
+        replica.close();
+
+        assertThat(hits()).isEqualTo(2);
+        assertThat(monitor.isUsable()).isFalse();
+        monitor.check();
+        assertThat(monitor.isUsable()).isFalse();
+    }
+
+    private long hits() {
+        return statsService.getStats(START, END, List.of("/events/1"), false).stream()
+                .mapToLong(ViewStats::getHits)
+                .sum();
+    }
+}
@@ -0,0 +1,54 @@
+package ru.practicum.explorewithme.unit;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.explorewithme.service.RollupGranularity;
+import ru.practicum.explorewithme.service.RollupPlan;
+import ru.practicum.explorewithme.service.RollupRange;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RollupPlanTest {
+
+    @Test
+    void of_shouldUseCoarsestBucketsAndRawEdges() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 22, 58, 30);
+        LocalDateTime end = LocalDateTime.of(2025, 1, 4, 1, 2, 10);
+
+        RollupPlan plan = RollupPlan.of(start, end);
+
+        assertThat(plan.rollupStart()).isEqualTo(LocalDateTime.of(2025, 1, 1, 22, 59));
+        assertThat(plan.rollupEnd()).isEqualTo(LocalDateTime.of(2025, 1, 4, 1, 2));
+        assertThat(plan.hasRawHead()).isTrue();
+        assertThat(plan.ranges()).containsExactly(
+                new RollupRange(RollupGranularity.MINUTE,
+                        LocalDateTime.of(2025, 1, 1, 22, 59), LocalDateTime.of(2025, 1, 1, 23, 0)),
+                new RollupRange(RollupGranularity.HOUR,
+                        LocalDateTime.of(2025, 1, 1, 23, 0), LocalDateTime.of(2025, 1, 2, 0, 0)),
+                new RollupRange(RollupGranularity.DAY,
+                        LocalDateTime.of(2025, 1, 2, 0, 0), LocalDateTime.of(2025, 1, 4, 0, 0)),
+                new RollupRange(RollupGranularity.HOUR,
+                        LocalDateTime.of(2025, 1, 4, 0, 0), LocalDateTime.of(2025, 1, 4, 1, 0)),
+                new RollupRange(RollupGranularity.MINUTE,
+                        LocalDateTime.of(2025, 1, 4, 1, 0), LocalDateTime.of(2025, 1, 4, 1, 2))
+        );
+    }
+
+    @Test
+    void of_shouldSkipRawHead_whenStartIsAligned() {
+        RollupPlan plan = RollupPlan.of(LocalDateTime.of(2000, 1, 1, 0, 0), LocalDateTime.of(2025, 6, 1, 0, 0));
+
+        assertThat(plan.hasRawHead()).isFalse();
+        assertThat(plan.ranges()).containsExactly(new RollupRange(RollupGranularity.DAY,
+                LocalDateTime.of(2000, 1, 1, 0, 0), LocalDateTime.of(2025, 6, 1, 0, 0)));
+    }
+
+    @Test
+    void of_shouldHaveNoRollups_whenWindowIsShorterThanAMinute() {
+        RollupPlan plan = RollupPlan.of(LocalDateTime.of(2025, 1, 1, 10, 0, 5),
+                LocalDateTime.of(2025, 1, 1, 10, 0, 50));
+
+        assertThat(plan.hasRollups()).isFalse();
+    }
+}
@@ -0,0 +1,212 @@
+package ru.practicum.explorewithme.unit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.explorewithme.config.StatsServerProperties;
+import ru.practicum.explorewithme.exception.InvalidIpAddressException;
+import ru.practicum.explorewithme.segment.SegmentStatsStorage;
+import ru.practicum.explorewithme.service.StatsQuery;
+import ru.practicum.explorewithme.service.StatsResultCache;
+import ru.practicum.explorewithme.service.TimeSeriesQuery;
+import ru.practicum.statsdto.StatDto;
+import ru.practicum.statsdto.StatsBucket;
+import ru.practicum.statsdto.TimeSeriesPoint;
+import ru.practicum.statsdto.ViewStats;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SegmentStatsStorageTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 3, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+    private StatsServerProperties properties;
+    private SegmentStatsStorage storage;
+    private final List<StatDto> hits = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        properties = new StatsServerProperties();
+        properties.getStorage().getSegment().setDirectory(directory);
+        properties.getStorage().getSegment().setSegmentSize(DataSize.ofBytes(32 * 300));
+        properties.getStorage().getSegment().setIndexInterval(16);
+        storage = new SegmentStatsStorage(properties, new StatsResultCache(properties, new SimpleMeterRegistry()));
+        Random random = new Random(5);
+        for (int i = 0; i < 1_000; i++) {
+            String ip = i % 4 == 0 ? "2001:db8::" + random.nextInt(20) : "10.0.0." + random.nextInt(40);
+            hits.add(new StatDto(i % 10 == 0 ? "other-app" : "app", "/events/" + random.nextInt(6), ip,
+                    BASE.plusSeconds(random.nextInt(2 * 24 * 3600))));
+        }
+        for (int i = 0; i < hits.size(); i += 100) {
+            storage.saveAll(hits.subList(i, i + 100));
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        storage.close();
+    }
+
+    @Test
+    void getStats_shouldMatchNaiveCount_acrossSealedAndActiveSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.filter(file -> file.toString().endsWith(".seg")).count()).isEqualTo(3);
+        }
+
+        assertMatches(BASE.minusDays(1), BASE.plusDays(3), null, false);
+        assertMatches(BASE.plusHours(3).plusSeconds(7), BASE.plusDays(1).plusMinutes(5), null, true);
+        assertMatches(BASE, BASE.plusDays(2), List.of("/events/1", "/events/4", "/missing"), false);
+        assertMatches(BASE.plusHours(10), BASE.plusHours(30), List.of("/events/2"), true);
+        assertMatches(BASE, BASE.plusDays(2), List.of("/events/*"), true);
+    }
+
+    @Test
+    void getStats_withApp_shouldSkipOtherAppsRecords() {
+        List<ViewStats> other = storage.getStats(query(BASE, BASE.plusDays(3), List.of("/events/*"), true)
+                .toBuilder().app("other-app").build());
+
+        assertThat(other).extracting(ViewStats::getApp).containsOnly("other-app");
+        assertThat(other).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyInAnyOrderElementsOf(storage.getStats(query(BASE, BASE.plusDays(3), null, true))
+                        .stream().filter(stats -> stats.getApp().equals("other-app")).toList());
+        assertThat(storage.getStats(query(BASE, BASE.plusDays(3), null, false).toBuilder().app("unknown-app")
+                .build())).isEmpty();
+    }
+
+    @Test
+    void getStats_withLimit_shouldReturnRowsWithMostHits() {
+        List<ViewStats> top = storage.getStats(query(BASE, BASE.plusDays(3), null, false).toBuilder().limit(2).build());
+        List<ViewStats> all = storage.getStats(query(BASE, BASE.plusDays(3), null, false));
+
+        assertThat(top).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(all.subList(0, 2));
+    }
+
+    @Test
+    void reopen_shouldRecoverDictionaryActiveSegmentAndSealedSegments() throws IOException {
+        List<ViewStats> before = storage.getStats(query(BASE, BASE.plusDays(3), null, true));
+        storage.close();
+
+        storage = new SegmentStatsStorage(properties, new StatsResultCache(properties, new SimpleMeterRegistry()));
+        storage.saveAll(List.of(new StatDto("app", "/events/1", "10.9.9.9", BASE)));
+
+        assertThat(storage.getStats(query(BASE, BASE.plusDays(3), List.of("/events/1"), false))
+                .stream().mapToLong(ViewStats::getHits).sum())
+                .isEqualTo(hits.stream().filter(hit -> hit.getUri().equals("/events/1")).count() + 1);
+        assertThat(storage.getStats(query(BASE, BASE.plusDays(3), List.of("/events/0"), true)))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyInAnyOrderElementsOf(before.stream()
+                        .filter(stats -> stats.getUri().equals("/events/0")).toList());
+    }
+
+    @Test
+    void streamTimeSeries_shouldGroupHitsByBucket() {
+        List<TimeSeriesPoint> series = new ArrayList<>();
+
+        storage.streamTimeSeries(TimeSeriesQuery.builder()
+                .start(BASE)
+                .end(BASE.plusDays(3))
+                .uri("/events/3")
+                .bucket(StatsBucket.HOUR)
+                .build(), series::add);
+
+        Map<LocalDateTime, Long> expected = new TreeMap<>();
+        hits.stream()
+                .filter(hit -> hit.getUri().equals("/events/3"))
+                .forEach(hit -> expected.merge(hit.getTimestamp().withMinute(0).withSecond(0), 1L, Long::sum));
+        assertThat(series).extracting(TimeSeriesPoint::getBucket).containsExactlyElementsOf(expected.keySet());
+        assertThat(series).extracting(TimeSeriesPoint::getHits).containsExactlyElementsOf(expected.values());
+    }
+
+    @Test
+    void saveAll_withInvalidIp_shouldRejectWholeBatch() {
+        long before = storage.getStats(query(BASE, BASE.plusDays(3), null, false)).stream()
+                .mapToLong(ViewStats::getHits).sum();
+
+        assertThatThrownBy(() -> storage.saveAll(List.of(
+                new StatDto("app", "/events/1", "10.0.0.1", BASE),
+                new StatDto("app", "/events/1", "999.0.0.1", BASE))))
+                .isInstanceOf(InvalidIpAddressException.class);
+        assertThat(storage.getStats(query(BASE, BASE.plusDays(3), null, false)).stream()
+                .mapToLong(ViewStats::getHits).sum()).isEqualTo(before);
+    }
+
+    @Test
+    void saveAll_withoutTimestamp_shouldRejectWholeBatch() {
+        List<ViewStats> before = storage.getStats(query(BASE.minusDays(1), BASE.plusDays(3), null, false));
+
+        assertThatThrownBy(() -> storage.saveAll(List.of(
+                new StatDto("app", "/events/1", "10.0.0.1", BASE),
+                new StatDto("app", "/events/untimed", "10.0.0.1", null))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(storage.getStats(query(BASE.minusDays(1), BASE.plusDays(3), null, false)))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyInAnyOrderElementsOf(before);
+    }
+
+    @Test
+    void saveAll_withUriTooLongForDictionary_shouldRejectWholeBatch() throws IOException {
+        String longUri = "/" + "x".repeat(70_000);
+
+        assertThatThrownBy(() -> storage.saveAll(List.of(
+                new StatDto("app", "/events/new", "10.0.0.1", BASE),
+                new StatDto("app", longUri, "10.0.0.1", BASE))))
+                .isInstanceOf(IllegalArgumentException.class);
+        storage.close();
+        storage = new SegmentStatsStorage(properties, new StatsResultCache(properties, new SimpleMeterRegistry()));
+
+        assertThat(storage.getStats(query(BASE, BASE.plusDays(3), List.of("/events/new", longUri), false)))
+                .isEmpty();
+        assertMatches(BASE.minusDays(1), BASE.plusDays(3), null, false);
+    }
+
+    private void assertMatches(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        Predicate<String> uriMatches = uri -> uris == null || uris.contains(uri)
+                || uris.stream().anyMatch(pattern -> pattern.endsWith("*")
+                && uri.startsWith(pattern.substring(0, pattern.length() - 1)));
+        Map<String, Set<String>> ips = new HashMap<>();
+        Map<String, Long> counts = new HashMap<>();
+        for (StatDto hit : hits) {
+            if (hit.getTimestamp().isBefore(start) || hit.getTimestamp().isAfter(end) || !uriMatches.test(hit.getUri())) {
+                continue;
+            }
+            String key = hit.getApp() + hit.getUri();
+            ips.computeIfAbsent(key, k -> new HashSet<>()).add(hit.getIp());
+            counts.merge(key, 1L, Long::sum);
+        }
+        Map<String, Long> expected = new HashMap<>(counts);
+        if (unique) {
+            ips.forEach((key, set) -> expected.put(key, (long) set.size()));
+        }
+
+        List<ViewStats> actual = storage.getStats(query(start, end, uris, unique));
+
+        Map<String, Long> actualMap = new HashMap<>();
+        actual.forEach(stats -> actualMap.put(stats.getApp() + stats.getUri(), stats.getHits()));
+        assertThat(actualMap).isEqualTo(expected);
+        assertThat(actual).extracting(ViewStats::getHits).isSortedAccordingTo((a, b) -> Long.compare(b, a));
+    }
+
+    private static StatsQuery query(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        return StatsQuery.builder().start(start).end(end).uris(uris).unique(unique).build();
+    }
+}
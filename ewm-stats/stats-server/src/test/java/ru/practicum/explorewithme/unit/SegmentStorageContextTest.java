@@ -0,0 +1,51 @@
+package ru.practicum.explorewithme.unit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.practicum.explorewithme.segment.SegmentStatsStorage;
+import ru.practicum.explorewithme.service.StatsService;
+import ru.practicum.explorewithme.service.StatsStorage;
+import ru.practicum.statsdto.StatDto;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("segment")
+class SegmentStorageContextTest {
+    @TempDir
+    static Path directory;
+
+    @Autowired
+    private StatsService statsService;
+    @Autowired
+    private ApplicationContext context;
+
+    @DynamicPropertySource
+    static void segmentDirectory(DynamicPropertyRegistry registry) {
+        registry.add("stats-server.storage.segment.directory", directory::toString);
+    }
+
+    @Test
+    void segmentProfile_shouldStartWithoutDataSource() {
+        LocalDateTime now = LocalDateTime.of(2025, 3, 1, 12, 0);
+        statsService.createStats(List.of(
+                new StatDto("app", "/events/1", "10.0.0.1", now),
+                new StatDto("app", "/events/1", "10.0.0.1", now)));
+
+        assertThat(context.getBean(StatsStorage.class)).isInstanceOf(SegmentStatsStorage.class);
+        assertThat(context.getBeanNamesForType(DataSource.class)).isEmpty();
+        assertThat(statsService.getStats(now.minusDays(1), now, List.of("/events/1"), true).getFirst().getHits())
+                .isEqualTo(1);
+    }
+}
@@ -0,0 +1,108 @@
+package ru.practicum.explorewithme.unit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import ru.practicum.explorewithme.config.StatsServerProperties;
+import ru.practicum.explorewithme.service.StatsQuery;
+import ru.practicum.explorewithme.service.StatsResultCache;
+import ru.practicum.statsdto.ViewStats;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatsResultCacheTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2025, 2, 1, 0, 0);
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void get_shouldShareResultsAcrossNormalisedKeys() {
+        StatsResultCache cache = cache(Duration.ZERO, Duration.ofSeconds(10));
+
+        cache.get(query(START, END, List.of("/events/2", "/events/1")), this::load);
+        cache.get(query(START.plusSeconds(3), END.plusSeconds(9), List.of("/events/1", "/events/2", "/events/1")),
+                this::load);
+        cache.get(query(START, END.plusSeconds(10), List.of("/events/1", "/events/2")), this::load);
+        cache.get(query(START, END, List.of("/events/1", "/events/2")).toBuilder().unique(true).build(),
+                this::load);
+
+        assertThat(loads).hasValue(3);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("stats.result_cache.hit_ratio").gauge().value()).isEqualTo(0.25);
+    }
+
+    @Test
+    void get_shouldReloadAfterIngestWithoutStalenessAllowance() {
+        StatsResultCache cache = cache(Duration.ZERO, Duration.ofSeconds(1));
+        StatsQuery query = query(START, END, null);
+
+        cache.get(query, this::load);
+        cache.get(query, this::load);
+        assertThat(loads).hasValue(1);
+
+        cache.onIngest();
+        List<ViewStats> stats = cache.get(query, this::load);
+
+        assertThat(loads).hasValue(2);
+        assertThat(stats).singleElement().extracting(ViewStats::getHits).isEqualTo(2L);
+    }
+
+    @Test
+    void onIngest_shouldMoveWatermarkOnlyOnceTheWritingTransactionCommits() {
+        StatsResultCache cache = cache(Duration.ZERO, Duration.ofSeconds(1));
+        StatsQuery query = query(START, END, null);
+        cache.get(query, this::load);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.onIngest();
+            cache.get(query, this::load);
+            assertThat(loads).hasValue(1);
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        cache.get(query, this::load);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void get_shouldServeWithinStalenessBoundAfterIngest() {
+        StatsResultCache cache = cache(Duration.ofHours(1), Duration.ofSeconds(1));
+        StatsQuery query = query(START, END, List.of("/events/1"));
+
+        cache.get(query, this::load);
+        cache.onIngest();
+        cache.get(query, this::load);
+        assertThat(loads).hasValue(1);
+
+        cache.invalidateAll();
+        cache.get(query, this::load);
+        assertThat(loads).hasValue(2);
+    }
+
+    private StatsResultCache cache(Duration maxStaleness, Duration keyResolution) {
+        StatsServerProperties properties = new StatsServerProperties();
+        properties.getResultCache().setMaxStaleness(maxStaleness);
+        properties.getResultCache().setKeyResolution(keyResolution);
+        return new StatsResultCache(properties, meterRegistry);
+    }
+
+    private List<ViewStats> load(StatsQuery query) {
+        return List.of(new ViewStats("app", "/events/1", (long) loads.incrementAndGet()));
+    }
+
+    private static StatsQuery query(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return StatsQuery.builder().start(start).end(end).uris(uris).build();
+    }
+}
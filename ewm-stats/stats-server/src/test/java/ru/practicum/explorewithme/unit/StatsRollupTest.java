@@ -0,0 +1,152 @@
+package ru.practicum.explorewithme.unit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.explorewithme.service.HitRollupRepository;
+import ru.practicum.explorewithme.service.RollupGranularity;
+import ru.practicum.explorewithme.service.StatsQuery;
+import ru.practicum.explorewithme.service.StatsService;
+import ru.practicum.explorewithme.service.TimeSeriesQuery;
+import ru.practicum.statsdto.StatDto;
+import ru.practicum.statsdto.StatsBucket;
+import ru.practicum.statsdto.StatsPrecision;
+import ru.practicum.statsdto.TimeSeriesPoint;
+import ru.practicum.statsdto.ViewStats;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "stats-server.rollup.enabled=true")
+@ActiveProfiles("test")
+@Transactional
+class StatsRollupTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 3, 1, 0, 0);
+
+    @Autowired
+    private StatsService statsService;
+    @Autowired
+    private RawStatsOracle oracle;
+    @Autowired
+    private HitRollupRepository rollupRepository;
+
+    @Test
+    void getStats_shouldMatchRawQuery_forArbitraryWindows() {
+        Random random = new Random(42);
+        List<StatDto> hits = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            hits.add(new StatDto("app", "/events/" + random.nextInt(5), "10.0.0." + random.nextInt(50),
+                    BASE.plusSeconds(random.nextInt(3 * 24 * 3600))));
+        }
+        hits.add(new StatDto("app", "/events/0", "10.0.0.1", BASE.plusDays(1)));
+        statsService.createStats(hits);
+
+        assertSameAsRaw(BASE.minusYears(1), BASE.plusYears(1), null);
+        assertSameAsRaw(BASE.plusHours(5).plusSeconds(17), BASE.plusDays(2).plusMinutes(3).plusSeconds(9), null);
+        assertSameAsRaw(BASE.plusMinutes(90), BASE.plusDays(1), List.of("/events/0", "/events/3"));
+        assertSameAsRaw(BASE.plusDays(1), BASE.plusDays(1), List.of("/events/0"));
+    }
+
+    @Test
+    void getStats_withApp_shouldMatchRawQuery() {
+        Random random = new Random(3);
+        List<StatDto> hits = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            hits.add(new StatDto(i % 3 == 0 ? "other-app" : "app", "/events/" + random.nextInt(4),
+                    "10.0.0." + random.nextInt(50), BASE.plusSeconds(random.nextInt(3 * 24 * 3600))));
+        }
+        statsService.createStats(hits);
+
+        assertSameAsRawForApp(BASE.minusYears(1), BASE.plusYears(1), null, "other-app");
+        assertSameAsRawForApp(BASE.plusHours(5).plusSeconds(17), BASE.plusDays(2).plusMinutes(3),
+                List.of("/events/0", "/events/3"), "app");
+    }
+
+    @Test
+    void streamTimeSeries_shouldMatchRawGrouping_forEveryBucket() {
+        Random random = new Random(7);
+        List<StatDto> hits = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            hits.add(new StatDto("app", "/events/" + random.nextInt(3), "10.0.0." + random.nextInt(20),
+                    BASE.plusSeconds(random.nextInt(3 * 24 * 3600))));
+        }
+        statsService.createStats(hits);
+        LocalDateTime start = BASE.plusHours(5).plusSeconds(17);
+        LocalDateTime end = BASE.plusDays(2).plusMinutes(3).plusSeconds(9);
+
+        for (StatsBucket bucket : StatsBucket.values()) {
+            Map<LocalDateTime, Long> expected = new TreeMap<>();
+            hits.stream()
+                    .filter(hit -> hit.getUri().equals("/events/1"))
+                    .filter(hit -> !hit.getTimestamp().isBefore(start) && !hit.getTimestamp().isAfter(end))
+                    .forEach(hit -> expected.merge(RollupGranularity.of(bucket).floor(hit.getTimestamp()),
+                            1L, Long::sum));
+            List<TimeSeriesPoint> actual = new ArrayList<>();
+
+            statsService.streamTimeSeries(TimeSeriesQuery.builder()
+                    .start(start)
+                    .end(end)
+                    .uri("/events/1")
+                    .bucket(bucket)
+                    .build(), actual::add);
+
+            assertThat(actual).extracting(TimeSeriesPoint::getBucket).containsExactlyElementsOf(expected.keySet());
+            assertThat(actual).extracting(TimeSeriesPoint::getHits).containsExactlyElementsOf(expected.values());
+        }
+    }
+
+    @Test
+    void backfillIfEmpty_shouldRebuildClearedRollupsUnderAnyLocale() {
+        Random random = new Random(11);
+        List<StatDto> hits = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            hits.add(new StatDto("app", "/events/" + random.nextInt(3), "10.0.0." + random.nextInt(20),
+                    BASE.plusSeconds(random.nextInt(2 * 24 * 3600))));
+        }
+        statsService.createStats(hits);
+        rollupRepository.clear();
+        Locale defaultLocale = Locale.getDefault();
+        // "MINUTE".toLowerCase() is "mınute" here, which DATE_TRUNC does not know
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            rollupRepository.backfillIfEmpty();
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+
+        assertSameAsRaw(BASE.plusHours(5).plusSeconds(17), BASE.plusDays(1).plusMinutes(3), null);
+    }
+
+    private void assertSameAsRaw(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        List<ViewStats> expected = oracle.getStatsNonUnique(start, end, uris);
+        List<ViewStats> actual = statsService.getStats(start, end, uris, false);
+
+        assertThat(actual).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(actual).extracting(ViewStats::getHits).isSortedAccordingTo((a, b) -> Long.compare(b, a));
+    }
+
+    private void assertSameAsRawForApp(LocalDateTime start, LocalDateTime end, List<String> uris, String app) {
+        List<ViewStats> expected = oracle.getStatsNonUniqueByApp(start, end, uris, app);
+        List<ViewStats> actual = statsService.getStats(StatsQuery.builder()
+                .start(start)
+                .end(end)
+                .uris(uris)
+                .app(app)
+                .precision(StatsPrecision.EXACT)
+                .build());
+
+        assertThat(expected).isNotEmpty();
+        assertThat(actual).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyInAnyOrderElementsOf(expected);
+    }
+}
@@ -4,20 +4,32 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.explorewithme.entity.Stat;
 import ru.practicum.explorewithme.exception.InvalidUriParameterException;
 import ru.practicum.explorewithme.exception.TimeRangeValidationException;
+import ru.practicum.explorewithme.service.HitDictionary;
+import ru.practicum.explorewithme.service.StatsQuery;
 import ru.practicum.explorewithme.service.StatsRepository;
 import ru.practicum.explorewithme.service.StatsService;
+import ru.practicum.explorewithme.service.TimeSeriesQuery;
+import ru.practicum.statsdto.HitBatchResult;
 import ru.practicum.statsdto.StatDto;
+import ru.practicum.statsdto.StatsBucket;
+import ru.practicum.statsdto.StatsPrecision;
+import ru.practicum.statsdto.TimeSeriesPoint;
 import ru.practicum.statsdto.ViewStats;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest
@@ -31,6 +43,10 @@ public class StatsServiceTest {
     private StatsService statsService;
     @Autowired
     private StatsRepository repository;
+    @Autowired
+    private HitDictionary dictionary;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
     @Test
     void createStat_shouldPersistAndReturnDto() {
@@ -43,13 +59,33 @@ public class StatsServiceTest {
         StatDto saved = statsService.createStat(dto);
 
         assertThat(saved.getApp()).isEqualTo("test-app");
-        assertThat(repository.findAll()).hasSize(1);
+        assertThat(saved.getIp()).isEqualTo("192.168.0.1");
+        List<Stat> stored = repository.findAll();
+        assertThat(stored).hasSize(1);
+        assertThat(stored.getFirst().getIp()).containsExactly(192, 168, 0, 1);
+        assertThat(stored.getFirst().getAppId()).isNotNull();
+    }
+
+    @Test
+    void createStats_shouldPersistWholeBatch() {
+        List<StatDto> batch = new ArrayList<>();
+        for (int i = 0; i < 1_200; i++) {
+            batch.add(new StatDto("test-app", "/events/" + (i % 3), "10.0.0." + (i % 200), start));
+        }
+
+        HitBatchResult result = statsService.createStats(batch);
+
+        assertThat(result.getReceived()).isEqualTo(1_200);
+        assertThat(result.getAccepted()).isEqualTo(1_200);
+        assertThat(repository.count()).isEqualTo(1_200);
+        assertThat(statsService.getStats(start.minusMinutes(1), end, List.of("/events/0"), false)
+                .getFirst().getHits()).isEqualTo(400);
     }
 
     @Test
     void getStats_shouldReturnNonUniqueCounts() {
-        repository.save(new Stat(null, "app", "/url", "ip1", start.minusHours(1)));
-        repository.save(new Stat(null, "app", "/url", "ip2", start.minusMinutes(10)));
+        statsService.createStat(new StatDto("app", "/url", "10.0.0.1", start.minusHours(1)));
+        statsService.createStat(new StatDto("app", "/url", "10.0.0.2", start.minusMinutes(10)));
 
         List<ViewStats> result = statsService.getStats(
                 start.minusHours(2), start.plusHours(1), List.of("/url"), false
@@ -61,8 +97,8 @@ public class StatsServiceTest {
 
     @Test
     void getStats_shouldReturnUniqueCounts() {
-        repository.save(new Stat(null, "app", "/url", "ip1", start.minusHours(1)));
-        repository.save(new Stat(null, "app", "/url", "ip1", start.minusMinutes(10)));
+        statsService.createStat(new StatDto("app", "/url", "10.0.0.1", start.minusHours(1)));
+        statsService.createStat(new StatDto("app", "/url", "10.0.0.1", start.minusMinutes(10)));
 
         List<ViewStats> result = statsService.getStats(
                 start.minusHours(2), start.plusHours(1), List.of("/url"), true
@@ -71,6 +107,154 @@ public class StatsServiceTest {
         assertThat(result.getFirst().getHits()).isEqualTo(1);
     }
 
+    @Test
+    void getStats_withLimit_shouldReturnTopUris() {
+        List<StatDto> batch = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j <= i; j++) {
+                batch.add(new StatDto("app", "/events/" + i, "10.0.0." + j, start));
+            }
+        }
+        statsService.createStats(batch);
+        StatsQuery query = StatsQuery.builder()
+                .start(start.minusMinutes(1))
+                .end(end)
+                .unique(true)
+                .precision(StatsPrecision.EXACT)
+                .limit(2)
+                .build();
+
+        List<ViewStats> top = statsService.getStats(query);
+        List<ViewStats> streamed = new ArrayList<>();
+        statsService.streamStats(query.toBuilder().limit(null).build(), streamed::add);
+
+        assertThat(top).extracting(ViewStats::getUri).containsExactly("/events/4", "/events/3");
+        assertThat(streamed).extracting(ViewStats::getHits).containsExactly(5L, 4L, 3L, 2L, 1L);
+    }
+
+    @Test
+    void getStats_withApp_shouldCountOnlyThatAppsHits() {
+        statsService.createStats(List.of(
+                new StatDto("ewm-main", "/events/1", "10.0.0.1", start),
+                new StatDto("ewm-main", "/events/1", "10.0.0.1", start),
+                new StatDto("ewm-main", "/events/2", "10.0.0.2", start),
+                new StatDto("other-app", "/events/1", "10.0.0.3", start)));
+        StatsQuery query = StatsQuery.builder()
+                .start(start.minusMinutes(1))
+                .end(end)
+                .uris(List.of("/events/1", "/events/2"))
+                .app("ewm-main")
+                .precision(StatsPrecision.EXACT)
+                .build();
+
+        List<ViewStats> hits = statsService.getStats(query);
+        List<ViewStats> unique = statsService.getStats(query.toBuilder().unique(true).build());
+        List<ViewStats> other = statsService.getStats(query.toBuilder().app("other-app").uris(null).build());
+
+        assertThat(hits).extracting(ViewStats::getApp, ViewStats::getUri, ViewStats::getHits)
+                .containsExactly(tuple("ewm-main", "/events/1", 2L), tuple("ewm-main", "/events/2", 1L));
+        assertThat(unique).extracting(ViewStats::getUri, ViewStats::getHits)
+                .containsExactlyInAnyOrder(tuple("/events/1", 1L), tuple("/events/2", 1L));
+        assertThat(other).extracting(ViewStats::getApp, ViewStats::getUri, ViewStats::getHits)
+                .containsExactly(tuple("other-app", "/events/1", 1L));
+        assertThat(statsService.getStats(query.toBuilder().app("unknown-app").build())).isEmpty();
+    }
+
+    @Test
+    void getStats_shouldFilterByLargeUriList() {
+        statsService.createStats(List.of(
+                new StatDto("app", "/events/7", "10.0.0.1", start),
+                new StatDto("app", "/events/8", "10.0.0.1", start),
+                new StatDto("app", "/events/999", "10.0.0.1", start)));
+        List<String> uris = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            uris.add("/events/" + i);
+        }
+
+        List<ViewStats> result = statsService.getStats(start.minusMinutes(1), end, uris, false);
+
+        assertThat(result).extracting(ViewStats::getUri).containsExactlyInAnyOrder("/events/7", "/events/8");
+    }
+
+    @Test
+    void getStats_withPrefixPattern_shouldGroupPerConcreteUri() {
+        statsService.createStats(List.of(
+                new StatDto("app", "/events/1", "10.0.0.1", start),
+                new StatDto("app", "/events/1", "10.0.0.2", start),
+                new StatDto("app", "/events/2", "10.0.0.1", start),
+                new StatDto("app", "/events_archive/3", "10.0.0.1", start),
+                new StatDto("app", "/users/1", "10.0.0.1", start)));
+
+        List<ViewStats> events = statsService.getStats(start.minusMinutes(1), end, List.of("/events/*"), false);
+        List<ViewStats> mixed = statsService.getStats(start.minusMinutes(1), end,
+                List.of("/users/1", "/events/1", "/events/*"), true);
+
+        assertThat(events).extracting(ViewStats::getUri, ViewStats::getHits)
+                .containsExactly(tuple("/events/1", 2L), tuple("/events/2", 1L));
+        assertThat(mixed).extracting(ViewStats::getUri)
+                .containsExactlyInAnyOrder("/events/1", "/events/2", "/users/1");
+    }
+
+    @Test
+    void streamTimeSeries_shouldCountUniqueIpsPerBucket() {
+        LocalDateTime hour = LocalDateTime.of(2025, 3, 1, 10, 0);
+        statsService.createStats(List.of(
+                new StatDto("app", "/events/1", "10.0.0.1", hour.plusMinutes(1)),
+                new StatDto("app", "/events/1", "10.0.0.1", hour.plusMinutes(2)),
+                new StatDto("app", "/events/2", "10.0.0.2", hour.plusMinutes(3)),
+                new StatDto("app", "/events/1", "10.0.0.1", hour.plusHours(2)),
+                new StatDto("app", "/users/1", "10.0.0.3", hour.plusMinutes(4))));
+        List<TimeSeriesPoint> series = new ArrayList<>();
+
+        statsService.streamTimeSeries(TimeSeriesQuery.builder()
+                .start(hour)
+                .end(hour.plusDays(1))
+                .uri("/events/*")
+                .bucket(StatsBucket.HOUR)
+                .unique(true)
+                .build(), series::add);
+
+        assertThat(series).extracting(TimeSeriesPoint::getBucket, TimeSeriesPoint::getHits)
+                .containsExactly(tuple(hour, 2L), tuple(hour.plusHours(2), 1L));
+    }
+
+    @Test
+    void streamTimeSeries_shouldNotDependOnDefaultLocale() {
+        LocalDateTime minute = LocalDateTime.of(2025, 3, 1, 10, 0);
+        statsService.createStats(List.of(
+                new StatDto("app", "/events/1", "10.0.0.1", minute.plusSeconds(5)),
+                new StatDto("app", "/events/1", "10.0.0.2", minute.plusSeconds(50)),
+                new StatDto("app", "/events/1", "10.0.0.1", minute.plusMinutes(1))));
+        List<TimeSeriesPoint> series = new ArrayList<>();
+        Locale defaultLocale = Locale.getDefault();
+        // the default-locale "MINUTE".toLowerCase() here is "mınute", which DATE_TRUNC rejects
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            statsService.streamTimeSeries(TimeSeriesQuery.builder()
+                    .start(minute)
+                    .end(minute.plusHours(1))
+                    .uri("/events/1")
+                    .bucket(StatsBucket.MINUTE)
+                    .build(), series::add);
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+
+        assertThat(series).extracting(TimeSeriesPoint::getBucket, TimeSeriesPoint::getHits)
+                .containsExactly(tuple(minute, 2L), tuple(minute.plusMinutes(1), 1L));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void appId_shouldInternWithinCallersTransactionAndForgetItOnRollback() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertThat(dictionary.appId("rolled-back-app")).isEqualTo(dictionary.findAppId("rolled-back-app"));
+            status.setRollbackOnly();
+        });
+
+        assertThat(dictionary.findAppId("rolled-back-app")).isNull();
+    }
+
     @Test
     void getStats_whenUrisEmpty_shouldThrowInvalidUriParameterException() {
         List<String> uris = List.of();
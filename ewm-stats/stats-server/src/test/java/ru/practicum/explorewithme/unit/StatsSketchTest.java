@@ -0,0 +1,82 @@
+package ru.practicum.explorewithme.unit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.explorewithme.service.StatsQuery;
+import ru.practicum.explorewithme.service.StatsService;
+import ru.practicum.statsdto.StatDto;
+import ru.practicum.statsdto.StatsPrecision;
+import ru.practicum.statsdto.ViewStats;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@SpringBootTest(properties = "stats-server.sketch.enabled=true")
+@ActiveProfiles("test")
+@Transactional
+class StatsSketchTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 3, 1, 0, 0);
+
+    @Autowired
+    private StatsService statsService;
+
+    @Test
+    void getStats_approximateUnique_shouldStayWithinErrorBoundOfExact() {
+        Random random = new Random(7);
+        List<StatDto> hits = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            hits.add(new StatDto("app", "/events/" + random.nextInt(3), "10.0." + random.nextInt(40) + "."
+                    + random.nextInt(250), BASE.plusSeconds(random.nextInt(5 * 24 * 3600))));
+        }
+        hits.add(new StatDto("app", "/events/9", "127.0.0.1", BASE.plusDays(2)));
+        statsService.createStats(hits);
+
+        assertWithinBound(BASE.minusYears(1), BASE.plusYears(1), null);
+        assertWithinBound(BASE.plusHours(7).plusSeconds(3), BASE.plusDays(3).plusHours(2), null);
+        assertWithinBound(BASE.plusDays(1), BASE.plusDays(4), List.of("/events/1", "/events/9"));
+    }
+
+    @Test
+    void getStats_approximateUnique_shouldMergeBatchesIntoStoredSketches() {
+        Random random = new Random(13);
+        for (int batch = 0; batch < 4; batch++) {
+            List<StatDto> hits = new ArrayList<>();
+            for (int i = 0; i < 2_000; i++) {
+                hits.add(new StatDto("app", "/events/" + random.nextInt(3), "10.1." + random.nextInt(20) + "."
+                        + random.nextInt(250), BASE.plusSeconds(random.nextInt(3 * 24 * 3600))));
+            }
+            statsService.createStats(hits);
+        }
+
+        assertWithinBound(BASE.minusDays(1), BASE.plusDays(4), null);
+    }
+
+    private void assertWithinBound(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        Map<String, Long> exact = toMap(statsService.getStats(start, end, uris, true));
+        Map<String, Long> approximate = toMap(statsService.getStats(StatsQuery.builder()
+                .start(start)
+                .end(end)
+                .uris(uris)
+                .unique(true)
+                .precision(StatsPrecision.APPROXIMATE)
+                .build()));
+
+        assertThat(approximate).containsOnlyKeys(exact.keySet());
+        exact.forEach((uri, hits) ->
+                assertThat((double) approximate.get(uri)).isCloseTo(hits, within(Math.max(1, hits * 0.05))));
+    }
+
+    private static Map<String, Long> toMap(List<ViewStats> stats) {
+        return stats.stream().collect(Collectors.toMap(ViewStats::getUri, ViewStats::getHits));
+    }
+}
@@ -0,0 +1,36 @@
+package ru.practicum.explorewithme.unit;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.explorewithme.service.TopStatsCollector;
+import ru.practicum.statsdto.ViewStats;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TopStatsCollectorTest {
+
+    @Test
+    void result_shouldKeepRowsWithMostHits_mostHitsFirst() {
+        TopStatsCollector top = new TopStatsCollector(3);
+        Random random = new Random(3);
+        for (int i = 0; i < 10_000; i++) {
+            top.accept(new ViewStats("app", "/events/" + i, (long) random.nextInt(1_000)));
+        }
+        top.accept(new ViewStats("app", "/events/b", 5_000L));
+        top.accept(new ViewStats("app", "/events/a", 5_000L));
+        top.accept(new ViewStats("app", "/events/max", 9_000L));
+
+        assertThat(top.result()).extracting(ViewStats::getUri)
+                .containsExactly("/events/max", "/events/a", "/events/b");
+    }
+
+    @Test
+    void result_whenFewerRowsThanLimit_shouldReturnAllSorted() {
+        TopStatsCollector top = new TopStatsCollector(10);
+        top.accept(new ViewStats("app", "/a", 1L));
+        top.accept(new ViewStats("app", "/b", 2L));
+
+        assertThat(top.result()).extracting(ViewStats::getHits).containsExactly(2L, 1L);
+    }
+}
@@ -0,0 +1,41 @@
+package ru.practicum.explorewithme.unit;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.explorewithme.service.UriFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UriFilterTest {
+
+    @Test
+    void of_shouldSplitExactUrisAndPrefixes() {
+        UriFilter filter = UriFilter.of(List.of("/events/1", "/events/*", "/*", "/events/1"));
+
+        assertThat(filter.exact()).containsExactly("/events/1");
+        assertThat(filter.prefixes()).containsExactly("/events/", "/");
+        assertThat(UriFilter.isPattern("/events*/1")).isFalse();
+    }
+
+    @Test
+    void toSql_shouldBindExactUrisAsOneArrayAndEscapePrefixes() {
+        List<Object> args = new ArrayList<>();
+
+        String sql = UriFilter.of(List.of("/a", "/b", "/my_events/*")).toSql("u.uri", args);
+
+        assertThat(sql).isEqualTo("(u.uri = ANY(?) OR u.uri LIKE ? ESCAPE '\\')");
+        assertThat((String[]) args.get(0)).containsExactly("/a", "/b");
+        assertThat(args.get(1)).isEqualTo("/my\\_events/%");
+    }
+
+    @Test
+    void matches_shouldAcceptExactUrisAndPrefixes() {
+        UriFilter filter = UriFilter.of(List.of("/users/1", "/events/*"));
+
+        assertThat(filter.matches("/events/42")).isTrue();
+        assertThat(filter.matches("/users/1")).isTrue();
+        assertThat(filter.matches("/users/12")).isFalse();
+    }
+}